@@ -0,0 +1,55 @@
+package com.ahamo.dummy.demo2.gateway.benchmark;
+
+import com.ahamo.dummy.demo2.gateway.filter.AuthenticationFilter;
+import com.ahamo.dummy.demo2.gateway.security.HmacSigningKeyProvider;
+import com.ahamo.dummy.demo2.gateway.security.JwtTokenVerifier;
+import com.ahamo.dummy.demo2.gateway.security.TokenRevocationList;
+import com.ahamo.dummy.demo2.gateway.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.Duration;
+import java.util.List;
+
+@State(Scope.Benchmark)
+public class AuthenticationFilterBenchmark {
+
+    @Param({"valid", "invalid", "missing"})
+    public String token;
+
+    private GatewayFilter filter;
+    private String bearerToken;
+
+    @Setup
+    public void setUp() {
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(10_000, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        // Never started, so Redis is not touched; every check goes through the Bloom filter
+        TokenRevocationList revocationList = new TokenRevocationList(null, true, "revoked-tokens",
+                "token-revocations", 100_000, 0.001, Duration.ofMinutes(5), Duration.ofSeconds(2),
+                new SimpleMeterRegistry());
+        JwtTokenVerifier tokenVerifier = new JwtTokenVerifier(
+                List.of(new HmacSigningKeyProvider(BenchmarkExchanges.JWT_SECRET)), tokenCache, revocationList);
+        filter = new AuthenticationFilter(tokenVerifier, 10).apply(new AuthenticationFilter.Config());
+
+        String valid = BenchmarkExchanges.signedToken(BenchmarkExchanges.JWT_SECRET);
+        bearerToken = switch (token) {
+            case "valid" -> valid;
+            case "invalid" -> valid.substring(0, valid.length() - 4) + "AAAA";
+            default -> null;
+        };
+    }
+
+    @Benchmark
+    public HttpStatusCode apply() {
+        ServerWebExchange exchange = BenchmarkExchanges.get("/api/v1/users/me", bearerToken);
+        filter.filter(exchange, BenchmarkExchanges.UPSTREAM_OK).block();
+        return exchange.getResponse().getStatusCode();
+    }
+}
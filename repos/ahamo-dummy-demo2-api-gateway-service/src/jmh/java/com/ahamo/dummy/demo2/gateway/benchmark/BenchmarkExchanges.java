@@ -0,0 +1,88 @@
+package com.ahamo.dummy.demo2.gateway.benchmark;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.adapter.DefaultServerWebExchange;
+import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
+import org.springframework.web.server.session.DefaultWebSessionManager;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+final class BenchmarkExchanges {
+
+    static final String JWT_SECRET = "dGVzdFNlY3JldEtleUZvckpXVFRva2VuVGVzdGluZ1B1cnBvc2VzMTIzNDU2Nzg5MA==";
+
+    static final GatewayFilterChain UPSTREAM_OK = exchange -> {
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        return exchange.getResponse().setComplete();
+    };
+
+    private static final InetSocketAddress REMOTE_ADDRESS = new InetSocketAddress("10.0.0.1", 51000);
+
+    // MockServerWebExchange builds a fresh codec configurer per instance, which would dwarf the filters.
+    private static final ServerCodecConfigurer CODECS = ServerCodecConfigurer.create();
+    private static final DefaultWebSessionManager SESSIONS = new DefaultWebSessionManager();
+    private static final AcceptHeaderLocaleContextResolver LOCALES = new AcceptHeaderLocaleContextResolver();
+
+    private BenchmarkExchanges() {
+    }
+
+    static String signedToken(String secret) {
+        return Jwts.builder()
+                .id("benchmark-token")
+                .subject("benchmark-user")
+                .claim("roles", List.of("USER"))
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    static ServerWebExchange get(String path, String bearerToken) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get(path)
+                .remoteAddress(REMOTE_ADDRESS)
+                .header("X-Request-ID", "benchmark-request");
+        if (bearerToken != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken);
+        }
+        return new DefaultServerWebExchange(request.build(), new MockServerHttpResponse(), SESSIONS, CODECS, LOCALES);
+    }
+
+    static ServerWebExchange preflight(String path, String origin) {
+        MockServerHttpRequest request = MockServerHttpRequest.options("http://gateway.local" + path)
+                .remoteAddress(REMOTE_ADDRESS)
+                .header(HttpHeaders.ORIGIN, origin)
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "POST")
+                .header(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "authorization,content-type")
+                .build();
+        return new DefaultServerWebExchange(request, new MockServerHttpResponse(), SESSIONS, CODECS, LOCALES);
+    }
+
+    static GatewayFilterChain chain(List<GatewayFilter> filters, GatewayFilterChain terminal) {
+        return new Chain(filters, 0, terminal);
+    }
+
+    private record Chain(List<GatewayFilter> filters, int index, GatewayFilterChain terminal)
+            implements GatewayFilterChain {
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            if (index < filters.size()) {
+                return filters.get(index).filter(exchange, new Chain(filters, index + 1, terminal));
+            }
+            return terminal.filter(exchange);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ahamo.dummy.demo2.gateway.benchmark;
+
+import com.ahamo.dummy.demo2.gateway.exception.ErrorResponseWriter;
+import com.ahamo.dummy.demo2.gateway.exception.GatewayExceptionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+
+@State(Scope.Benchmark)
+public class GatewayExceptionHandlerBenchmark {
+
+    @Param({"notFound", "responseStatus", "unexpected"})
+    public String error;
+
+    private GatewayExceptionHandler handler;
+    private Throwable exception;
+
+    @Setup
+    public void setUp() {
+        handler = new GatewayExceptionHandler(new ErrorResponseWriter(), 10);
+        exception = switch (error) {
+            case "notFound" -> NotFoundException.create(true, "Unable to find instance for product-service");
+            case "responseStatus" -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Upstream timed out");
+            default -> new IllegalStateException("Connection reset by peer");
+        };
+    }
+
+    @Benchmark
+    public HttpStatusCode handle() {
+        ServerWebExchange exchange = BenchmarkExchanges.get("/api/v1/smartphones/1", null);
+        handler.handle(exchange, exception).block();
+        return exchange.getResponse().getStatusCode();
+    }
+}
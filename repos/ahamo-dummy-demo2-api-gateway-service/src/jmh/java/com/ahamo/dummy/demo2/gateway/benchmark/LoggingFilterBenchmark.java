@@ -0,0 +1,41 @@
+package com.ahamo.dummy.demo2.gateway.benchmark;
+
+import com.ahamo.dummy.demo2.gateway.filter.LoggingFilter;
+import com.ahamo.dummy.demo2.gateway.logging.AccessLogPipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.Duration;
+
+@State(Scope.Benchmark)
+public class LoggingFilterBenchmark {
+
+    private AccessLogPipeline accessLog;
+    private GatewayFilter filter;
+
+    @Setup
+    public void setUp() {
+        accessLog = new AccessLogPipeline(8192, 256, 1.0, Duration.ofMillis(20), new SimpleMeterRegistry());
+        accessLog.start();
+        filter = new LoggingFilter(accessLog).apply(new LoggingFilter.Config());
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        accessLog.stop();
+    }
+
+    @Benchmark
+    public HttpStatusCode apply() {
+        ServerWebExchange exchange = BenchmarkExchanges.get("/api/v1/smartphones/1", null);
+        filter.filter(exchange, BenchmarkExchanges.UPSTREAM_OK).block();
+        return exchange.getResponse().getStatusCode();
+    }
+}
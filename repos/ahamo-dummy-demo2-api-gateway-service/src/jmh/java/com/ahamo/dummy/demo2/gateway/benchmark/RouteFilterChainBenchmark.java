@@ -0,0 +1,100 @@
+package com.ahamo.dummy.demo2.gateway.benchmark;
+
+import com.ahamo.dummy.demo2.gateway.GatewayApplication;
+import com.ahamo.dummy.demo2.gateway.ratelimit.HybridRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Runs the filters that {@code GatewayConfig} composes for a route, together with the gateway's own
+ * global filters, in the order {@code FilteringWebHandler} would. The Netty routing filters are left
+ * out and replaced by a terminal chain that answers 200, so only gateway-side cost is measured.
+ */
+@State(Scope.Benchmark)
+public class RouteFilterChainBenchmark {
+
+    private static final String GATEWAY_PACKAGE = "com.ahamo.dummy.demo2.gateway";
+
+    @Param({"auth-service", "product-service", "protected-services"})
+    public String routeId;
+
+    private ConfigurableApplicationContext context;
+    private Route route;
+    private List<GatewayFilter> filters;
+    private String path;
+    private String bearerToken;
+
+    @Setup
+    public void setUp() {
+        context = SpringApplication.run(GatewayApplication.class,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=OFF",
+                "--logging.level." + GATEWAY_PACKAGE + "=OFF",
+                "--logging.level.org.springframework.cloud.gateway=OFF",
+                "--logging.level.org.springframework.security=OFF");
+
+        RouteLocator routeLocator = context.getBean("gatewayRoutes", RouteLocator.class);
+        route = routeLocator.getRoutes()
+                .filter(candidate -> candidate.getId().equals(routeId))
+                .blockFirst();
+        if (route == null) {
+            throw new IllegalStateException("Route " + routeId + " is not defined by GatewayConfig");
+        }
+
+        List<GatewayFilter> combined = new ArrayList<>(route.getFilters());
+        for (GlobalFilter globalFilter : context.getBeansOfType(GlobalFilter.class).values()) {
+            if (globalFilter.getClass().getName().startsWith(GATEWAY_PACKAGE)) {
+                int order = globalFilter instanceof Ordered ordered ? ordered.getOrder() : Ordered.LOWEST_PRECEDENCE;
+                combined.add(new OrderedGatewayFilter(globalFilter::filter, order));
+            }
+        }
+        AnnotationAwareOrderComparator.sort(combined);
+        filters = List.copyOf(combined);
+
+        // Keep the auth route on the admit path instead of measuring 429s once the burst is spent.
+        context.getBean(HybridRateLimiter.class).getConfig().put(routeId, new HybridRateLimiter.Config()
+                .setReplenishRate(1_000_000_000)
+                .setBurstCapacity(1_000_000_000));
+
+        path = switch (routeId) {
+            case "auth-service" -> "/api/v1/auth/login";
+            case "product-service" -> "/api/v1/smartphones/1";
+            default -> "/api/v1/users/me";
+        };
+        bearerToken = BenchmarkExchanges.signedToken(context.getEnvironment().getRequiredProperty("jwt.secret"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public HttpStatusCode filterChain() {
+        ServerWebExchange exchange = BenchmarkExchanges.get(path, bearerToken);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+        BenchmarkExchanges.chain(filters, BenchmarkExchanges.UPSTREAM_OK).filter(exchange).block();
+        return exchange.getResponse().getStatusCode();
+    }
+}
@@ -0,0 +1,64 @@
+package com.ahamo.dummy.demo2.gateway.benchmark;
+
+import com.ahamo.dummy.demo2.gateway.route.RouteTable;
+import com.ahamo.dummy.demo2.gateway.route.RouteTableProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Route lookup for the last of {@code routes} routes: the {@link RouteTable} trie against testing each route's
+ * Path predicate in turn, which is what the stock handler mapping does. The trie should stay flat as routes grow.
+ */
+@State(Scope.Benchmark)
+public class RouteLookupBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int routes;
+
+    private RouteTable routeTable;
+    private List<Predicate<ServerWebExchange>> predicates;
+    private ServerWebExchange exchange;
+
+    @Setup
+    public void setUp() {
+        RouteTableProperties properties = new RouteTableProperties();
+        PathRoutePredicateFactory pathPredicates = new PathRoutePredicateFactory();
+        predicates = new ArrayList<>();
+        for (int i = 0; i < routes; i++) {
+            RouteTableProperties.RouteSpec spec = new RouteTableProperties.RouteSpec();
+            spec.setUri(URI.create("http://service-" + i + ":8080"));
+            spec.setPaths(List.of("/api/v1/service-" + i + "/**", "/api/v1/service-" + i + "/items/{id}"));
+            properties.getRoutes().put("service-" + i, spec);
+            predicates.add(pathPredicates.apply(new PathRoutePredicateFactory.Config().setPatterns(spec.getPaths())));
+        }
+        routeTable = new RouteTable(properties,
+                (id, spec) -> Route.async().id(id).uri(spec.getUri()).predicate(candidate -> true).build());
+        exchange = BenchmarkExchanges.get("/api/v1/service-" + (routes - 1) + "/items/42", null);
+    }
+
+    @Benchmark
+    public Route trie() {
+        return routeTable.match(exchange.getRequest().getPath().pathWithinApplication().value());
+    }
+
+    @Benchmark
+    public int linearPredicateWalk() {
+        for (int i = 0; i < predicates.size(); i++) {
+            if (predicates.get(i).test(exchange)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
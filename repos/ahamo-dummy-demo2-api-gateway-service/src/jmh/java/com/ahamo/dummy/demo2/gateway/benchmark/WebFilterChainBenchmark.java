@@ -0,0 +1,69 @@
+package com.ahamo.dummy.demo2.gateway.benchmark;
+
+import com.ahamo.dummy.demo2.gateway.GatewayApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.handler.FilteringWebHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs every WebFilter of the application, security included, in front of a handler that answers 200 in place
+ * of the gateway's handler mapping, so only the pre-routing dispatch stage is measured.
+ */
+@State(Scope.Benchmark)
+public class WebFilterChainBenchmark {
+
+    @Param({"public", "preflight", "protected"})
+    public String request;
+
+    private ConfigurableApplicationContext context;
+    private FilteringWebHandler handler;
+    private String bearerToken;
+
+    @Setup
+    public void setUp() {
+        context = SpringApplication.run(GatewayApplication.class,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=OFF",
+                "--logging.level.com.ahamo.dummy.demo2.gateway=OFF",
+                "--logging.level.org.springframework.security=OFF");
+
+        List<WebFilter> filters = new ArrayList<>(context.getBeansOfType(WebFilter.class).values());
+        AnnotationAwareOrderComparator.sort(filters);
+        handler = new FilteringWebHandler(exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return exchange.getResponse().setComplete();
+        }, filters);
+        bearerToken = BenchmarkExchanges.signedToken(context.getEnvironment().getRequiredProperty("jwt.secret"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public HttpStatusCode dispatch() {
+        ServerWebExchange exchange = switch (request) {
+            case "public" -> BenchmarkExchanges.get("/api/v1/auth/login", null);
+            case "preflight" -> BenchmarkExchanges.preflight("/api/v1/orders", "https://app.example.com");
+            default -> BenchmarkExchanges.get("/api/v1/users/me", bearerToken);
+        };
+        handler.handle(exchange).block();
+        return exchange.getResponse().getStatusCode();
+    }
+}
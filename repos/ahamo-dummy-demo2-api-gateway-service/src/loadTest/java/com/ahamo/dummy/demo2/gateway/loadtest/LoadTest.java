@@ -0,0 +1,156 @@
+package com.ahamo.dummy.demo2.gateway.loadtest;
+
+import com.ahamo.dummy.demo2.gateway.GatewayApplication;
+import com.ahamo.dummy.demo2.gateway.route.RouteTableProperties;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.DefaultResourceLoader;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the gateway in-process against a stub upstream per route and a Redis stand-in, drives each route of the
+ * route table at the scenario's constant rate and writes a JSON report of throughput and latency percentiles.
+ * <p>
+ * Usage: {@code LoadTest [scenario] [report]}, where the scenario is a {@code classpath:} or file location
+ * (default {@code classpath:loadtest.yml}). The scenario file is also given to the gateway as additional
+ * configuration, so it can override any gateway property such as rate limits or logging.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String scenarioLocation = args.length > 0 ? location(args[0]) : "classpath:loadtest.yml";
+        Path reportFile = Path.of(args.length > 1 ? args[1] : "build/reports/loadtest/report.json");
+
+        Binder binder = binder(scenarioLocation);
+        LoadTestScenario scenario = binder.bind("loadtest", LoadTestScenario.class)
+                .orElseThrow(() -> new IllegalStateException(scenarioLocation + " has no loadtest block"));
+        Map<String, RouteTableProperties.RouteSpec> routes = new LinkedHashMap<>();
+        binder.bind("gateway.route-table", RouteTableProperties.class)
+                .orElseGet(RouteTableProperties::new)
+                .getRoutes()
+                .forEach((id, spec) -> {
+                    if (spec.isEnabled()) {
+                        routes.put(id, spec);
+                    }
+                });
+        for (String routeId : routes.keySet()) {
+            if (scenario.routes() == null || !scenario.routes().containsKey(routeId)
+                    || scenario.upstreams() == null || !scenario.upstreams().containsKey(routeId)) {
+                throw new IllegalStateException("Scenario " + scenarioLocation + " defines no load or upstream for route "
+                        + routeId + "; every route in the route table needs both");
+            }
+        }
+
+        LoopResources stubLoops = LoopResources.create("loadtest-stub", 2, true);
+        LoopResources clientLoops = LoopResources.create("loadtest-client", 2, true);
+        ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(scenario.maxInFlight())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        Map<String, StubUpstream> stubs = new LinkedHashMap<>();
+        RedisStub redis = RedisStub.start();
+        ConfigurableApplicationContext gateway = null;
+        try {
+            List<String> gatewayArgs = new ArrayList<>(List.of(
+                    "--server.port=0",
+                    "--spring.main.banner-mode=off",
+                    "--spring.config.additional-location=" + scenarioLocation,
+                    "--spring.data.redis.host=localhost",
+                    "--spring.data.redis.port=" + redis.port()));
+            routes.forEach((id, spec) -> {
+                StubUpstream stub = StubUpstream.start(id, scenario.upstreams().get(id), stubLoops);
+                stubs.put(id, stub);
+                String uri = "http://localhost:" + stub.port();
+                // Pooled routes keep their pool and get the stub as its only instance
+                gatewayArgs.add("pool".equals(spec.getUri().getScheme())
+                        ? "--gateway.upstream.pools." + spec.getUri().getHost() + ".instances=" + uri
+                        : "--gateway.route-table.routes." + id + ".uri=" + uri);
+            });
+
+            gateway = SpringApplication.run(GatewayApplication.class, gatewayArgs.toArray(String[]::new));
+            int port = ((WebServerApplicationContext) gateway).getWebServer().getPort();
+            String token = token(gateway.getEnvironment().getRequiredProperty("jwt.secret"));
+            HttpClient client = HttpClient.create(connections)
+                    .runOn(clientLoops)
+                    .baseUrl("http://localhost:" + port);
+
+            System.out.printf("Driving %d routes for %ds after %ds warmup%n", routes.size(),
+                    scenario.duration().toSeconds(), scenario.warmup().toSeconds());
+            List<CompletableFuture<OpenLoopGenerator.RouteResult>> runs = new ArrayList<>();
+            for (String routeId : routes.keySet()) {
+                OpenLoopGenerator generator = new OpenLoopGenerator(routeId, scenario.routes().get(routeId), client,
+                        token, scenario.maxInFlight(), scenario.requestTimeout());
+                CompletableFuture<OpenLoopGenerator.RouteResult> run = new CompletableFuture<>();
+                Thread thread = new Thread(() -> run.complete(generator.run(scenario.warmup(), scenario.duration())),
+                        "loadtest-" + routeId);
+                thread.start();
+                runs.add(run);
+            }
+            List<OpenLoopGenerator.RouteResult> results = runs.stream().map(CompletableFuture::join).toList();
+
+            Map<String, Long> upstreamRequests = new LinkedHashMap<>();
+            stubs.forEach((id, stub) -> upstreamRequests.put(id, stub.requests()));
+            LoadTestReport.write(reportFile, scenario, results, upstreamRequests);
+            LoadTestReport.print(results);
+            System.out.println("Report written to " + reportFile.toAbsolutePath());
+        } finally {
+            if (gateway != null) {
+                gateway.close();
+            }
+            stubs.values().forEach(StubUpstream::close);
+            redis.close();
+            connections.disposeLater().block(Duration.ofSeconds(5));
+            clientLoops.disposeLater().block(Duration.ofSeconds(5));
+            stubLoops.disposeLater().block(Duration.ofSeconds(5));
+        }
+    }
+
+    // The scenario layered over the gateway's own configuration, which is where the route table is defined
+    private static Binder binder(String scenarioLocation) throws IOException {
+        DefaultResourceLoader resources = new DefaultResourceLoader();
+        YamlPropertySourceLoader loader = new YamlPropertySourceLoader();
+        List<PropertySource<?>> sources = new ArrayList<>(
+                loader.load("scenario", resources.getResource(scenarioLocation)));
+        sources.addAll(loader.load("application", resources.getResource("classpath:application.yml")));
+        return new Binder(ConfigurationPropertySources.from(sources));
+    }
+
+    private static String location(String argument) {
+        return argument.startsWith("classpath:") || argument.startsWith("file:") ? argument : "file:" + argument;
+    }
+
+    private static String token(String secret) {
+        return Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject("loadtest-user")
+                .claim("roles", List.of("USER"))
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + Duration.ofHours(1).toMillis()))
+                .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
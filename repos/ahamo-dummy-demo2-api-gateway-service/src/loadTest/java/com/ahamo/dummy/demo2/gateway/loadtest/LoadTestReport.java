@@ -0,0 +1,73 @@
+package com.ahamo.dummy.demo2.gateway.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the run as JSON with a fixed key order, so reports from two builds can be diffed directly, and prints a
+ * one-line summary per route.
+ */
+final class LoadTestReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_KEYS = {"p50", "p90", "p99", "p99.9"};
+
+    private LoadTestReport() {
+    }
+
+    static void write(Path file, LoadTestScenario scenario, List<OpenLoopGenerator.RouteResult> results,
+                      Map<String, Long> upstreamRequests) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("java", System.getProperty("java.version"));
+        environment.put("processors", Runtime.getRuntime().availableProcessors());
+        report.put("environment", environment);
+        report.put("warmupSeconds", scenario.warmup().toSeconds());
+        report.put("durationSeconds", scenario.duration().toSeconds());
+
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (OpenLoopGenerator.RouteResult result : results) {
+            Map<String, Object> latency = new LinkedHashMap<>();
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                latency.put(PERCENTILE_KEYS[i], result.percentileMillis(PERCENTILES[i]));
+            }
+            latency.put("max", result.latency().getMaxValue() / 1000.0);
+
+            Map<String, Object> route = new LinkedHashMap<>();
+            route.put("method", result.load().method());
+            route.put("path", result.load().path());
+            route.put("offeredRate", result.load().rate());
+            route.put("throughput", Math.round(result.throughput() * 10) / 10.0);
+            route.put("requests", result.completed());
+            route.put("succeeded", result.succeeded());
+            route.put("outcomes", result.outcomes());
+            route.put("latencyMs", latency);
+            route.put("upstreamRequests", upstreamRequests.get(result.routeId()));
+            routes.put(result.routeId(), route);
+        }
+        report.put("routes", routes);
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+    }
+
+    static void print(List<OpenLoopGenerator.RouteResult> results) {
+        System.out.printf("%-20s %10s %10s %9s %9s %9s %9s  %s%n",
+                "route", "offered/s", "served/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "outcomes");
+        for (OpenLoopGenerator.RouteResult result : results) {
+            System.out.printf("%-20s %10d %10.1f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    result.routeId(), result.load().rate(), result.throughput(), result.percentileMillis(50),
+                    result.percentileMillis(99), result.percentileMillis(99.9),
+                    result.latency().getMaxValue() / 1000.0, result.outcomes());
+        }
+    }
+}
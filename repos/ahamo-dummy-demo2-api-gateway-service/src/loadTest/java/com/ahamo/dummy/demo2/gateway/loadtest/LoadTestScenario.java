@@ -0,0 +1,33 @@
+package com.ahamo.dummy.demo2.gateway.loadtest;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * The {@code loadtest} block of a scenario file: how long to drive load, the stub behind each route and the
+ * constant request rate offered to each route. Both maps are keyed by the route IDs of the gateway's route table.
+ */
+record LoadTestScenario(@DefaultValue("10s") Duration warmup,
+                        @DefaultValue("30s") Duration duration,
+                        @DefaultValue("5s") Duration requestTimeout,
+                        @DefaultValue("10000") int maxInFlight,
+                        Map<String, StubUpstream.Behavior> upstreams,
+                        Map<String, RouteLoad> routes) {
+
+    /**
+     * Requests offered to one route. {@code {i}} in the path is replaced by the request's sequence number modulo
+     * {@code distinctPaths}, which controls how often the response cache and request coalescing can help.
+     */
+    record RouteLoad(@DefaultValue("GET") String method,
+                     String path,
+                     @DefaultValue("1") int distinctPaths,
+                     @DefaultValue("100") int rate,
+                     @DefaultValue("false") boolean authenticated) {
+
+        String path(long sequence) {
+            return path.replace("{i}", Long.toString(sequence % distinctPaths));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.ahamo.dummy.demo2.gateway.loadtest;
+
+import io.netty.handler.codec.http.HttpMethod;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.http.HttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Offers one route a constant request rate, independent of how fast the gateway answers. Each request has an
+ * intended send time on a fixed schedule and its latency is measured from that time rather than from when it was
+ * actually sent, so a stall that delays sending is charged to the requests it delayed (no coordinated omission).
+ */
+final class OpenLoopGenerator {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final String routeId;
+    private final LoadTestScenario.RouteLoad load;
+    private final HttpClient client;
+    private final int maxInFlight;
+    private final Duration requestTimeout;
+
+    private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenLoopGenerator(String routeId, LoadTestScenario.RouteLoad load, HttpClient client, String bearerToken,
+                      int maxInFlight, Duration requestTimeout) {
+        this.routeId = routeId;
+        this.load = load;
+        this.client = load.authenticated()
+                ? client.headers(headers -> headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken))
+                : client;
+        this.maxInFlight = maxInFlight;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Sends requests through the warmup and the measured duration, then waits for the stragglers. The rate ramps up
+     * linearly over the warmup, so a cold JVM is not overloaded into timeouts and open circuit breakers before it
+     * has compiled anything. Only requests whose intended send time falls inside the measured duration are recorded.
+     */
+    RouteResult run(Duration warmup, Duration duration) {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        for (long sequence = 0; ; sequence++) {
+            long intended = start + intendedOffsetNanos(sequence, warmup.toNanos());
+            if (intended - end >= 0) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = intended - measureFrom >= 0;
+            // A hard cap keeps an unresponsive gateway from exhausting the generator; every drop is reported
+            if (inFlight.get() >= maxInFlight) {
+                if (measured) {
+                    count("dropped");
+                }
+                continue;
+            }
+            inFlight.incrementAndGet();
+            send(sequence).subscribe(
+                    status -> complete(intended, measured, String.valueOf(status)),
+                    error -> complete(intended, measured, error.getClass().getSimpleName()));
+        }
+
+        long drainDeadline = System.nanoTime() + requestTimeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        Map<String, Long> counts = new TreeMap<>();
+        outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+        return new RouteResult(routeId, load, duration, latency.copy(), counts);
+    }
+
+    // The n-th request of a rate rising linearly to r over warmup w is due at sqrt(2wn/r), then every 1/r
+    private long intendedOffsetNanos(long sequence, long warmupNanos) {
+        double nanosPerRequest = TimeUnit.SECONDS.toNanos(1) / (double) load.rate();
+        double rampRequests = warmupNanos / nanosPerRequest / 2;
+        if (sequence < rampRequests) {
+            return (long) Math.sqrt(2 * warmupNanos * sequence * nanosPerRequest);
+        }
+        return warmupNanos + (long) ((sequence - rampRequests) * nanosPerRequest);
+    }
+
+    private Mono<Integer> send(long sequence) {
+        return client
+                .request(HttpMethod.valueOf(load.method()))
+                .uri(load.path(sequence))
+                .responseSingle((response, body) -> body.asByteArray().thenReturn(response.status().code()))
+                .timeout(requestTimeout);
+    }
+
+    private void complete(long intended, boolean measured, String outcome) {
+        inFlight.decrementAndGet();
+        if (measured) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+            latency.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            count(outcome);
+        }
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * What one route saw during the measured duration. Outcomes are response status codes, exception names for
+     * requests that got no response, and {@code dropped} for requests never sent because of the in-flight cap.
+     */
+    record RouteResult(String routeId, LoadTestScenario.RouteLoad load, Duration duration, Histogram latency,
+                       Map<String, Long> outcomes) {
+
+        long completed() {
+            return latency.getTotalCount();
+        }
+
+        long succeeded() {
+            return outcomes.entrySet().stream()
+                    .filter(entry -> entry.getKey().startsWith("2") && entry.getKey().length() == 3)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+        }
+
+        double throughput() {
+            return completed() / (duration.toNanos() / 1e9);
+        }
+
+        double percentileMillis(double percentile) {
+            return latency.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.ahamo.dummy.demo2.gateway.loadtest;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.MessageToByteEncoder;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process stand-in for Redis that speaks RESP2 and implements only the commands the gateway sends: counters
+ * with expiry for the rate limiter, sorted sets and pub/sub for token revocation, and the connection handshake.
+ * Anything else is answered with an error, which shows up in the gateway's Redis failure metrics.
+ */
+final class RedisStub implements AutoCloseable {
+
+    private final EventLoopGroup group = new NioEventLoopGroup(1);
+    private final Channel channel;
+
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final Map<String, Map<String, Double>> sortedSets = new HashMap<>();
+    private final Map<String, Set<Channel>> subscribers = new ConcurrentHashMap<>();
+
+    private RedisStub(int port) throws InterruptedException {
+        channel = new ServerBootstrap()
+                .group(group)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new CommandDecoder(), new ReplyEncoder(), new CommandHandler());
+                    }
+                })
+                .bind(new InetSocketAddress("localhost", port))
+                .sync()
+                .channel();
+    }
+
+    static RedisStub start() throws InterruptedException {
+        return new RedisStub(0);
+    }
+
+    int port() {
+        return ((InetSocketAddress) channel.localAddress()).getPort();
+    }
+
+    @Override
+    public void close() {
+        channel.close().syncUninterruptibly();
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    // Every channel shares the single event loop, so the data needs no further locking
+    private Object execute(Channel client, List<String> command) {
+        String name = command.get(0).toUpperCase();
+        switch (name) {
+            case "PING":
+                return new StatusReply("PONG");
+            case "SELECT":
+            case "CLIENT":
+            case "QUIT":
+                return new StatusReply("OK");
+            case "INCR":
+            case "INCRBY": {
+                long delta = name.equals("INCR") ? 1 : Long.parseLong(command.get(2));
+                Counter counter = counters.get(command.get(1));
+                if (counter == null || counter.expired()) {
+                    counter = new Counter();
+                    counters.put(command.get(1), counter);
+                }
+                counter.value += delta;
+                return counter.value;
+            }
+            case "EXPIRE": {
+                Counter counter = counters.get(command.get(1));
+                if (counter == null || counter.expired()) {
+                    return 0L;
+                }
+                counter.expiresAt = System.currentTimeMillis() + Long.parseLong(command.get(2)) * 1000;
+                return 1L;
+            }
+            case "ZADD": {
+                Map<String, Double> set = sortedSets.computeIfAbsent(command.get(1), key -> new HashMap<>());
+                long added = 0;
+                for (int i = 2; i + 1 < command.size(); i += 2) {
+                    added += set.put(command.get(i + 1), Double.parseDouble(command.get(i))) == null ? 1 : 0;
+                }
+                return added;
+            }
+            case "ZRANGEBYSCORE": {
+                List<String> members = new ArrayList<>();
+                new TreeMap<>(sortedSets.getOrDefault(command.get(1), Map.of())).forEach((member, score) -> {
+                    if (inRange(score, command.get(2), command.get(3))) {
+                        members.add(member);
+                    }
+                });
+                return members;
+            }
+            case "ZREMRANGEBYSCORE": {
+                Map<String, Double> set = sortedSets.getOrDefault(command.get(1), new HashMap<>());
+                int before = set.size();
+                set.values().removeIf(score -> inRange(score, command.get(2), command.get(3)));
+                return (long) (before - set.size());
+            }
+            case "PUBLISH": {
+                Set<Channel> receivers = subscribers.getOrDefault(command.get(1), Set.of());
+                receivers.forEach(receiver -> receiver.writeAndFlush(List.of("message", command.get(1), command.get(2))));
+                return (long) receivers.size();
+            }
+            case "SUBSCRIBE": {
+                for (int i = 1; i < command.size(); i++) {
+                    subscribers.computeIfAbsent(command.get(i), key -> ConcurrentHashMap.newKeySet()).add(client);
+                    client.write(List.of("subscribe", command.get(i), (long) i));
+                }
+                return null;
+            }
+            default:
+                // Includes HELLO, which makes the client fall back to RESP2
+                return new ErrorReply("ERR unknown command '" + command.get(0) + "'");
+        }
+    }
+
+    private static boolean inRange(double score, String min, String max) {
+        return above(score, min) && below(score, max);
+    }
+
+    private static boolean above(double score, String min) {
+        if (min.equals("-inf")) {
+            return true;
+        }
+        return min.startsWith("(") ? score > Double.parseDouble(min.substring(1)) : score >= Double.parseDouble(min);
+    }
+
+    private static boolean below(double score, String max) {
+        if (max.equals("+inf") || max.equals("inf")) {
+            return true;
+        }
+        return max.startsWith("(") ? score < Double.parseDouble(max.substring(1)) : score <= Double.parseDouble(max);
+    }
+
+    private static void encode(Object reply, ByteBuf out) {
+        if (reply instanceof StatusReply status) {
+            out.writeCharSequence("+" + status.message() + "\r\n", StandardCharsets.UTF_8);
+        } else if (reply instanceof ErrorReply error) {
+            out.writeCharSequence("-" + error.message() + "\r\n", StandardCharsets.UTF_8);
+        } else if (reply instanceof Long number) {
+            out.writeCharSequence(":" + number + "\r\n", StandardCharsets.UTF_8);
+        } else if (reply instanceof String bulk) {
+            byte[] bytes = bulk.getBytes(StandardCharsets.UTF_8);
+            out.writeCharSequence("$" + bytes.length + "\r\n", StandardCharsets.UTF_8);
+            out.writeBytes(bytes).writeCharSequence("\r\n", StandardCharsets.UTF_8);
+        } else if (reply instanceof List<?> array) {
+            out.writeCharSequence("*" + array.size() + "\r\n", StandardCharsets.UTF_8);
+            array.forEach(element -> encode(element, out));
+        }
+    }
+
+    private record StatusReply(String message) {
+    }
+
+    private record ErrorReply(String message) {
+    }
+
+    private static final class Counter {
+
+        long value;
+        long expiresAt = Long.MAX_VALUE;
+
+        boolean expired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+
+    // Clients send every command as an array of bulk strings
+    private static final class CommandDecoder extends ByteToMessageDecoder {
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            in.markReaderIndex();
+            String header = readLine(in);
+            if (header == null) {
+                return;
+            }
+            int count = Integer.parseInt(header.substring(1));
+            List<String> command = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String length = readLine(in);
+                if (length == null || in.readableBytes() < Integer.parseInt(length.substring(1)) + 2) {
+                    in.resetReaderIndex();
+                    return;
+                }
+                command.add(in.readCharSequence(Integer.parseInt(length.substring(1)), StandardCharsets.UTF_8).toString());
+                in.skipBytes(2);
+            }
+            out.add(command);
+        }
+
+        private static String readLine(ByteBuf in) {
+            int end = in.indexOf(in.readerIndex(), in.writerIndex(), (byte) '\n');
+            if (end < 0) {
+                in.resetReaderIndex();
+                return null;
+            }
+            String line = in.readCharSequence(end - 1 - in.readerIndex(), StandardCharsets.UTF_8).toString();
+            in.skipBytes(2);
+            return line;
+        }
+    }
+
+    private static final class ReplyEncoder extends MessageToByteEncoder<Object> {
+
+        @Override
+        protected void encode(ChannelHandlerContext ctx, Object reply, ByteBuf out) {
+            RedisStub.encode(reply, out);
+        }
+    }
+
+    private final class CommandHandler extends SimpleChannelInboundHandler<List<String>> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, List<String> command) {
+            Object reply = execute(ctx.channel(), command);
+            if (reply != null) {
+                ctx.write(reply);
+            }
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            subscribers.values().forEach(channels -> channels.remove(ctx.channel()));
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.ahamo.dummy.demo2.gateway.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the fast-startup build of the gateway in a fresh JVM per run and measures, from process launch, the time
+ * to the first successfully proxied request and the time until the readiness probe passes. Each run is repeated
+ * with the plain JIT-only JVM, the AOT-processed context and the AOT-processed context with the AppCDS archive,
+ * interleaved so that noise on the machine is spread evenly across them.
+ * <p>
+ * Usage: {@code StartupBenchmark <fast-startup dir> [report] [runs]}. The gateway runs against a stub upstream, a
+ * stub JWKS endpoint and the Redis stand-in, so readiness measures the deferred JWKS and revocation loads too.
+ */
+public final class StartupBenchmark {
+
+    private static final String PROXIED_PATH = "/api/v1/auth/session";
+    private static final String READINESS_PATH = "/actuator/health/readiness";
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+
+    private static final Map<String, List<String>> VARIANTS = variants();
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path layout = Path.of(args[0]).toAbsolutePath();
+        Path reportFile = Path.of(args.length > 1 ? args[1] : "build/reports/startup/report.json");
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        Path logs = reportFile.toAbsolutePath().getParent();
+        Files.createDirectories(logs);
+
+        LoopResources loops = LoopResources.create("startup-stub", 1, true);
+        StubUpstream upstream = StubUpstream.start("auth-service", new StubUpstream.Behavior(
+                Duration.ZERO, Duration.ZERO, 0, 0, 503, 256), loops);
+        DisposableServer jwks = jwksServer(loops);
+        RedisStub redis = RedisStub.start();
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        Map<String, List<Sample>> samples = new LinkedHashMap<>();
+        try {
+            for (int run = 1; run <= runs; run++) {
+                for (Map.Entry<String, List<String>> variant : VARIANTS.entrySet()) {
+                    Sample sample = measure(layout, variant.getValue(), List.of(
+                            "--spring.data.redis.port=" + redis.port(),
+                            "--gateway.route-table.routes.auth-service.uri=http://localhost:" + upstream.port(),
+                            "--jwt.jwks.uri=http://localhost:" + jwks.port() + "/jwks.json"),
+                            client, logs.resolve("startup-" + variant.getKey() + "-" + run + ".log"));
+                    samples.computeIfAbsent(variant.getKey(), key -> new ArrayList<>()).add(sample);
+                    System.out.printf("run %d %-8s first response %6d ms, ready %6d ms%n",
+                            run, variant.getKey(), sample.firstResponseMillis(), sample.readyMillis());
+                }
+            }
+        } finally {
+            redis.close();
+            jwks.disposeNow();
+            upstream.close();
+            loops.disposeLater().block(Duration.ofSeconds(5));
+        }
+
+        write(reportFile, runs, samples);
+        System.out.printf("%-8s %22s %15s%n", "variant", "first response p50 ms", "ready p50 ms");
+        samples.forEach((variant, runSamples) -> System.out.printf("%-8s %22d %15d%n", variant,
+                median(runSamples.stream().map(Sample::firstResponseMillis).toList()),
+                median(runSamples.stream().map(Sample::readyMillis).toList())));
+        System.out.println("Report written to " + reportFile.toAbsolutePath());
+    }
+
+    private static Sample measure(Path layout, List<String> jvmArgs, List<String> gatewayArgs, HttpClient client,
+                                  Path log) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-jar", "gateway.jar", "--server.port=" + port));
+        command.addAll(gatewayArgs);
+
+        long start = System.nanoTime();
+        Process gateway = new ProcessBuilder(command)
+                .directory(layout.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        try {
+            long firstResponse = awaitOk(client, gateway, port, PROXIED_PATH, start);
+            long ready = awaitOk(client, gateway, port, READINESS_PATH, start);
+            return new Sample(firstResponse, ready);
+        } finally {
+            gateway.destroy();
+            if (!gateway.waitFor(30, TimeUnit.SECONDS)) {
+                gateway.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    // Polls until the path answers 200 and returns the milliseconds since launch
+    private static long awaitOk(HttpClient client, Process gateway, int port, String path, long start)
+            throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        while (System.nanoTime() - start < START_TIMEOUT.toNanos()) {
+            if (!gateway.isAlive()) {
+                throw new IllegalStateException("Gateway exited with status " + gateway.exitValue()
+                        + " before " + path + " answered");
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+            } catch (IOException notListeningYet) {
+                // Connection refused until the server has started
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException(path + " did not answer 200 within " + START_TIMEOUT);
+    }
+
+    private static Map<String, List<String>> variants() {
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("jit", List.of());
+        variants.put("aot", List.of("-Dspring.aot.enabled=true"));
+        variants.put("aot+cds", List.of("-XX:SharedArchiveFile=gateway.jsa", "-Dspring.aot.enabled=true"));
+        return variants;
+    }
+
+    private static DisposableServer jwksServer(LoopResources loops) throws JOSEException {
+        String document = new JWKSet(new RSAKeyGenerator(2048).keyID("startup-benchmark").generate().toPublicJWK())
+                .toString();
+        return HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .runOn(loops)
+                .route(routes -> routes.get("/jwks.json", (request, response) -> response.sendString(Mono.just(document))))
+                .bindNow();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = values.stream().sorted().toList();
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static void write(Path file, int runs, Map<String, List<Sample>> samples) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        Map<String, Object> environment = new LinkedHashMap<>();
+        environment.put("java", System.getProperty("java.version"));
+        environment.put("processors", Runtime.getRuntime().availableProcessors());
+        report.put("environment", environment);
+        report.put("runs", runs);
+
+        Map<String, Object> variants = new LinkedHashMap<>();
+        samples.forEach((variant, runSamples) -> {
+            List<Long> firstResponse = runSamples.stream().map(Sample::firstResponseMillis).toList();
+            List<Long> ready = runSamples.stream().map(Sample::readyMillis).toList();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("jvmArgs", VARIANTS.get(variant));
+            result.put("firstResponseMs", summary(firstResponse));
+            result.put("readyMs", summary(ready));
+            variants.put(variant, result);
+        });
+        report.put("variants", variants);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+    }
+
+    private static Map<String, Object> summary(List<Long> values) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("p50", median(values));
+        summary.put("min", values.stream().mapToLong(Long::longValue).min().orElse(0));
+        summary.put("max", values.stream().mapToLong(Long::longValue).max().orElse(0));
+        summary.put("samples", values);
+        return summary;
+    }
+
+    private record Sample(long firstResponseMillis, long readyMillis) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.ahamo.dummy.demo2.gateway.loadtest;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP upstream standing in for a backend service. Every request is answered after the configured latency, a
+ * share of them after the slow latency instead, and a share fails with the error status.
+ */
+final class StubUpstream implements AutoCloseable {
+
+    private final DisposableServer server;
+    private final LongAdder requests = new LongAdder();
+
+    private StubUpstream(String name, Behavior behavior, LoopResources loops) {
+        byte[] body = body(name, behavior.bodyBytes());
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .runOn(loops)
+                .handle((request, response) -> {
+                    requests.increment();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    Duration delay = random.nextDouble() < behavior.slowRate() ? behavior.slowLatency() : behavior.latency();
+                    boolean fail = random.nextDouble() < behavior.errorRate();
+                    Mono<Void> reply = request.receive().then(Mono.defer(() -> fail
+                            ? response.status(behavior.errorStatus()).send()
+                            : response.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                    .sendByteArray(Mono.just(body))
+                                    .then()));
+                    return delay.isZero() ? reply : Mono.delay(delay).then(reply);
+                })
+                .bindNow();
+    }
+
+    static StubUpstream start(String name, Behavior behavior, LoopResources loops) {
+        return new StubUpstream(name, behavior, loops);
+    }
+
+    int port() {
+        return server.port();
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    private static byte[] body(String name, int size) {
+        String prefix = "{\"upstream\":\"" + name + "\",\"padding\":\"";
+        return (prefix + "x".repeat(Math.max(0, size - prefix.length() - 2)) + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Latency and failures injected by one stub, bound from {@code loadtest.upstreams.<route-id>}.
+     */
+    record Behavior(@DefaultValue("5ms") Duration latency,
+                    @DefaultValue("0ms") Duration slowLatency,
+                    @DefaultValue("0") double slowRate,
+                    @DefaultValue("0") double errorRate,
+                    @DefaultValue("503") int errorStatus,
+                    @DefaultValue("256") int bodyBytes) {
+    }
+}
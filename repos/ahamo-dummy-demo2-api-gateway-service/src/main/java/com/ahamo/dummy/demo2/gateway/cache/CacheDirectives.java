@@ -0,0 +1,96 @@
+package com.ahamo.dummy.demo2.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+public record CacheDirectives(boolean noStore,
+                              boolean noCache,
+                              boolean isPrivate,
+                              boolean isPublic,
+                              boolean mustRevalidate,
+                              long maxAgeSeconds,
+                              long sharedMaxAgeSeconds,
+                              long staleWhileRevalidateSeconds) {
+
+    private static final CacheDirectives NONE = new CacheDirectives(false, false, false, false, false, -1, -1, -1);
+
+    public static CacheDirectives parse(String cacheControl) {
+        if (cacheControl == null || cacheControl.isBlank()) {
+            return NONE;
+        }
+        boolean noStore = false;
+        boolean noCache = false;
+        boolean isPrivate = false;
+        boolean isPublic = false;
+        boolean mustRevalidate = false;
+        long maxAge = -1;
+        long sharedMaxAge = -1;
+        long staleWhileRevalidate = -1;
+
+        for (String directive : cacheControl.split(",")) {
+            String token = directive.trim().toLowerCase();
+            int equals = token.indexOf('=');
+            String name = equals < 0 ? token : token.substring(0, equals).trim();
+            String value = equals < 0 ? null : token.substring(equals + 1).trim();
+            switch (name) {
+                case "no-store" -> noStore = true;
+                case "no-cache" -> noCache = true;
+                case "private" -> isPrivate = true;
+                case "public" -> isPublic = true;
+                case "must-revalidate" -> mustRevalidate = true;
+                case "max-age" -> maxAge = seconds(value);
+                case "s-maxage" -> sharedMaxAge = seconds(value);
+                case "stale-while-revalidate" -> staleWhileRevalidate = seconds(value);
+                default -> {
+                }
+            }
+        }
+        return new CacheDirectives(noStore, noCache, isPrivate, isPublic, mustRevalidate, maxAge, sharedMaxAge, staleWhileRevalidate);
+    }
+
+    public boolean isStorable() {
+        return !noStore && !isPrivate;
+    }
+
+    // RFC 9111 section 3.5: a shared cache may reuse a response to an authorized request only when it says so
+    public boolean allowsSharingAuthorized() {
+        return isPublic || mustRevalidate || sharedMaxAgeSeconds >= 0;
+    }
+
+    public Duration freshness(HttpHeaders responseHeaders, Duration defaultTtl) {
+        if (noCache) {
+            return Duration.ZERO;
+        }
+        if (sharedMaxAgeSeconds >= 0) {
+            return Duration.ofSeconds(sharedMaxAgeSeconds);
+        }
+        if (maxAgeSeconds >= 0) {
+            return Duration.ofSeconds(maxAgeSeconds);
+        }
+        ZonedDateTime expires = responseHeaders.getFirstZonedDateTime(HttpHeaders.EXPIRES);
+        if (expires != null) {
+            Duration remaining = Duration.between(ZonedDateTime.now(), expires);
+            return remaining.isNegative() ? Duration.ZERO : remaining;
+        }
+        return defaultTtl;
+    }
+
+    public Duration staleWhileRevalidate(Duration defaultStaleWhileRevalidate) {
+        return staleWhileRevalidateSeconds >= 0
+                ? Duration.ofSeconds(staleWhileRevalidateSeconds)
+                : defaultStaleWhileRevalidate;
+    }
+
+    private static long seconds(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.ahamo.dummy.demo2.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class CachedResponse {
+
+    // Representation headers: the only ones replayed to other requests, by the cache and by coalescing
+    public static final List<String> STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.ETAG,
+            HttpHeaders.LAST_MODIFIED,
+            HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.EXPIRES,
+            HttpHeaders.VARY);
+
+    private final int status;
+    private final HttpHeaders headers;
+    private final ByteBuffer body;
+    private final List<String> varyHeaders;
+    private final List<String> varyValues;
+    private final long storedAtMillis;
+    private final long freshUntilNanos;
+    private final long staleUntilNanos;
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    private CachedResponse(int status, HttpHeaders headers, ByteBuffer body,
+                           List<String> varyHeaders, List<String> varyValues,
+                           long storedAtMillis, long freshUntilNanos, long staleUntilNanos) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.varyHeaders = varyHeaders;
+        this.varyValues = varyValues;
+        this.storedAtMillis = storedAtMillis;
+        this.freshUntilNanos = freshUntilNanos;
+        this.staleUntilNanos = staleUntilNanos;
+    }
+
+    public static CachedResponse of(int status, HttpHeaders responseHeaders, HttpHeaders requestHeaders,
+                                    byte[] body, int length, long freshNanos, long staleNanos) {
+        HttpHeaders stored = new HttpHeaders();
+        for (String name : STORED_HEADERS) {
+            List<String> values = responseHeaders.get(name);
+            if (values != null) {
+                stored.put(name, List.copyOf(values));
+            }
+        }
+        List<String> varyHeaders = responseHeaders.getVary();
+        List<String> varyValues = varyHeaders.stream()
+                .map(name -> String.join(",", requestHeaders.getOrEmpty(name)))
+                .toList();
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(length);
+        direct.put(body, 0, length).flip();
+
+        long now = System.nanoTime();
+        return new CachedResponse(status, HttpHeaders.readOnlyHttpHeaders(stored), direct.asReadOnlyBuffer(),
+                varyHeaders, varyValues, System.currentTimeMillis(), now + freshNanos, now + freshNanos + staleNanos);
+    }
+
+    public CachedResponse refreshed(long freshNanos, long staleNanos) {
+        long now = System.nanoTime();
+        return new CachedResponse(status, headers, body, varyHeaders, varyValues,
+                System.currentTimeMillis(), now + freshNanos, now + freshNanos + staleNanos);
+    }
+
+    public boolean matches(HttpHeaders requestHeaders) {
+        for (int i = 0; i < varyHeaders.size(); i++) {
+            String name = varyHeaders.get(i);
+            if ("*".equals(name) || !Objects.equals(varyValues.get(i), String.join(",", requestHeaders.getOrEmpty(name)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isFresh(long nowNanos) {
+        return nowNanos - freshUntilNanos < 0;
+    }
+
+    public boolean isServableWhileRevalidating(long nowNanos) {
+        return nowNanos - staleUntilNanos < 0;
+    }
+
+    public boolean startRevalidation() {
+        return revalidating.compareAndSet(false, true);
+    }
+
+    public void endRevalidation() {
+        revalidating.set(false);
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    public String etag() {
+        return headers.getETag();
+    }
+
+    public ByteBuffer body() {
+        return body.duplicate();
+    }
+
+    public int size() {
+        return body.capacity();
+    }
+
+    public long ageSeconds() {
+        return Math.max(0, (System.currentTimeMillis() - storedAtMillis) / 1000);
+    }
+}
@@ -0,0 +1,189 @@
+package com.ahamo.dummy.demo2.gateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class ResponseCache {
+
+    private static final int SEGMENTS = 16;
+
+    public enum Outcome {
+        HIT, STALE, MISS, BYPASS, NOT_MODIFIED
+    }
+
+    public enum Revalidation {
+        NOT_MODIFIED, UPDATED, FAILED
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long maxBytes;
+    private final int maxEntryBytes;
+
+    private final Map<Outcome, Counter> requests = new EnumMap<>(Outcome.class);
+    private final Map<Revalidation, Counter> revalidations = new EnumMap<>(Revalidation.class);
+    private final Counter evictions;
+
+    public ResponseCache(@Value("${gateway.response-cache.max-bytes:64MB}") DataSize maxBytes,
+                         @Value("${gateway.response-cache.max-entry-bytes:1MB}") DataSize maxEntryBytes,
+                         MeterRegistry meterRegistry) {
+        this.maxBytes = maxBytes.toBytes();
+        this.maxEntryBytes = (int) Math.min(Integer.MAX_VALUE, Math.min(maxEntryBytes.toBytes(), this.maxBytes / SEGMENTS));
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(this.maxBytes / SEGMENTS);
+        }
+
+        for (Outcome outcome : Outcome.values()) {
+            requests.put(outcome, Counter.builder("gateway.response.cache.requests")
+                    .tag("result", outcome.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        for (Revalidation result : Revalidation.values()) {
+            revalidations.put(result, Counter.builder("gateway.response.cache.revalidations")
+                    .tag("result", result.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.evictions = Counter.builder("gateway.response.cache.evictions")
+                .register(meterRegistry);
+        Gauge.builder("gateway.response.cache.size", this, ResponseCache::size)
+                .register(meterRegistry);
+        Gauge.builder("gateway.response.cache.bytes", this, ResponseCache::bytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public CachedResponse get(String key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public boolean put(String key, CachedResponse response) {
+        if (response.size() > maxEntryBytes) {
+            return false;
+        }
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            CachedResponse previous = segment.put(key, response);
+            if (previous != null) {
+                segment.bytes -= previous.size();
+            }
+            segment.bytes += response.size();
+            segment.evictToBudget();
+        }
+        return true;
+    }
+
+    public boolean invalidate(String key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            CachedResponse removed = segment.remove(key);
+            if (removed != null) {
+                segment.bytes -= removed.size();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public int invalidatePrefix(String pathPrefix) {
+        int removed = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Iterator<Map.Entry<String, CachedResponse>> entries = segment.entrySet().iterator();
+                while (entries.hasNext()) {
+                    Map.Entry<String, CachedResponse> entry = entries.next();
+                    if (entry.getKey().startsWith(pathPrefix)) {
+                        segment.bytes -= entry.getValue().size();
+                        entries.remove();
+                        removed++;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    public int invalidateAll() {
+        int removed = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                removed += segment.size();
+                segment.clear();
+                segment.bytes = 0;
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public int maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    public void record(Outcome outcome) {
+        requests.get(outcome).increment();
+    }
+
+    public void record(Revalidation result) {
+        revalidations.get(result).increment();
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private final class Segment extends LinkedHashMap<String, CachedResponse> {
+
+        private final long capacityBytes;
+        private long bytes;
+
+        private Segment(long capacityBytes) {
+            super(16, 0.75f, true);
+            this.capacityBytes = capacityBytes;
+        }
+
+        private void evictToBudget() {
+            Iterator<CachedResponse> eldest = values().iterator();
+            while (bytes > capacityBytes && eldest.hasNext()) {
+                bytes -= eldest.next().size();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+}
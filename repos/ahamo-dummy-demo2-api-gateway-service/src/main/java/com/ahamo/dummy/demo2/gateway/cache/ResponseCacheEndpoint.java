@@ -0,0 +1,40 @@
+package com.ahamo.dummy.demo2.gateway.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheEndpoint(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return Map.of(
+                "entries", responseCache.size(),
+                "bytes", responseCache.bytes(),
+                "maxBytes", responseCache.maxBytes(),
+                "maxEntryBytes", responseCache.maxEntryBytes());
+    }
+
+    @DeleteOperation
+    public Map<String, Object> invalidateAll() {
+        return Map.of("invalidated", responseCache.invalidateAll());
+    }
+
+    @DeleteOperation
+    public Map<String, Object> invalidate(@Selector(match = Selector.Match.ALL_REMAINING) String[] path) {
+        String prefix = "/" + String.join("/", path);
+        return Map.of("prefix", prefix, "invalidated", responseCache.invalidatePrefix(prefix));
+    }
+}
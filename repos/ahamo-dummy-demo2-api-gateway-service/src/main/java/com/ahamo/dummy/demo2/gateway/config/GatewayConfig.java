@@ -1,62 +1,222 @@
 package com.ahamo.dummy.demo2.gateway.config;
 
 import com.ahamo.dummy.demo2.gateway.filter.AuthenticationFilter;
+import com.ahamo.dummy.demo2.gateway.filter.HedgingFilter;
+import com.ahamo.dummy.demo2.gateway.filter.IdentityPropagationFilter;
 import com.ahamo.dummy.demo2.gateway.filter.LoggingFilter;
+import com.ahamo.dummy.demo2.gateway.filter.RequestCoalescingFilter;
+import com.ahamo.dummy.demo2.gateway.filter.RequestLimitsFilter;
+import com.ahamo.dummy.demo2.gateway.filter.ResilienceFilter;
+import com.ahamo.dummy.demo2.gateway.loadbalancer.UpstreamPoolProperties;
+import com.ahamo.dummy.demo2.gateway.ratelimit.ConcurrencyLimitProperties;
+import com.ahamo.dummy.demo2.gateway.filter.ResponseCacheFilter;
+import com.ahamo.dummy.demo2.gateway.ratelimit.HybridRateLimiter;
+import com.ahamo.dummy.demo2.gateway.ratelimit.HybridRateLimiterProperties;
+import com.ahamo.dummy.demo2.gateway.ratelimit.MeteredRateLimiter;
+import com.ahamo.dummy.demo2.gateway.route.RouteTable;
+import com.ahamo.dummy.demo2.gateway.route.RouteTableHandlerMapping;
+import com.ahamo.dummy.demo2.gateway.route.RouteTableProperties;
+import com.ahamo.dummy.demo2.gateway.server.ServerProtectionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
 import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.GatewayFilterSpec;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
+import org.springframework.cloud.gateway.support.ConfigurationService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
 
 @Configuration
+@EnableConfigurationProperties({HybridRateLimiterProperties.class, ConcurrencyLimitProperties.class, UpstreamPoolProperties.class,
+        RouteTableProperties.class, ServerProtectionProperties.class})
 public class GatewayConfig {
 
+    private static final KeyResolver REMOTE_ADDRESS = exchange -> Mono.just(
+            exchange.getRequest().getRemoteAddress() != null
+                    ? exchange.getRequest().getRemoteAddress().getAddress().getHostAddress()
+                    : "unknown");
+
     private final AuthenticationFilter authenticationFilter;
+    private final IdentityPropagationFilter identityPropagationFilter;
     private final LoggingFilter loggingFilter;
+    private final ResponseCacheFilter responseCacheFilter;
+    private final RequestCoalescingFilter requestCoalescingFilter;
+    private final ResilienceFilter resilienceFilter;
+    private final HedgingFilter hedgingFilter;
+    private final RequestLimitsFilter requestLimitsFilter;
 
-    public GatewayConfig(AuthenticationFilter authenticationFilter, LoggingFilter loggingFilter) {
+    public GatewayConfig(AuthenticationFilter authenticationFilter,
+                         IdentityPropagationFilter identityPropagationFilter,
+                         LoggingFilter loggingFilter,
+                         ResponseCacheFilter responseCacheFilter,
+                         RequestCoalescingFilter requestCoalescingFilter,
+                         ResilienceFilter resilienceFilter,
+                         HedgingFilter hedgingFilter,
+                         RequestLimitsFilter requestLimitsFilter) {
         this.authenticationFilter = authenticationFilter;
+        this.identityPropagationFilter = identityPropagationFilter;
         this.loggingFilter = loggingFilter;
+        this.responseCacheFilter = responseCacheFilter;
+        this.requestCoalescingFilter = requestCoalescingFilter;
+        this.resilienceFilter = resilienceFilter;
+        this.hedgingFilter = hedgingFilter;
+        this.requestLimitsFilter = requestLimitsFilter;
     }
 
     @Bean
-    public RouteLocator gatewayRoutes(RouteLocatorBuilder builder) {
-        return builder.routes()
-                .route("auth-service", r -> r
-                        .path("/api/v1/auth/**")
-                        .filters(f -> f
-                                .filter(loggingFilter.apply(new LoggingFilter.Config()))
-                                .requestRateLimiter(config -> config
-                                        .setRateLimiter(redisRateLimiter())
-                                        .setKeyResolver(exchange -> 
-                                            exchange.getRequest().getRemoteAddress() != null ?
-                                                reactor.core.publisher.Mono.just(
-                                                    exchange.getRequest().getRemoteAddress().getAddress().getHostAddress()
-                                                ) : reactor.core.publisher.Mono.just("unknown")
-                                        )
-                                )
-                        )
-                        .uri("http://localhost:8080")
-                )
-                .route("product-service", r -> r
-                        .path("/api/v1/smartphones/**")
-                        .filters(f -> f
-                                .filter(loggingFilter.apply(new LoggingFilter.Config()))
-                        )
-                        .uri("http://product-service:8080")
-                )
-                .route("protected-services", r -> r
-                        .path("/api/v1/users/**", "/api/v1/orders/**")
-                        .filters(f -> f
-                                .filter(authenticationFilter.apply(new AuthenticationFilter.Config()))
-                                .filter(loggingFilter.apply(new LoggingFilter.Config()))
-                        )
-                        .uri("http://localhost:8082")
-                )
-                .build();
+    public RouteTable gatewayRoutes(RouteLocatorBuilder builder,
+                                    RouteTableProperties routeTableProperties,
+                                    ServerProtectionProperties serverProtectionProperties,
+                                    HybridRateLimiter hybridRateLimiter,
+                                    RequestRateLimiterGatewayFilterFactory rateLimiterFactory,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${rate-limit.limiter:hybrid}") String limiter,
+                                    @Value("${gateway.coalescing.product-service:false}") boolean coalesceProductRequests) {
+        boolean redis = "redis".equals(limiter);
+        RateLimiter<?> rateLimiter = redis
+                ? new MeteredRateLimiter<>("redis", redisRateLimiter(), meterRegistry, 1)
+                : hybridRateLimiter;
+
+        // Listed in the order they run: logging and the admission checks are ordered ahead of the cache and
+        // coalescing, which answer without calling the rest of the chain; the remaining filters run in position
+        Map<String, FilterChain> chains = Map.of(
+                "auth", (f, spec) -> {
+                    f.filter(loggingFilter.apply(new LoggingFilter.Config()));
+                    f.filter(requestLimitsFilter.apply(requestLimits(spec, serverProtectionProperties)));
+                    rateLimit(f, spec, rateLimiterFactory, rateLimiter);
+                    f.filter(resilienceFilter.apply(resilience(spec)));
+                },
+                "catalog", (f, spec) -> {
+                    f.filter(loggingFilter.apply(new LoggingFilter.Config()));
+                    f.filter(requestLimitsFilter.apply(requestLimits(spec, serverProtectionProperties)));
+                    rateLimit(f, spec, rateLimiterFactory, rateLimiter);
+                    f.filter(responseCacheFilter.apply(new ResponseCacheFilter.Config()
+                            .setDefaultTtl(spec.getCache().getDefaultTtl())
+                            .setStaleWhileRevalidate(spec.getCache().getStaleWhileRevalidate())));
+                    f.filter(requestCoalescingFilter.apply(new RequestCoalescingFilter.Config()
+                            .setEnabled(coalesceProductRequests)));
+                    f.filter(identityPropagationFilter.apply(new IdentityPropagationFilter.Config()));
+                    f.filter(hedgingFilter.apply(new HedgingFilter.Config()));
+                    f.filter(resilienceFilter.apply(resilience(spec)));
+                },
+                "protected", (f, spec) -> {
+                    f.filter(loggingFilter.apply(new LoggingFilter.Config()));
+                    f.filter(requestLimitsFilter.apply(requestLimits(spec, serverProtectionProperties)));
+                    rateLimit(f, spec, rateLimiterFactory, rateLimiter);
+                    f.filter(authenticationFilter.apply(new AuthenticationFilter.Config()));
+                    f.filter(identityPropagationFilter.apply(new IdentityPropagationFilter.Config()));
+                    f.filter(resilienceFilter.apply(resilience(spec)));
+                });
+
+        // Builds fresh filter instances per route, so a reload re-applies every policy in the table
+        RouteTable.RouteFactory routeFactory = (id, spec) -> {
+            FilterChain chain = spec.getChain() != null ? chains.get(spec.getChain()) : null;
+            if (chain == null) {
+                throw new IllegalStateException("Route " + id + " uses unknown filter chain " + spec.getChain());
+            }
+            return builder.routes()
+                    .route(id, r -> r
+                            .path(spec.getPaths().toArray(String[]::new))
+                            .filters(f -> {
+                                chain.apply(f, spec);
+                                return f;
+                            })
+                            .uri(spec.getUri()))
+                    .build()
+                    .getRoutes()
+                    .blockFirst();
+        };
+        return new RouteTable(routeTableProperties, routeFactory,
+                table -> configureRateLimits(table, redis, hybridRateLimiter));
     }
 
     @Bean
-    public org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter redisRateLimiter() {
-        return new org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter(10, 20, 1);
+    public RouteTableHandlerMapping routeTableHandlerMapping(FilteringWebHandler webHandler,
+                                                             RouteLocator routeLocator,
+                                                             RouteTable gatewayRoutes,
+                                                             GlobalCorsProperties globalCorsProperties,
+                                                             Environment environment) {
+        return new RouteTableHandlerMapping(webHandler, routeLocator, gatewayRoutes, globalCorsProperties, environment);
+    }
+
+    // Shares the request limits' order and is added after them, so it runs right behind them
+    private static void rateLimit(GatewayFilterSpec f, RouteTableProperties.RouteSpec spec,
+                                  RequestRateLimiterGatewayFilterFactory rateLimiterFactory,
+                                  RateLimiter<?> rateLimiter) {
+        if (spec.getRateLimit() != null) {
+            f.filter(rateLimiterFactory.apply(config -> config
+                    .setRateLimiter(rateLimiter)
+                    .setKeyResolver(REMOTE_ADDRESS)), RequestLimitsFilter.ORDER);
+        }
+    }
+
+    private static RequestLimitsFilter.Config requestLimits(RouteTableProperties.RouteSpec spec,
+                                                            ServerProtectionProperties defaults) {
+        return new RequestLimitsFilter.Config()
+                .setMaxBodySize(spec.getMaxBodySize() != null ? spec.getMaxBodySize() : defaults.getMaxBodySize())
+                .setMaxHeaderSize(spec.getMaxHeaderSize());
+    }
+
+    private static ResilienceFilter.Config resilience(RouteTableProperties.RouteSpec spec) {
+        return new ResilienceFilter.Config().setTimeout(spec.getTimeout());
+    }
+
+    // Limiters look their config up by route ID on every request; existing entries are replaced, never mutated
+    private void configureRateLimits(RouteTableProperties table, boolean redis, HybridRateLimiter hybridRateLimiter) {
+        table.getRoutes().forEach((routeId, spec) -> {
+            RouteTableProperties.RateLimit limit = spec.getRateLimit();
+            if (limit == null) {
+                return;
+            }
+            if (redis) {
+                redisRateLimiter().getConfig().put(routeId, new RedisRateLimiter.Config()
+                        .setReplenishRate(limit.getReplenishRate())
+                        .setBurstCapacity(limit.getBurstCapacity())
+                        .setRequestedTokens(limit.getRequestedTokens()));
+            } else {
+                hybridRateLimiter.getConfig().put(routeId, new HybridRateLimiter.Config()
+                        .setReplenishRate(limit.getReplenishRate())
+                        .setBurstCapacity(limit.getBurstCapacity())
+                        .setRequestedTokens(limit.getRequestedTokens()));
+            }
+        });
+    }
+
+    @Bean
+    public RedisRateLimiter redisRateLimiter() {
+        return new RedisRateLimiter(10, 20, 1);
+    }
+
+    @Bean
+    @Primary
+    public HybridRateLimiter hybridRateLimiter(ReactiveStringRedisTemplate redisTemplate,
+                                               ConfigurationService configurationService,
+                                               HybridRateLimiterProperties properties,
+                                               MeterRegistry meterRegistry) {
+        return new HybridRateLimiter(redisTemplate, configurationService, properties, meterRegistry,
+                new HybridRateLimiter.Config()
+                        .setReplenishRate(10)
+                        .setBurstCapacity(20)
+                        .setRequestedTokens(1));
+    }
+
+    // Filters a route gets, keyed by the chain name its route-table entry refers to
+    @FunctionalInterface
+    private interface FilterChain {
+
+        void apply(GatewayFilterSpec filters, RouteTableProperties.RouteSpec spec);
     }
 }
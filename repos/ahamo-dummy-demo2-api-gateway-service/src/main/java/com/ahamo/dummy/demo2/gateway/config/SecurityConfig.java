@@ -1,10 +1,23 @@
 package com.ahamo.dummy.demo2.gateway.config;
 
+import com.ahamo.dummy.demo2.gateway.security.CachedCorsWebFilter;
+import com.ahamo.dummy.demo2.gateway.security.JwtTokenVerifier;
+import com.ahamo.dummy.demo2.gateway.security.JwtVerificationWebFilter;
+import com.ahamo.dummy.demo2.gateway.security.PublicPathHeadersWebFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.savedrequest.NoOpServerRequestCache;
+import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsConfigurationSource;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
@@ -16,23 +29,51 @@ import java.util.List;
 @EnableWebFluxSecurity
 public class SecurityConfig {
 
+    // Served without an authentication, so they bypass the security chain; PublicPathHeadersWebFilter keeps its headers
+    private static final String[] PUBLIC_PATHS = {"/api/v1/auth/**", "/actuator/health/**", "/actuator/info"};
+
+    private final JwtTokenVerifier jwtTokenVerifier;
+
+    public SecurityConfig(JwtTokenVerifier jwtTokenVerifier) {
+        this.jwtTokenVerifier = jwtTokenVerifier;
+    }
+
     @Bean
     public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
         return http
+                .securityMatcher(new NegatedServerWebExchangeMatcher(ServerWebExchangeMatchers.pathMatchers(PUBLIC_PATHS)))
                 .csrf(csrf -> csrf.disable())
-                .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+                // Applied before security by CachedCorsWebFilter
+                .cors(cors -> cors.disable())
+                .httpBasic(httpBasic -> httpBasic.disable())
+                .formLogin(formLogin -> formLogin.disable())
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                // The default cache keeps the request in a web session, created on a blocking-capable thread
+                .requestCache(requestCache -> requestCache.requestCache(NoOpServerRequestCache.getInstance()))
                 .authorizeExchange(exchanges -> exchanges
-                        .pathMatchers("/api/v1/auth/**").permitAll()
-                        .pathMatchers("/actuator/health").permitAll()
-                        .pathMatchers("/actuator/info").permitAll()
+                        .pathMatchers("/actuator/responsecache/**").hasRole("ADMIN")
+                        .pathMatchers("/actuator/tokenrevocations/**").hasRole("ADMIN")
+                        .pathMatchers("/actuator/routetable/**").hasRole("ADMIN")
                         .anyExchange().authenticated()
                 )
-                .oauth2ResourceServer(oauth2 -> oauth2
-                        .jwt(jwt -> jwt.jwkSetUri("http://localhost:8081/api/v1/auth/.well-known/jwks.json"))
+                .addFilterAt(new JwtVerificationWebFilter(jwtTokenVerifier), SecurityWebFiltersOrder.AUTHENTICATION)
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED))
                 )
                 .build();
     }
 
+    @Bean
+    public PublicPathHeadersWebFilter publicPathHeadersWebFilter() {
+        return new PublicPathHeadersWebFilter(PUBLIC_PATHS);
+    }
+
+    @Bean
+    public CachedCorsWebFilter cachedCorsWebFilter(@Value("${gateway.cors.max-cached-decisions:10000}") int maxEntries,
+                                                   MeterRegistry meterRegistry) {
+        return new CachedCorsWebFilter(corsConfigurationSource(), maxEntries, meterRegistry);
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -0,0 +1,60 @@
+package com.ahamo.dummy.demo2.gateway.config;
+
+import com.ahamo.dummy.demo2.gateway.server.ConnectionLimiter;
+import com.ahamo.dummy.demo2.gateway.server.ServerProtectionProperties;
+import com.ahamo.dummy.demo2.gateway.server.SlowClientHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelPipeline;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Protects the server's connections from slow and greedy clients: a cap on connections per client address, header
+ * and body read timeouts and a write timeout. Request header size is capped by the HTTP decoder
+ * ({@code server.max-http-request-header-size}) and idle kept-alive connections are closed after
+ * {@code server.netty.idle-timeout}; body and per-route header limits are applied by RequestLimitsFilter.
+ */
+@Configuration
+public class ServerProtectionConfig {
+
+    @Bean
+    public NettyServerCustomizer serverProtectionCustomizer(ServerProtectionProperties properties,
+                                                            MeterRegistry meterRegistry) {
+        ConnectionLimiter connectionLimiter = properties.getMaxConnectionsPerClient() > 0
+                ? new ConnectionLimiter(properties.getMaxConnectionsPerClient(), meterRegistry)
+                : null;
+        long headerTimeoutNanos = properties.getHeaderTimeout().toNanos();
+        long bodyReadTimeoutNanos = properties.getBodyReadTimeout().toNanos();
+        long writeTimeoutNanos = properties.getWriteTimeout().toNanos();
+        Counter headerTimeouts = timeouts(meterRegistry, "header");
+        Counter bodyReadTimeouts = timeouts(meterRegistry, "body_read");
+        Counter writeTimeouts = timeouts(meterRegistry, "write");
+
+        return httpServer -> httpServer.doOnChannelInit((observer, channel, remoteAddress) -> {
+            ChannelPipeline pipeline = channel.pipeline();
+            // HTTP/1.1 only; an HTTP/2 pipeline has no HTTP/1.1 codec to place the handlers around
+            if (pipeline.get(NettyPipeline.HttpCodec) != null) {
+                SlowClientHandler slowClient = new SlowClientHandler(headerTimeoutNanos, bodyReadTimeoutNanos,
+                        headerTimeouts, bodyReadTimeouts);
+                pipeline.addBefore(NettyPipeline.HttpCodec, SlowClientHandler.BYTES_NAME, slowClient.bytesHandler());
+                pipeline.addAfter(NettyPipeline.HttpCodec, SlowClientHandler.NAME, slowClient);
+            }
+            pipeline.addFirst(SlowClientHandler.WRITE_TIMEOUT_NAME,
+                    new SlowClientHandler.WriteTimeout(writeTimeoutNanos, writeTimeouts));
+            // First, so a rejected connection is closed before any other handler sees it
+            if (connectionLimiter != null) {
+                pipeline.addFirst(ConnectionLimiter.NAME, connectionLimiter);
+            }
+        });
+    }
+
+    private static Counter timeouts(MeterRegistry meterRegistry, String phase) {
+        return Counter.builder("gateway.server.timeouts")
+                .description("Connections closed because the client was too slow")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,154 @@
+package com.ahamo.dummy.demo2.gateway.exception;
+
+import com.ahamo.dummy.demo2.gateway.tracing.RequestIds;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ErrorResponseWriter {
+
+    private static final int MAX_CACHED_TEMPLATES = 256;
+    private static final int DYNAMIC_FIELDS_ESTIMATE = 128;
+
+    private static final byte[] TIMESTAMP_FIELD = "\"timestamp\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PATH_FIELD = "\",\"path\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REQUEST_ID_FIELD = "\",\"requestId\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<TemplateKey, byte[]> templates = new ConcurrentHashMap<>();
+    private final ZoneId zone = ZoneId.systemDefault();
+    private volatile Timestamp timestamp = new Timestamp(Long.MIN_VALUE, new byte[0]);
+
+    public Mono<Void> write(ServerWebExchange exchange, HttpStatus status, String message) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+
+        byte[] head = template(status, message);
+        byte[] now = timestamp();
+        String path = exchange.getRequest().getURI().getRawPath();
+        String requestId = RequestIds.get(exchange);
+
+        return response.writeWith(Mono.fromSupplier(() -> {
+            DataBuffer buffer = response.bufferFactory().allocateBuffer(head.length + now.length + DYNAMIC_FIELDS_ESTIMATE);
+            buffer.write(head);
+            buffer.write(TIMESTAMP_FIELD);
+            buffer.write(now);
+            buffer.write(PATH_FIELD);
+            writeEscaped(buffer, path);
+            if (requestId != null) {
+                buffer.write(REQUEST_ID_FIELD);
+                writeEscaped(buffer, requestId);
+            }
+            buffer.write(END);
+            return buffer;
+        }));
+    }
+
+    public static byte[] staticBody(HttpStatus status, String message) {
+        StringBuilder json = new StringBuilder(64).append("{\"error\":");
+        appendQuoted(json, message);
+        return json.append(",\"status\":").append(status.value()).append('}')
+                .toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] template(HttpStatus status, String message) {
+        TemplateKey key = new TemplateKey(status, message);
+        byte[] template = templates.get(key);
+        if (template != null) {
+            return template;
+        }
+        StringBuilder json = new StringBuilder(128)
+                .append("{\"status\":").append(status.value())
+                .append(",\"error\":");
+        appendQuoted(json, status.getReasonPhrase());
+        json.append(",\"message\":");
+        appendQuoted(json, message);
+        template = json.append(',').toString().getBytes(StandardCharsets.UTF_8);
+        if (templates.size() < MAX_CACHED_TEMPLATES) {
+            templates.putIfAbsent(key, template);
+        }
+        return template;
+    }
+
+    private byte[] timestamp() {
+        long second = System.currentTimeMillis() / 1000;
+        Timestamp current = timestamp;
+        if (current.epochSecond != second) {
+            String formatted = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zone)
+                    .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            current = new Timestamp(second, formatted.getBytes(StandardCharsets.US_ASCII));
+            timestamp = current;
+        }
+        return current.bytes;
+    }
+
+    private static void appendQuoted(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static void writeEscaped(DataBuffer buffer, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                buffer.write((byte) '\\');
+                buffer.write((byte) c);
+            } else if (c < 0x20) {
+                buffer.write((byte) '\\');
+                buffer.write((byte) 'u');
+                buffer.write((byte) '0');
+                buffer.write((byte) '0');
+                buffer.write((byte) Character.forDigit(c >> 4, 16));
+                buffer.write((byte) Character.forDigit(c & 0xF, 16));
+            } else if (c < 0x80) {
+                buffer.write((byte) c);
+            } else {
+                int end = Character.isHighSurrogate(c) && i + 1 < value.length() ? i + 2 : i + 1;
+                buffer.write(value.subSequence(i, end), StandardCharsets.UTF_8);
+                i = end - 1;
+            }
+        }
+    }
+
+    private record TemplateKey(HttpStatus status, String message) {
+    }
+
+    private record Timestamp(long epochSecond, byte[] bytes) {
+    }
+}
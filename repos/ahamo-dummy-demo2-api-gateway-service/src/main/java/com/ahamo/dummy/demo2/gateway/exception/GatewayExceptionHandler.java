@@ -1,58 +1,51 @@
 package com.ahamo.dummy.demo2.gateway.exception;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ahamo.dummy.demo2.gateway.logging.RateLimitedLog;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
 import org.springframework.cloud.gateway.support.NotFoundException;
 import org.springframework.core.annotation.Order;
-import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
-
 @Slf4j
 @Component
 @Order(-1)
 public class GatewayExceptionHandler implements ErrorWebExceptionHandler {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ErrorResponseWriter errorResponseWriter;
+    private final RateLimitedLog clientErrorLog;
+
+    public GatewayExceptionHandler(ErrorResponseWriter errorResponseWriter,
+                                   @Value("${gateway.errors.client-error-logs-per-second:10}") int clientErrorLogsPerSecond) {
+        this.errorResponseWriter = errorResponseWriter;
+        this.clientErrorLog = new RateLimitedLog(clientErrorLogsPerSecond);
+    }
 
     @Override
     public Mono<Void> handle(ServerWebExchange exchange, Throwable ex) {
-        ServerHttpResponse response = exchange.getResponse();
-        
-        if (response.isCommitted()) {
+        if (exchange.getResponse().isCommitted()) {
             return Mono.error(ex);
         }
 
         HttpStatus status = determineHttpStatus(ex);
         String message = determineErrorMessage(ex);
-        
-        log.error("Gateway error occurred: {} - {}", status, message, ex);
 
-        response.setStatusCode(status);
-        response.getHeaders().add("Content-Type", MediaType.APPLICATION_JSON_VALUE);
-
-        Map<String, Object> errorResponse = createErrorResponse(status, message, exchange);
-        
-        try {
-            String body = objectMapper.writeValueAsString(errorResponse);
-            DataBuffer buffer = response.bufferFactory().wrap(body.getBytes());
-            return response.writeWith(Mono.just(buffer));
-        } catch (JsonProcessingException e) {
-            log.error("Error serializing error response", e);
-            return response.setComplete();
+        if (status.is4xxClientError()) {
+            long suppressed = clientErrorLog.tryAcquire();
+            if (suppressed >= 0) {
+                log.warn("Gateway client error: {} {} - {} ({} similar suppressed)",
+                        status.value(), exchange.getRequest().getURI().getRawPath(), message, suppressed);
+            }
+        } else {
+            log.error("Gateway error occurred: {} - {}", status, message, ex);
         }
+
+        return errorResponseWriter.write(exchange, status, message);
     }
 
     private HttpStatus determineHttpStatus(Throwable ex) {
@@ -78,20 +71,4 @@ public class GatewayExceptionHandler implements ErrorWebExceptionHandler {
             return "Internal server error";
         }
     }
-
-    private Map<String, Object> createErrorResponse(HttpStatus status, String message, ServerWebExchange exchange) {
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        errorResponse.put("status", status.value());
-        errorResponse.put("error", status.getReasonPhrase());
-        errorResponse.put("message", message);
-        errorResponse.put("path", exchange.getRequest().getURI().getPath());
-        
-        String requestId = exchange.getRequest().getHeaders().getFirst("X-Request-ID");
-        if (requestId != null) {
-            errorResponse.put("requestId", requestId);
-        }
-        
-        return errorResponse;
-    }
 }
@@ -0,0 +1,106 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.exception.ErrorResponseWriter;
+import com.ahamo.dummy.demo2.gateway.metrics.RequestTiming;
+import com.ahamo.dummy.demo2.gateway.ratelimit.AdaptiveConcurrencyLimiter;
+import com.ahamo.dummy.demo2.gateway.ratelimit.ConcurrencyLimitProperties;
+import com.ahamo.dummy.demo2.gateway.ratelimit.ConcurrencyLimitProperties.Priority;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+@Component
+public class AdaptiveConcurrencyFilter implements GlobalFilter, Ordered {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ErrorResponseWriter errorResponseWriter;
+    private final ConcurrencyLimitProperties properties;
+    private final List<PriorityPattern> priorities;
+    private final String retryAfter;
+
+    public AdaptiveConcurrencyFilter(AdaptiveConcurrencyLimiter limiter,
+                                     ErrorResponseWriter errorResponseWriter,
+                                     ConcurrencyLimitProperties properties) {
+        this.limiter = limiter;
+        this.errorResponseWriter = errorResponseWriter;
+        this.properties = properties;
+        this.priorities = properties.getPriorities().stream()
+                .map(rule -> new PriorityPattern(PathPatternParser.defaultInstance.parse(rule.getPath()), rule.getPriority()))
+                .toList();
+        this.retryAfter = Long.toString(Math.max(1, properties.getRetryAfter().toSeconds()));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null || !properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        AdaptiveConcurrencyLimiter.RouteLimiter routeLimiter = limiter.forRoute(route.getId());
+        if (!routeLimiter.tryAcquire(priorityOf(exchange))) {
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfter);
+            return errorResponseWriter.write(exchange, HttpStatus.SERVICE_UNAVAILABLE, "Gateway is shedding load");
+        }
+
+        Permit permit = new Permit(routeLimiter, exchange);
+        // Released once the upstream has answered and the response starts, not after a slow client reads the body
+        exchange.getResponse().beforeCommit(() -> {
+            permit.release();
+            return Mono.empty();
+        });
+        return chain.filter(exchange).doFinally(signal -> permit.release());
+    }
+
+    private Priority priorityOf(ServerWebExchange exchange) {
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        for (PriorityPattern priority : priorities) {
+            if (priority.pattern().matches(path)) {
+                return priority.priority();
+            }
+        }
+        return properties.getDefaultPriority();
+    }
+
+    // Right after RouteMetricsFilter so shed requests still show up in the route metrics
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    private record PriorityPattern(PathPattern pattern, Priority priority) {
+    }
+
+    private static final class Permit {
+
+        private final AdaptiveConcurrencyLimiter.RouteLimiter routeLimiter;
+        private final ServerWebExchange exchange;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdaptiveConcurrencyLimiter.RouteLimiter routeLimiter, ServerWebExchange exchange) {
+            this.routeLimiter = routeLimiter;
+            this.exchange = exchange;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                RequestTiming timing = RequestTiming.get(exchange);
+                routeLimiter.release(timing != null ? timing.upstreamNanos() : -1);
+            }
+        }
+    }
+}
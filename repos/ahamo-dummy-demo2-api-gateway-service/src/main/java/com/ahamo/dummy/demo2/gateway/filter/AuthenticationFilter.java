@@ -1,8 +1,10 @@
 package com.ahamo.dummy.demo2.gateway.filter;
 
+import com.ahamo.dummy.demo2.gateway.exception.ErrorResponseWriter;
+import com.ahamo.dummy.demo2.gateway.logging.RateLimitedLog;
+import com.ahamo.dummy.demo2.gateway.security.JwtTokenVerifier;
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.JwtException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
@@ -15,18 +17,25 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
-
 @Slf4j
 @Component
 public class AuthenticationFilter extends AbstractGatewayFilterFactory<AuthenticationFilter.Config> {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private static final byte[] MISSING_AUTHORIZATION_BODY =
+            ErrorResponseWriter.staticBody(HttpStatus.UNAUTHORIZED, "Missing or invalid Authorization header");
+    private static final byte[] INVALID_TOKEN_BODY =
+            ErrorResponseWriter.staticBody(HttpStatus.UNAUTHORIZED, "Invalid JWT token");
+    private static final byte[] VALIDATION_FAILED_BODY =
+            ErrorResponseWriter.staticBody(HttpStatus.UNAUTHORIZED, "JWT validation failed");
+
+    private final JwtTokenVerifier tokenVerifier;
+    private final RateLimitedLog rejectionLog;
 
-    public AuthenticationFilter() {
+    public AuthenticationFilter(JwtTokenVerifier tokenVerifier,
+                                @Value("${gateway.errors.client-error-logs-per-second:10}") int clientErrorLogsPerSecond) {
         super(Config.class);
+        this.tokenVerifier = tokenVerifier;
+        this.rejectionLog = new RateLimitedLog(clientErrorLogsPerSecond);
     }
 
     @Override
@@ -34,27 +43,29 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
         return (exchange, chain) -> {
             ServerHttpRequest request = exchange.getRequest();
             
-            if (!isAuthRequired(request)) {
+            if (!isAuthRequired(request) || JwtTokenVerifier.getVerifiedClaims(exchange) != null) {
                 return chain.filter(exchange);
             }
 
             String authHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
             
             if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                return onError(exchange, "Missing or invalid Authorization header", HttpStatus.UNAUTHORIZED);
+                return onError(exchange, MISSING_AUTHORIZATION_BODY);
             }
 
             String token = authHeader.substring(7);
             
             try {
-                if (isValidToken(token)) {
+                Claims claims = verifyToken(token);
+                if (claims != null) {
+                    exchange.getAttributes().put(JwtTokenVerifier.VERIFIED_CLAIMS_ATTR, claims);
                     return chain.filter(exchange);
                 } else {
-                    return onError(exchange, "Invalid JWT token", HttpStatus.UNAUTHORIZED);
+                    return onError(exchange, INVALID_TOKEN_BODY);
                 }
             } catch (Exception e) {
-                log.error("JWT validation error: {}", e.getMessage());
-                return onError(exchange, "JWT validation failed", HttpStatus.UNAUTHORIZED);
+                logRejection("JWT validation error", e);
+                return onError(exchange, VALIDATION_FAILED_BODY);
             }
         };
     }
@@ -66,31 +77,33 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
                !path.startsWith("/actuator/info");
     }
 
-    private boolean isValidToken(String token) {
+    private Claims verifyToken(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-            Claims claims = Jwts.parser()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims claims = tokenVerifier.verify(token);
             
             log.debug("JWT validated for user: {}", claims.getSubject());
-            return true;
-        } catch (Exception e) {
-            log.warn("JWT validation failed: {}", e.getMessage());
-            return false;
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            logRejection("JWT validation failed", e);
+            return null;
+        }
+    }
+
+    // Clients control how many bad tokens arrive, so these are rate limited like other client errors
+    private void logRejection(String message, Exception e) {
+        long suppressed = rejectionLog.tryAcquire();
+        if (suppressed >= 0) {
+            log.warn("{}: {} ({} similar suppressed)", message, e.getMessage(), suppressed);
         }
     }
 
-    private Mono<Void> onError(ServerWebExchange exchange, String message, HttpStatus status) {
+    private Mono<Void> onError(ServerWebExchange exchange, byte[] body) {
         ServerHttpResponse response = exchange.getResponse();
-        response.setStatusCode(status);
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
         response.getHeaders().add("Content-Type", "application/json");
-        
-        String body = String.format("{\"error\":\"%s\",\"status\":%d}", message, status.value());
-        
-        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes())));
+
+        // The shared body is only ever read, so wrapping it without a copy is safe
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
     }
 
     public static class Config {
@@ -0,0 +1,44 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+final class BodyCapture {
+
+    private final int limit;
+    private byte[] bytes;
+    private int length;
+    private boolean overflowed;
+
+    BodyCapture(int limit, long contentLength) {
+        this.limit = limit;
+        this.bytes = new byte[contentLength > 0 ? (int) contentLength : Math.min(limit, 1024)];
+    }
+
+    void append(DataBuffer buffer) {
+        int readable = buffer.readableByteCount();
+        if (overflowed || length + readable > limit) {
+            overflowed = true;
+            return;
+        }
+        if (length + readable > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.min(limit, Math.max(bytes.length * 2, length + readable)));
+        }
+        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), length, readable);
+        length += readable;
+    }
+
+    boolean isComplete() {
+        return !overflowed;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+}
@@ -0,0 +1,170 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.loadbalancer.UpstreamInstance;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.PRESERVE_HOST_HEADER_ATTRIBUTE;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+
+/**
+ * Races the regular upstream call against a second request sent after the route's hedging delay. Whichever
+ * answers first is used and the other is cancelled, which closes its connection. When the first attempt fails
+ * outright the hedge doubles as the retry.
+ */
+@Component
+public class HedgedRoutingFilter implements GlobalFilter, Ordered {
+
+    // Set once the hedge's response is written, so the primary attempt is not charged with the hedge's outcome
+    public static final String HEDGE_WON_ATTRIBUTE = HedgedRoutingFilter.class.getName() + ".hedgeWon";
+
+    private static final Object PRIMARY = new Object();
+    private static final byte[] EMPTY = new byte[0];
+
+    private final HttpClient httpClient;
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider;
+    private volatile List<HttpHeadersFilter> headersFilters;
+
+    public HedgedRoutingFilter(HttpClient httpClient, ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider) {
+        this.httpClient = httpClient;
+        this.headersFiltersProvider = headersFiltersProvider;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        HedgingFilter.Policy policy = exchange.getAttribute(HedgingFilter.POLICY_ATTRIBUTE);
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        if (policy == null || url == null || isAlreadyRouted(exchange)
+                || !("http".equals(url.getScheme()) || "https".equals(url.getScheme()))) {
+            return chain.filter(exchange);
+        }
+
+        policy.onRequest();
+        Mono<Object> primary = chain.filter(exchange).thenReturn(PRIMARY);
+        Mono<Object> hedge = Mono.delay(policy.delay())
+                .filter(tick -> policy.tryHedge())
+                .flatMap(tick -> sendHedge(exchange, url))
+                .flatMap(HedgedRoutingFilter::requireSuccess);
+
+        return Mono.firstWithValue(primary, hedge)
+                .onErrorMap(NoSuchElementException.class, HedgedRoutingFilter::firstFailure)
+                .flatMap(winner -> {
+                    if (winner == PRIMARY) {
+                        return Mono.empty();
+                    }
+                    policy.onHedgeWon();
+                    return write(exchange, (HedgeResponse) winner);
+                });
+    }
+
+    // Within an upstream pool the hedge goes to a different instance than the first attempt
+    private Mono<HedgeResponse> sendHedge(ServerWebExchange exchange, URI url) {
+        UpstreamInstance primary = exchange.getAttribute(UpstreamPoolFilter.INSTANCE_ATTRIBUTE);
+        if (primary == null) {
+            return send(httpClient, exchange, url);
+        }
+        UpstreamInstance instance = primary.pool().choose(primary);
+        long start = instance.start();
+        return send(primary.pool().httpClient(), exchange, instance.resolve(url))
+                .doOnSuccess(hedge -> instance.complete(start, !UpstreamInstance.isFailureStatus(hedge.status())))
+                .doOnError(error -> instance.complete(start, false))
+                .doOnCancel(instance::cancel);
+    }
+
+    private Mono<HedgeResponse> send(HttpClient client, ServerWebExchange exchange, URI url) {
+        HttpHeaders filtered = HttpHeadersFilter.filterRequest(headersFilters(), exchange);
+        boolean preserveHost = exchange.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false);
+        String host = exchange.getRequest().getHeaders().getFirst(HttpHeaders.HOST);
+
+        return client
+                .headers(headers -> {
+                    filtered.forEach(headers::set);
+                    headers.remove(HttpHeaders.HOST);
+                    if (preserveHost && host != null) {
+                        headers.set(HttpHeaders.HOST, host);
+                    }
+                })
+                .get()
+                .uri(url)
+                .responseSingle((response, body) -> body.asByteArray()
+                        .defaultIfEmpty(EMPTY)
+                        .map(bytes -> {
+                            HttpHeaders headers = new HttpHeaders();
+                            response.responseHeaders().forEach(header -> headers.add(header.getKey(), header.getValue()));
+                            return new HedgeResponse(response.status().code(), headers, bytes);
+                        }));
+    }
+
+    // A hedge answering 502/503/504 must not beat a slower but healthy primary, so it only counts as a failure
+    private static Mono<HedgeResponse> requireSuccess(HedgeResponse hedge) {
+        return UpstreamInstance.isFailureStatus(hedge.status())
+                ? Mono.error(new FailedHedgeException(hedge.status()))
+                : Mono.just(hedge);
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, HedgeResponse hedge) {
+        exchange.getAttributes().put(HEDGE_WON_ATTRIBUTE, Boolean.TRUE);
+        if (exchange.getAttributes().remove(CLIENT_RESPONSE_CONN_ATTR) instanceof Connection connection) {
+            connection.dispose();
+        }
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatusCode.valueOf(hedge.status()));
+        response.getHeaders().putAll(HttpHeadersFilter.filter(headersFilters(), hedge.headers(), exchange,
+                HttpHeadersFilter.Type.RESPONSE));
+        response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        response.getHeaders().setContentLength(hedge.body().length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(hedge.body())));
+    }
+
+    private List<HttpHeadersFilter> headersFilters() {
+        List<HttpHeadersFilter> filters = headersFilters;
+        if (filters == null) {
+            filters = headersFiltersProvider.getIfAvailable(List::of);
+            headersFilters = filters;
+        }
+        return filters;
+    }
+
+    // Both attempts failed: the primary's error is the one the resilience filter knows how to answer
+    private static Throwable firstFailure(NoSuchElementException error) {
+        List<Throwable> failures = Exceptions.unwrapMultiple(error.getCause());
+        return failures.stream()
+                .filter(failure -> !(failure instanceof FailedHedgeException))
+                .findFirst()
+                .orElse(failures.isEmpty() ? error : failures.get(0));
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 2;
+    }
+
+    private record HedgeResponse(int status, HttpHeaders headers, byte[] body) {
+    }
+
+    private static final class FailedHedgeException extends RuntimeException {
+
+        private FailedHedgeException(int status) {
+            super("Hedged request failed with status " + status, null, false, false);
+        }
+    }
+}
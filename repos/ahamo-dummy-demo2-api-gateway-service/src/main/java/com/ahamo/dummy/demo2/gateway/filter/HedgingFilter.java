@@ -0,0 +1,196 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.metrics.RouteMetrics;
+import com.ahamo.dummy.demo2.gateway.ratelimit.RetryBudget;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Marks GET requests of a route for hedging; {@link HedgedRoutingFilter} sends the hedge next to the upstream call.
+ */
+@Component
+public class HedgingFilter extends AbstractGatewayFilterFactory<HedgingFilter.Config> {
+
+    public static final String POLICY_ATTRIBUTE = HedgingFilter.class.getName() + ".policy";
+
+    private static final long LEARNED_DELAY_REFRESH_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final RouteMetrics routeMetrics;
+    private final MeterRegistry meterRegistry;
+    // Latest policy per route; the budget gauge reads through it so it follows route table reloads
+    private final Map<String, Policy> livePolicies = new ConcurrentHashMap<>();
+
+    public HedgingFilter(RouteMetrics routeMetrics, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.routeMetrics = routeMetrics;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Map<String, Policy> policies = new ConcurrentHashMap<>();
+
+        return (exchange, chain) -> {
+            if (exchange.getRequest().getMethod() == HttpMethod.GET) {
+                Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+                String routeId = route != null ? route.getId() : "unknown";
+                Policy policy = policies.get(routeId);
+                if (policy == null) {
+                    policy = policies.computeIfAbsent(routeId, id -> new Policy(id, config));
+                }
+                exchange.getAttributes().put(POLICY_ATTRIBUTE, policy);
+            }
+            return chain.filter(exchange);
+        };
+    }
+
+    public final class Policy {
+
+        private final String routeId;
+        private final Config config;
+        private final RetryBudget budget;
+        private final Counter hedged;
+        private final Counter hedgeWon;
+        private final Counter budgetExhausted;
+
+        private volatile long learnedDelayNanos = -1;
+        private volatile long learnedAtNanos = System.nanoTime() - LEARNED_DELAY_REFRESH_NANOS;
+
+        private Policy(String routeId, Config config) {
+            this.routeId = routeId;
+            this.config = config;
+            this.budget = new RetryBudget(config.getBudgetRatio(), config.getBudgetMaxTokens());
+            this.hedged = counter(routeId, "hedged");
+            this.hedgeWon = counter(routeId, "hedge_won");
+            this.budgetExhausted = counter(routeId, "budget_exhausted");
+            livePolicies.put(routeId, this);
+            Gauge.builder("gateway.hedging.budget", livePolicies, live -> live.get(routeId).budget.available())
+                    .description("Hedges and retries the route may still send")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        public Duration delay() {
+            if (config.getPercentile() <= 0) {
+                return config.getDelay();
+            }
+            long now = System.nanoTime();
+            if (now - learnedAtNanos >= LEARNED_DELAY_REFRESH_NANOS) {
+                learnedAtNanos = now;
+                learnedDelayNanos = routeMetrics.forRoute(routeId)
+                        .upstreamPercentileNanos(config.getPercentile(), config.getMinSamples());
+            }
+            long learned = learnedDelayNanos;
+            if (learned < 0) {
+                return config.getDelay();
+            }
+            return Duration.ofNanos(Math.max(config.getMinDelay().toNanos(), learned));
+        }
+
+        public void onRequest() {
+            budget.deposit();
+        }
+
+        public boolean tryHedge() {
+            if (budget.tryWithdraw()) {
+                hedged.increment();
+                return true;
+            }
+            budgetExhausted.increment();
+            return false;
+        }
+
+        public void onHedgeWon() {
+            hedgeWon.increment();
+        }
+
+        private Counter counter(String routeId, String outcome) {
+            return Counter.builder("gateway.hedging.requests")
+                    .tag("route", routeId)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+
+    public static class Config {
+
+        private Duration delay = Duration.ofMillis(100);
+
+        private double percentile = 0.95;
+
+        private long minSamples = 100;
+
+        private Duration minDelay = Duration.ofMillis(5);
+
+        private double budgetRatio = 0.1;
+
+        private int budgetMaxTokens = 10;
+
+        public Duration getDelay() {
+            return delay;
+        }
+
+        public Config setDelay(Duration delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public Config setPercentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        public long getMinSamples() {
+            return minSamples;
+        }
+
+        public Config setMinSamples(long minSamples) {
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public Config setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        public double getBudgetRatio() {
+            return budgetRatio;
+        }
+
+        public Config setBudgetRatio(double budgetRatio) {
+            this.budgetRatio = budgetRatio;
+            return this;
+        }
+
+        public int getBudgetMaxTokens() {
+            return budgetMaxTokens;
+        }
+
+        public Config setBudgetMaxTokens(int budgetMaxTokens) {
+            this.budgetMaxTokens = budgetMaxTokens;
+            return this;
+        }
+    }
+}
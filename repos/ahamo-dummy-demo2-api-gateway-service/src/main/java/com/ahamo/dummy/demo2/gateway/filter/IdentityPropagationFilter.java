@@ -0,0 +1,84 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.identity.IdentityHeaders;
+import com.ahamo.dummy.demo2.gateway.identity.IdentitySigner;
+import com.ahamo.dummy.demo2.gateway.security.JwtTokenVerifier;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+@Component
+public class IdentityPropagationFilter extends AbstractGatewayFilterFactory<IdentityPropagationFilter.Config> {
+
+    private static final long DEFAULT_TTL_SECONDS = 60;
+
+    private final IdentitySigner signer;
+
+    public IdentityPropagationFilter(@Value("${gateway.identity.secret}") String identitySecret) {
+        super(Config.class);
+        this.signer = new IdentitySigner(identitySecret);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            Claims claims = JwtTokenVerifier.getVerifiedClaims(exchange);
+
+            return chain.filter(exchange.mutate()
+                    .request(request -> request.headers(headers -> {
+                        IdentityHeaders.ALL.forEach(headers::remove);
+                        if (claims == null) {
+                            return;
+                        }
+                        if (config.isStripAuthorization()) {
+                            headers.remove(HttpHeaders.AUTHORIZATION);
+                        }
+                        addIdentityHeaders(headers, claims);
+                    }))
+                    .build());
+        };
+    }
+
+    private void addIdentityHeaders(HttpHeaders headers, Claims claims) {
+        String subject = claims.getSubject() != null ? claims.getSubject() : "";
+        String roles = roles(claims);
+        Date expiration = claims.getExpiration();
+        long expiresAt = expiration != null
+                ? expiration.getTime() / 1000
+                : System.currentTimeMillis() / 1000 + DEFAULT_TTL_SECONDS;
+
+        headers.set(IdentityHeaders.SUBJECT, subject);
+        headers.set(IdentityHeaders.ROLES, roles);
+        headers.set(IdentityHeaders.EXPIRES, Long.toString(expiresAt));
+        headers.set(IdentityHeaders.SIGNATURE, signer.sign(subject, roles, expiresAt));
+    }
+
+    private String roles(Claims claims) {
+        Object roles = claims.get("roles");
+        if (roles instanceof Collection<?> values) {
+            return values.stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+        return roles != null ? roles.toString() : "";
+    }
+
+    public static class Config {
+
+        private boolean stripAuthorization = true;
+
+        public boolean isStripAuthorization() {
+            return stripAuthorization;
+        }
+
+        public Config setStripAuthorization(boolean stripAuthorization) {
+            this.stripAuthorization = stripAuthorization;
+            return this;
+        }
+    }
+}
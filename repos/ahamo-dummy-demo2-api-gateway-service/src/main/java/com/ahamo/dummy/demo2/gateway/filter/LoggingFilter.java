@@ -1,54 +1,62 @@
 package com.ahamo.dummy.demo2.gateway.filter;
 
+import com.ahamo.dummy.demo2.gateway.logging.AccessLogPipeline;
+import com.ahamo.dummy.demo2.gateway.metrics.RequestTiming;
+import com.ahamo.dummy.demo2.gateway.tracing.RequestIds;
+import com.ahamo.dummy.demo2.gateway.tracing.TraceContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
-import reactor.core.publisher.Mono;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
 
 @Slf4j
 @Component
 public class LoggingFilter extends AbstractGatewayFilterFactory<LoggingFilter.Config> {
 
-    public LoggingFilter() {
+    private final AccessLogPipeline accessLog;
+
+    public LoggingFilter(AccessLogPipeline accessLog) {
         super(Config.class);
+        this.accessLog = accessLog;
     }
 
+    // Ahead of the admission checks, ResponseCacheFilter and every positional route filter, so cache hits and
+    // rejections are logged too
     @Override
     public GatewayFilter apply(Config config) {
-        return (exchange, chain) -> {
+        return new OrderedGatewayFilter((exchange, chain) -> {
             ServerHttpRequest request = exchange.getRequest();
             ServerHttpResponse response = exchange.getResponse();
             
-            final String requestId = request.getHeaders().getFirst("X-Request-ID") != null 
-                    ? request.getHeaders().getFirst("X-Request-ID") 
-                    : java.util.UUID.randomUUID().toString();
-            
-            long startTime = System.currentTimeMillis();
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            
-            log.info("Gateway Request - ID: {}, Method: {}, URI: {}, Remote: {}, Timestamp: {}", 
-                    requestId,
-                    request.getMethod(),
-                    request.getURI(),
-                    request.getRemoteAddress(),
-                    timestamp);
-
-            return chain.filter(exchange).then(
-                Mono.fromRunnable(() -> {
-                    long duration = System.currentTimeMillis() - startTime;
-                    log.info("Gateway Response - ID: {}, Status: {}, Duration: {}ms", 
-                            requestId,
-                            response.getStatusCode(),
-                            duration);
-                })
-            );
-        };
+            final String requestId = RequestIds.get(exchange);
+            final TraceContext trace = TraceContext.get(exchange);
+            final long startMillis = System.currentTimeMillis();
+            final long startNanos = System.nanoTime();
+
+            return chain.filter(exchange).doFinally(signal -> {
+                HttpStatusCode status = response.getStatusCode();
+                Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+                RequestTiming timing = RequestTiming.get(exchange);
+                accessLog.record(startMillis,
+                        System.nanoTime() - startNanos,
+                        request.getMethod(),
+                        request.getURI(),
+                        request.getRemoteAddress(),
+                        requestId,
+                        route != null ? route.getId() : null,
+                        status != null ? status.value() : 0,
+                        trace,
+                        timing != null ? timing.upstreamNanos() : -1);
+            });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 3);
     }
 
     public static class Config {
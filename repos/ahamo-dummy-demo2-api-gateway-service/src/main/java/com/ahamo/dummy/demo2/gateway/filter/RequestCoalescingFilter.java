@@ -0,0 +1,292 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.cache.CacheDirectives;
+import com.ahamo.dummy.demo2.gateway.cache.CachedResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+@Component
+public class RequestCoalescingFilter extends AbstractGatewayFilterFactory<RequestCoalescingFilter.Config> {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RouteMeters> routeMeters = new ConcurrentHashMap<>();
+
+    public RequestCoalescingFilter(MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Map<String, InFlight> inFlightRequests = new ConcurrentHashMap<>();
+
+        // Runs ahead of NettyWriteResponseFilter so the leader's body can be captured for the waiters
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!config.isEnabled() || request.getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+
+            RouteMeters meters = metersFor(exchange);
+            String key = coalescingKey(request, config);
+            String authorization = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            InFlight inFlight = new InFlight(authorization);
+            InFlight existing = inFlightRequests.putIfAbsent(key, inFlight);
+
+            if (existing != null) {
+                return existing.result()
+                        .timeout(config.getTimeout(), Mono.empty())
+                        // Another caller's answer is only reused when the upstream marked it as shareable
+                        .filter(shared -> shared.shareable() || Objects.equals(authorization, existing.authorization()))
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(shared -> {
+                            if (shared.isPresent()) {
+                                meters.followers.increment();
+                                return replay(exchange, shared.get());
+                            }
+                            meters.fallbacks.increment();
+                            return chain.filter(exchange);
+                        });
+            }
+
+            meters.leaders.increment();
+            return chain.filter(exchange.mutate()
+                            .response(new CapturingResponse(exchange.getResponse(), inFlight, config.getMaxBodyBytes()))
+                            .build())
+                    .doFinally(signal -> {
+                        inFlightRequests.remove(key, inFlight);
+                        inFlight.abandon();
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> replay(ServerWebExchange exchange, SharedResponse shared) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        response.setStatusCode(shared.status());
+        // Headers the gateway already set for this request, such as its CORS and tracing headers, stay its own
+        shared.headers().forEach((name, values) -> {
+            if (HttpHeaders.VARY.equalsIgnoreCase(name)) {
+                List<String> vary = headers.getVary();
+                values.stream().filter(value -> !vary.contains(value)).forEach(value -> headers.add(name, value));
+            } else if (!headers.containsKey(name)) {
+                headers.put(name, values);
+            }
+        });
+        headers.setContentLength(shared.body().remaining());
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(shared.body().duplicate())));
+    }
+
+    private RouteMeters metersFor(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+        RouteMeters meters = routeMeters.get(routeId);
+        if (meters == null) {
+            meters = routeMeters.computeIfAbsent(routeId, id -> new RouteMeters(meterRegistry, id));
+        }
+        return meters;
+    }
+
+    private static String coalescingKey(ServerHttpRequest request, Config config) {
+        StringBuilder key = new StringBuilder(128)
+                .append(request.getMethod().name()).append(' ')
+                .append(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        HttpHeaders headers = request.getHeaders();
+        for (String name : config.getVaryHeaders()) {
+            key.append('\n').append(name).append(':');
+            List<String> values = headers.get(name);
+            if (values != null) {
+                key.append(String.join(",", values));
+            }
+        }
+        return key.toString();
+    }
+
+    // Shareable when a shared cache could reuse it for an authorized request, the rule ResponseCacheFilter applies
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, ByteBuffer body, boolean shareable) {
+    }
+
+    private static final class InFlight {
+
+        private final Sinks.One<SharedResponse> sink = Sinks.one();
+        private final String authorization;
+
+        InFlight(String authorization) {
+            this.authorization = authorization;
+        }
+
+        String authorization() {
+            return authorization;
+        }
+
+        Mono<SharedResponse> result() {
+            return sink.asMono();
+        }
+
+        void publish(SharedResponse response) {
+            sink.tryEmitValue(response);
+        }
+
+        void abandon() {
+            sink.tryEmitEmpty();
+        }
+    }
+
+    private static final class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final InFlight inFlight;
+        private final int maxBodyBytes;
+
+        private CapturingResponse(ServerHttpResponse delegate, InFlight inFlight, int maxBodyBytes) {
+            super(delegate);
+            this.inFlight = inFlight;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            long contentLength = headers.getContentLength();
+            HttpStatusCode status = getStatusCode();
+            // Upstream errors, and the 503/504 fallbacks ResilienceFilter writes for them, send waiters upstream
+            if (status == null || status.is5xxServerError() || headers.containsKey(HttpHeaders.SET_COOKIE)
+                    || contentLength > maxBodyBytes) {
+                inFlight.abandon();
+                return super.writeWith(body);
+            }
+
+            BodyCapture capture = new BodyCapture(maxBodyBytes, contentLength);
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(capture::append)
+                    .doOnComplete(() -> {
+                        if (!capture.isComplete()) {
+                            inFlight.abandon();
+                            return;
+                        }
+                        // Only representation headers: route filters add per-client ones, such as rate limit
+                        // counters and Retry-After, to the leader's response as well
+                        HttpHeaders shared = new HttpHeaders();
+                        for (String name : CachedResponse.STORED_HEADERS) {
+                            List<String> values = headers.get(name);
+                            if (values != null) {
+                                shared.put(name, List.copyOf(values));
+                            }
+                        }
+                        ByteBuffer bytes = ByteBuffer.wrap(capture.bytes(), 0, capture.length()).slice().asReadOnlyBuffer();
+                        CacheDirectives directives = CacheDirectives.parse(headers.getFirst(HttpHeaders.CACHE_CONTROL));
+                        inFlight.publish(new SharedResponse(status, HttpHeaders.readOnlyHttpHeaders(shared), bytes,
+                                directives.isStorable() && directives.allowsSharingAuthorized()));
+                    }));
+        }
+    }
+
+    private static final class RouteMeters {
+
+        private final Counter leaders;
+        private final Counter followers;
+        private final Counter fallbacks;
+
+        private RouteMeters(MeterRegistry meterRegistry, String routeId) {
+            this.leaders = counter(meterRegistry, routeId, "leader");
+            this.followers = counter(meterRegistry, routeId, "follower");
+            this.fallbacks = counter(meterRegistry, routeId, "fallback");
+            Gauge.builder("gateway.coalescing.ratio", this, RouteMeters::ratio)
+                    .description("Share of coalescable requests answered from another request's upstream call")
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        private double ratio() {
+            double total = leaders.count() + followers.count() + fallbacks.count();
+            return total == 0 ? 0 : followers.count() / total;
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String routeId, String role) {
+            return Counter.builder("gateway.coalescing.requests")
+                    .tag("route", routeId)
+                    .tag("role", role)
+                    .register(meterRegistry);
+        }
+    }
+
+    public static class Config {
+
+        private boolean enabled = false;
+
+        private List<String> varyHeaders = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE);
+
+        private Duration timeout = Duration.ofSeconds(5);
+
+        private int maxBodyBytes = 1024 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public Config setEnabled(boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        public List<String> getVaryHeaders() {
+            return varyHeaders;
+        }
+
+        public Config setVaryHeaders(List<String> varyHeaders) {
+            this.varyHeaders = varyHeaders;
+            return this;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public Config setTimeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public int getMaxBodyBytes() {
+            return maxBodyBytes;
+        }
+
+        public Config setMaxBodyBytes(int maxBodyBytes) {
+            this.maxBodyBytes = maxBodyBytes;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.exception.ErrorResponseWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Per-route request header and body size limits. A declared Content-Length over the limit is rejected before any
+ * of the body is read, and a chunked body is counted while it streams to the upstream and fails the request with
+ * 413 as soon as it goes over, so no body is ever buffered to be measured. Rejections close the connection instead
+ * of draining the rest of an oversized body.
+ */
+@Component
+public class RequestLimitsFilter extends AbstractGatewayFilterFactory<RequestLimitsFilter.Config> {
+
+    // Ahead of ResponseCacheFilter and RequestCoalescingFilter, so responses served without an upstream call are
+    // admitted the same way as any other
+    public static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2;
+
+    private final ErrorResponseWriter errorResponseWriter;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+
+    public RequestLimitsFilter(ErrorResponseWriter errorResponseWriter, MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.errorResponseWriter = errorResponseWriter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        long maxBodyBytes = config.getMaxBodySize().toBytes();
+        long maxHeaderBytes = config.getMaxHeaderSize() != null ? config.getMaxHeaderSize().toBytes() : -1;
+
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpHeaders headers = request.getHeaders();
+            if (maxHeaderBytes >= 0 && headerBytes(headers) > maxHeaderBytes) {
+                return reject(exchange, HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, "headers_too_large");
+            }
+            long contentLength = headers.getContentLength();
+            if (contentLength > maxBodyBytes) {
+                return reject(exchange, HttpStatus.PAYLOAD_TOO_LARGE, "body_too_large");
+            }
+            // The HTTP codec never delivers more than a declared Content-Length, so only chunked bodies are counted
+            if (contentLength >= 0 || !headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+                return chain.filter(exchange);
+            }
+            ServerHttpRequest limited = new ServerHttpRequestDecorator(request) {
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return limit(super.getBody(), maxBodyBytes);
+                }
+            };
+            return chain.filter(exchange.mutate().request(limited).build())
+                    .onErrorResume(BodyTooLargeException.class,
+                            e -> reject(exchange, HttpStatus.PAYLOAD_TOO_LARGE, "body_too_large"));
+        }, ORDER);
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, String reason) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+        rejections.computeIfAbsent(routeId + '/' + reason, key -> Counter.builder("gateway.requests.rejected")
+                        .tag("route", routeId)
+                        .tag("reason", reason)
+                        .register(meterRegistry))
+                .increment();
+        if (exchange.getResponse().isCommitted()) {
+            return Mono.empty();
+        }
+        exchange.getResponse().getHeaders().set(HttpHeaders.CONNECTION, "close");
+        return errorResponseWriter.write(exchange, status, status.getReasonPhrase());
+    }
+
+    private static Flux<DataBuffer> limit(Flux<DataBuffer> body, long maxBytes) {
+        return Flux.defer(() -> {
+            long[] received = {0};
+            return body.handle((buffer, sink) -> {
+                received[0] += buffer.readableByteCount();
+                if (received[0] > maxBytes) {
+                    DataBufferUtils.release(buffer);
+                    sink.error(new BodyTooLargeException());
+                } else {
+                    sink.next(buffer);
+                }
+            });
+        });
+    }
+
+    // Size on the wire: name, colon, space, value and CRLF per header line
+    private static long headerBytes(HttpHeaders headers) {
+        long bytes = 0;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                bytes += header.getKey().length() + value.length() + 4;
+            }
+        }
+        return bytes;
+    }
+
+    // A 4xx, so ResilienceFilter passes it through instead of counting it against the upstream
+    private static final class BodyTooLargeException extends ResponseStatusException {
+
+        BodyTooLargeException() {
+            super(HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large");
+        }
+    }
+
+    public static class Config {
+
+        private DataSize maxBodySize = DataSize.ofMegabytes(1);
+
+        // Unset leaves headers to the server-wide server.max-http-request-header-size
+        private DataSize maxHeaderSize;
+
+        public DataSize getMaxBodySize() {
+            return maxBodySize;
+        }
+
+        public Config setMaxBodySize(DataSize maxBodySize) {
+            this.maxBodySize = maxBodySize;
+            return this;
+        }
+
+        public DataSize getMaxHeaderSize() {
+            return maxHeaderSize;
+        }
+
+        public Config setMaxHeaderSize(DataSize maxHeaderSize) {
+            this.maxHeaderSize = maxHeaderSize;
+            return this;
+        }
+    }
+}
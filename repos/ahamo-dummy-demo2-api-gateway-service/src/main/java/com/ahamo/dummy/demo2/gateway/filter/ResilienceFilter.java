@@ -0,0 +1,260 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.exception.ErrorResponseWriter;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+@Slf4j
+@Component
+public class ResilienceFilter extends AbstractGatewayFilterFactory<ResilienceFilter.Config> {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final TimeLimiterRegistry timeLimiterRegistry;
+    private final ErrorResponseWriter errorResponseWriter;
+    private final MeterRegistry meterRegistry;
+
+    public ResilienceFilter(CircuitBreakerRegistry circuitBreakerRegistry,
+                            BulkheadRegistry bulkheadRegistry,
+                            TimeLimiterRegistry timeLimiterRegistry,
+                            ErrorResponseWriter errorResponseWriter,
+                            MeterRegistry meterRegistry) {
+        super(Config.class);
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.timeLimiterRegistry = timeLimiterRegistry;
+        this.errorResponseWriter = errorResponseWriter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        Map<String, Policy> policies = new ConcurrentHashMap<>();
+
+        return (exchange, chain) -> {
+            Policy policy = policyFor(exchange, config, policies);
+
+            // Bulkhead instances must be configured with maxWaitDuration 0, this runs on the event loop
+            if (!policy.bulkhead.tryAcquirePermission()) {
+                policy.bulkheadFull.increment();
+                return fallback(exchange, HttpStatus.SERVICE_UNAVAILABLE, config.getBulkheadFullMessage(), null);
+            }
+            if (!policy.circuitBreaker.tryAcquirePermission()) {
+                policy.bulkhead.onComplete();
+                policy.circuitOpen.increment();
+                return fallback(exchange, HttpStatus.SERVICE_UNAVAILABLE, config.getCircuitOpenMessage(), policy.retryAfter());
+            }
+
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                    .timeout(policy.timeout)
+                    .doOnSuccess(done -> {
+                        HttpStatusCode status = exchange.getResponse().getStatusCode();
+                        long elapsed = System.nanoTime() - start;
+                        policy.timeLimiter.onSuccess();
+                        if (status != null && config.getFailureStatuses().contains(status.value())) {
+                            policy.circuitBreaker.onError(elapsed, TimeUnit.NANOSECONDS, new UpstreamStatusException(status));
+                        } else {
+                            policy.circuitBreaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+                        }
+                    })
+                    .onErrorResume(error -> {
+                        // The client's fault, such as an oversized body, so it says nothing about the upstream
+                        if (error instanceof ResponseStatusException status && status.getStatusCode().is4xxClientError()) {
+                            policy.circuitBreaker.releasePermission();
+                            return Mono.error(error);
+                        }
+                        policy.circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, error);
+                        if (error instanceof TimeoutException) {
+                            policy.timeLimiter.onError(error);
+                            policy.timedOut.increment();
+                            return fallback(exchange, HttpStatus.GATEWAY_TIMEOUT, config.getTimeoutMessage(), null);
+                        }
+                        log.debug("Upstream call for {} failed: {}", policy.name, error.toString());
+                        return fallback(exchange, HttpStatus.SERVICE_UNAVAILABLE, config.getFailureMessage(), null);
+                    })
+                    .doOnCancel(policy.circuitBreaker::releasePermission)
+                    .doFinally(signal -> policy.bulkhead.onComplete());
+        };
+    }
+
+    private Mono<Void> fallback(ServerWebExchange exchange, HttpStatus status, String message, Duration retryAfter) {
+        Connection connection = exchange.getAttributes().remove(CLIENT_RESPONSE_CONN_ATTR) instanceof Connection c ? c : null;
+        if (connection != null) {
+            connection.dispose();
+        }
+        if (exchange.getResponse().isCommitted()) {
+            return Mono.empty();
+        }
+        if (retryAfter != null) {
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfter.toSeconds())));
+        }
+        return errorResponseWriter.write(exchange, status, message);
+    }
+
+    private Policy policyFor(ServerWebExchange exchange, Config config, Map<String, Policy> policies) {
+        String name = config.getName();
+        if (name == null) {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            name = route != null ? route.getId() : "default";
+        }
+        Policy policy = policies.get(name);
+        if (policy == null) {
+            policy = policies.computeIfAbsent(name, n -> new Policy(n, config));
+        }
+        return policy;
+    }
+
+    private final class Policy {
+
+        private final String name;
+        private final CircuitBreaker circuitBreaker;
+        private final Bulkhead bulkhead;
+        private final TimeLimiter timeLimiter;
+        private final Duration timeout;
+        private final Counter circuitOpen;
+        private final Counter bulkheadFull;
+        private final Counter timedOut;
+
+        private Policy(String name, Config config) {
+            this.name = name;
+            this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+            this.bulkhead = bulkheadRegistry.bulkhead(name);
+            this.timeLimiter = timeLimiterRegistry.timeLimiter(name);
+            this.timeout = config.getTimeout() != null
+                    ? config.getTimeout()
+                    : timeLimiter.getTimeLimiterConfig().getTimeoutDuration();
+            this.circuitOpen = rejections(name, "circuit_open");
+            this.bulkheadFull = rejections(name, "bulkhead_full");
+            this.timedOut = rejections(name, "timeout");
+        }
+
+        private Duration retryAfter() {
+            long waitMillis = circuitBreaker.getCircuitBreakerConfig().getWaitIntervalFunctionInOpenState().apply(1);
+            return Duration.ofMillis(waitMillis);
+        }
+
+        private Counter rejections(String name, String reason) {
+            return Counter.builder("gateway.resilience.rejections")
+                    .description("Requests answered by the gateway fallback instead of the upstream")
+                    .tag("name", name)
+                    .tag("reason", reason)
+                    .register(meterRegistry);
+        }
+    }
+
+    static final class UpstreamStatusException extends RuntimeException {
+
+        UpstreamStatusException(HttpStatusCode status) {
+            super("Upstream responded with " + status.value(), null, false, false);
+        }
+    }
+
+    public static class Config {
+
+        private String name;
+
+        private Duration timeout;
+
+        private Set<Integer> failureStatuses = Set.of(500, 502, 503, 504);
+
+        private String circuitOpenMessage = "Service temporarily unavailable";
+
+        private String bulkheadFullMessage = "Service is at capacity";
+
+        private String timeoutMessage = "Upstream service timed out";
+
+        private String failureMessage = "Service temporarily unavailable";
+
+        public String getName() {
+            return name;
+        }
+
+        public Config setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public Config setTimeout(Duration timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Set<Integer> getFailureStatuses() {
+            return failureStatuses;
+        }
+
+        public Config setFailureStatuses(Set<Integer> failureStatuses) {
+            this.failureStatuses = failureStatuses;
+            return this;
+        }
+
+        public String getCircuitOpenMessage() {
+            return circuitOpenMessage;
+        }
+
+        public Config setCircuitOpenMessage(String circuitOpenMessage) {
+            this.circuitOpenMessage = circuitOpenMessage;
+            return this;
+        }
+
+        public String getBulkheadFullMessage() {
+            return bulkheadFullMessage;
+        }
+
+        public Config setBulkheadFullMessage(String bulkheadFullMessage) {
+            this.bulkheadFullMessage = bulkheadFullMessage;
+            return this;
+        }
+
+        public String getTimeoutMessage() {
+            return timeoutMessage;
+        }
+
+        public Config setTimeoutMessage(String timeoutMessage) {
+            this.timeoutMessage = timeoutMessage;
+            return this;
+        }
+
+        public String getFailureMessage() {
+            return failureMessage;
+        }
+
+        public Config setFailureMessage(String failureMessage) {
+            this.failureMessage = failureMessage;
+            return this;
+        }
+    }
+}
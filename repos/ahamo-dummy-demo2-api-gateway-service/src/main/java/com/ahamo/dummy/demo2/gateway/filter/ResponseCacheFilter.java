@@ -0,0 +1,384 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.cache.CacheDirectives;
+import com.ahamo.dummy.demo2.gateway.cache.CachedResponse;
+import com.ahamo.dummy.demo2.gateway.cache.ResponseCache;
+import com.ahamo.dummy.demo2.gateway.metrics.RequestTiming;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.AbstractServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class ResponseCacheFilter extends AbstractGatewayFilterFactory<ResponseCacheFilter.Config> {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    private static final List<String> NOT_MODIFIED_HEADERS = List.of(
+            HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.EXPIRES,
+            HttpHeaders.LAST_MODIFIED, HttpHeaders.VARY);
+
+    private static final List<String> REVALIDATION_SKIPPED_HEADERS = List.of(
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.CACHE_CONTROL);
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheFilter(ResponseCache responseCache) {
+        super(Config.class);
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Must wrap the response before NettyWriteResponseFilter grabs it, so run ahead of it like ModifyResponseBody
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            String key = cacheKey(request);
+
+            if (request.getMethod() != HttpMethod.GET) {
+                if (request.getMethod() == HttpMethod.HEAD || request.getMethod() == HttpMethod.OPTIONS) {
+                    return chain.filter(exchange);
+                }
+                return chain.filter(exchange).doOnSuccess(done -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is2xxSuccessful()) {
+                        responseCache.invalidate(key);
+                    }
+                });
+            }
+
+            CacheDirectives requestDirectives = CacheDirectives.parse(request.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+            if (requestDirectives.noStore()) {
+                responseCache.record(ResponseCache.Outcome.BYPASS);
+                return chain.filter(exchange);
+            }
+
+            CachedResponse cached = requestDirectives.noCache() ? null : responseCache.get(key);
+            if (cached != null && cached.matches(request.getHeaders())) {
+                long now = System.nanoTime();
+                if (cached.isFresh(now)) {
+                    return serve(exchange, cached, ResponseCache.Outcome.HIT);
+                }
+                if (cached.isServableWhileRevalidating(now)) {
+                    revalidate(exchange, chain, key, cached, config);
+                    return serve(exchange, cached, ResponseCache.Outcome.STALE);
+                }
+            }
+
+            responseCache.record(ResponseCache.Outcome.MISS);
+            exchange.getResponse().getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            return chain.filter(exchange.mutate()
+                    .response(new CachingResponse(exchange.getResponse(), request.getHeaders(), key, config))
+                    .build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, CachedResponse cached, ResponseCache.Outcome outcome) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        String cacheStatus = outcome == ResponseCache.Outcome.HIT ? "HIT" : "STALE";
+
+        if (etagMatches(exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH), cached.etag())) {
+            responseCache.record(ResponseCache.Outcome.NOT_MODIFIED);
+            for (String name : NOT_MODIFIED_HEADERS) {
+                List<String> values = cached.headers().get(name);
+                if (values != null) {
+                    headers.put(name, values);
+                }
+            }
+            headers.set(HttpHeaders.AGE, Long.toString(cached.ageSeconds()));
+            headers.set(CACHE_STATUS_HEADER, cacheStatus);
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+
+        responseCache.record(outcome);
+        headers.putAll(cached.headers());
+        headers.setContentLength(cached.size());
+        headers.set(HttpHeaders.AGE, Long.toString(cached.ageSeconds()));
+        headers.set(CACHE_STATUS_HEADER, cacheStatus);
+        response.setStatusCode(HttpStatusCode.valueOf(cached.status()));
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+    }
+
+    // Sent down the rest of the route's filter chain like any other upstream call, so identity headers are rebuilt,
+    // the route's resilience policies apply and the call is accounted to the upstream instance that serves it
+    private void revalidate(ServerWebExchange exchange, GatewayFilterChain chain, String key, CachedResponse cached,
+                            Config config) {
+        if (!cached.startRevalidation()) {
+            return;
+        }
+        RevalidationExchange revalidation = new RevalidationExchange(exchange, cached.etag(), key, config);
+        chain.filter(revalidation)
+                .then(Mono.fromRunnable(() -> onRevalidated(revalidation, key, cached, config)))
+                .timeout(config.getRevalidationTimeout())
+                .doFinally(signal -> cached.endRevalidation())
+                .subscribe(null, error -> {
+                    responseCache.record(ResponseCache.Revalidation.FAILED);
+                    log.debug("Background revalidation of {} failed: {}", key, error.getMessage());
+                });
+    }
+
+    private void onRevalidated(RevalidationExchange revalidation, String key, CachedResponse cached, Config config) {
+        CachingResponse response = revalidation.getResponse();
+        HttpStatusCode status = response.getStatusCode();
+        HttpHeaders headers = response.getHeaders();
+
+        if (status != null && status.value() == HttpStatus.NOT_MODIFIED.value()) {
+            CacheDirectives directives = CacheDirectives.parse(headers.getFirst(HttpHeaders.CACHE_CONTROL));
+            responseCache.record(ResponseCache.Revalidation.NOT_MODIFIED);
+            if (directives.isStorable()
+                    && (!isAuthorized(revalidation.getRequest().getHeaders()) || directives.allowsSharingAuthorized())) {
+                responseCache.put(key, cached.refreshed(
+                        directives.freshness(headers, config.getDefaultTtl()).toNanos(),
+                        directives.staleWhileRevalidate(config.getStaleWhileRevalidate()).toNanos()));
+            } else {
+                responseCache.invalidate(key);
+            }
+            return;
+        }
+        if (response.isStored()) {
+            responseCache.record(ResponseCache.Revalidation.UPDATED);
+            return;
+        }
+        responseCache.record(ResponseCache.Revalidation.FAILED);
+        // Shed, rate limited or failed calls leave the stale copy to run out its stale-while-revalidate window
+        if (status != null && !status.is5xxServerError() && status.value() != HttpStatus.TOO_MANY_REQUESTS.value()) {
+            responseCache.invalidate(key);
+        }
+    }
+
+    // Responses to authorized requests are stored only when they allow it, so any entry may be served to anyone
+    private static boolean isStorable(HttpHeaders headers, CacheDirectives directives, Config config,
+                                      boolean authorized) {
+        if (!directives.isStorable() || headers.containsKey(HttpHeaders.SET_COOKIE) || headers.getVary().contains("*")
+                || authorized && !directives.allowsSharingAuthorized()) {
+            return false;
+        }
+        Duration freshness = directives.freshness(headers, config.getDefaultTtl());
+        return freshness.compareTo(Duration.ZERO) > 0 || directives.staleWhileRevalidateSeconds() > 0;
+    }
+
+    private static boolean isAuthorized(HttpHeaders requestHeaders) {
+        return requestHeaders.containsKey(HttpHeaders.AUTHORIZATION);
+    }
+
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String weakEtag = stripWeak(etag);
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(candidate -> candidate.equals("*") || stripWeak(candidate).equals(weakEtag));
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static String cacheKey(ServerHttpRequest request) {
+        URI uri = request.getURI();
+        return uri.getRawQuery() != null ? uri.getRawPath() + '?' + uri.getRawQuery() : uri.getRawPath();
+    }
+
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders requestHeaders;
+        private final String key;
+        private final Config config;
+        private boolean stored;
+
+        private CachingResponse(ServerHttpResponse delegate, HttpHeaders requestHeaders, String key, Config config) {
+            super(delegate);
+            this.requestHeaders = requestHeaders;
+            this.key = key;
+            this.config = config;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            HttpHeaders headers = getHeaders();
+            CacheDirectives directives = CacheDirectives.parse(headers.getFirst(HttpHeaders.CACHE_CONTROL));
+            long contentLength = headers.getContentLength();
+            if (status == null || status.value() != HttpStatus.OK.value()
+                    || contentLength > responseCache.maxEntryBytes()
+                    || !isStorable(headers, directives, config, isAuthorized(requestHeaders))) {
+                return super.writeWith(body);
+            }
+
+            BodyCapture capture = new BodyCapture(responseCache.maxEntryBytes(), contentLength);
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(capture::append)
+                    .doOnComplete(() -> {
+                        if (capture.isComplete()) {
+                            responseCache.put(key, CachedResponse.of(status.value(), headers, requestHeaders,
+                                    capture.bytes(), capture.length(),
+                                    directives.freshness(headers, config.getDefaultTtl()).toNanos(),
+                                    directives.staleWhileRevalidate(config.getStaleWhileRevalidate()).toNanos()));
+                            stored = true;
+                        }
+                    }));
+        }
+
+        boolean isStored() {
+            return stored;
+        }
+    }
+
+    /**
+     * The client's request replayed as a conditional GET for the cached entry, with a response that goes to the
+     * cache only. Attributes are copied, so the routing state it picks up does not leak into the exchange the stale
+     * entry was served to.
+     */
+    private class RevalidationExchange extends ServerWebExchangeDecorator {
+
+        private final ServerHttpRequest request;
+        private final CachingResponse response;
+        private final Map<String, Object> attributes;
+
+        RevalidationExchange(ServerWebExchange exchange, String etag, String key, Config config) {
+            super(exchange);
+            HttpHeaders headers = new HttpHeaders();
+            exchange.getRequest().getHeaders().forEach((name, values) -> {
+                if (REVALIDATION_SKIPPED_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                    headers.put(name, List.copyOf(values));
+                }
+            });
+            if (etag != null) {
+                headers.setIfNoneMatch(etag);
+            }
+            this.request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+                @Override
+                public HttpHeaders getHeaders() {
+                    return headers;
+                }
+
+                @Override
+                public Flux<DataBuffer> getBody() {
+                    return Flux.empty();
+                }
+            };
+            this.response = new CachingResponse(new DetachedResponse(), headers, key, config);
+            this.attributes = new ConcurrentHashMap<>(exchange.getAttributes());
+            // Upstream timing belongs to the request the stale entry was served to
+            attributes.remove(RequestTiming.ATTRIBUTE);
+        }
+
+        @Override
+        public ServerHttpRequest getRequest() {
+            return request;
+        }
+
+        @Override
+        public CachingResponse getResponse() {
+            return response;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+
+    // Takes the revalidation response's status, headers and body and discards them once the cache has seen them
+    private static final class DetachedResponse extends AbstractServerHttpResponse {
+
+        DetachedResponse() {
+            super(DefaultDataBufferFactory.sharedInstance);
+        }
+
+        @Override
+        public <T> T getNativeResponse() {
+            throw new IllegalStateException("Revalidation responses are not sent to a client");
+        }
+
+        @Override
+        protected Mono<Void> writeWithInternal(Publisher<? extends DataBuffer> body) {
+            return Flux.from(body).doOnNext(DataBufferUtils::release).then();
+        }
+
+        @Override
+        protected Mono<Void> writeAndFlushWithInternal(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return Flux.from(body).concatMap(Flux::from).doOnNext(DataBufferUtils::release).then();
+        }
+
+        @Override
+        protected void applyStatusCode() {
+        }
+
+        @Override
+        protected void applyHeaders() {
+        }
+
+        @Override
+        protected void applyCookies() {
+        }
+    }
+
+    public static class Config {
+
+        private Duration defaultTtl = Duration.ZERO;
+
+        private Duration staleWhileRevalidate = Duration.ofSeconds(30);
+
+        private Duration revalidationTimeout = Duration.ofSeconds(5);
+
+        public Duration getDefaultTtl() {
+            return defaultTtl;
+        }
+
+        public Config setDefaultTtl(Duration defaultTtl) {
+            this.defaultTtl = defaultTtl;
+            return this;
+        }
+
+        public Duration getStaleWhileRevalidate() {
+            return staleWhileRevalidate;
+        }
+
+        public Config setStaleWhileRevalidate(Duration staleWhileRevalidate) {
+            this.staleWhileRevalidate = staleWhileRevalidate;
+            return this;
+        }
+
+        public Duration getRevalidationTimeout() {
+            return revalidationTimeout;
+        }
+
+        public Config setRevalidationTimeout(Duration revalidationTimeout) {
+            this.revalidationTimeout = revalidationTimeout;
+            return this;
+        }
+    }
+}
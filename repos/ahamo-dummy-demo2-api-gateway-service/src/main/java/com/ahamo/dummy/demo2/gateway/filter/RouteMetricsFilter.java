@@ -0,0 +1,49 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.metrics.RequestTiming;
+import com.ahamo.dummy.demo2.gateway.metrics.RouteMetrics;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+@Component
+public class RouteMetricsFilter implements GlobalFilter, Ordered {
+
+    private final RouteMetrics routeMetrics;
+
+    public RouteMetricsFilter(RouteMetrics routeMetrics) {
+        this.routeMetrics = routeMetrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+
+        RouteMetrics.RouteMeters meters = routeMetrics.forRoute(route.getId());
+        RequestTiming timing = new RequestTiming(System.nanoTime());
+        exchange.getAttributes().put(RequestTiming.ATTRIBUTE, timing);
+        meters.requestStarted();
+
+        return chain.filter(exchange).doFinally(signal -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            meters.requestCompleted(System.nanoTime() - timing.startNanos(),
+                    timing.upstreamNanos(),
+                    status != null ? status.value() : 0);
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,79 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.loadbalancer.UpstreamInstance;
+import com.ahamo.dummy.demo2.gateway.loadbalancer.UpstreamPool;
+import com.ahamo.dummy.demo2.gateway.loadbalancer.UpstreamPools;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.addOriginalRequestUrl;
+
+@Component
+public class UpstreamPoolFilter implements GlobalFilter, Ordered {
+
+    public static final String INSTANCE_ATTRIBUTE = UpstreamPoolFilter.class.getName() + ".instance";
+
+    // ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER, without needing spring-cloud-loadbalancer
+    private static final int ORDER = 10150;
+
+    private final UpstreamPools upstreamPools;
+
+    public UpstreamPoolFilter(UpstreamPools upstreamPools) {
+        this.upstreamPools = upstreamPools;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        if (url == null || !UpstreamPools.SCHEME.equals(url.getScheme())) {
+            return chain.filter(exchange);
+        }
+
+        UpstreamPool pool = upstreamPools.get(url.getHost());
+        if (pool == null) {
+            return Mono.error(NotFoundException.create(true, "No upstream pool named " + url.getHost()));
+        }
+        UpstreamInstance instance = pool.choose();
+        addOriginalRequestUrl(exchange, url);
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, instance.resolve(url));
+        exchange.getAttributes().put(INSTANCE_ATTRIBUTE, instance);
+
+        long start = instance.start();
+        return chain.filter(exchange)
+                .doOnSuccess(done -> {
+                    if (hedgeWon(exchange)) {
+                        instance.cancel();
+                        return;
+                    }
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    instance.complete(start, status == null || !UpstreamInstance.isFailureStatus(status.value()));
+                })
+                .doOnError(error -> {
+                    if (hedgeWon(exchange)) {
+                        instance.cancel();
+                    } else {
+                        instance.complete(start, false);
+                    }
+                })
+                .doOnCancel(instance::cancel);
+    }
+
+    // The hedge went to another instance and records its own outcome; this instance's attempt was cancelled
+    private static boolean hedgeWon(ServerWebExchange exchange) {
+        return Boolean.TRUE.equals(exchange.getAttribute(HedgedRoutingFilter.HEDGE_WON_ATTRIBUTE));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
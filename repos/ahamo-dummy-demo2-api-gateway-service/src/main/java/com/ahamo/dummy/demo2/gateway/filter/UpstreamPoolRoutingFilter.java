@@ -0,0 +1,60 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.loadbalancer.UpstreamInstance;
+import com.ahamo.dummy.demo2.gateway.loadbalancer.UpstreamPool;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
+
+/**
+ * Routes requests for upstream pool instances over the pool's own connection pool. Everything else is left to
+ * the stock NettyRoutingFilter, which skips exchanges this filter has already routed.
+ */
+@Component
+public class UpstreamPoolRoutingFilter extends NettyRoutingFilter {
+
+    public UpstreamPoolRoutingFilter(HttpClient httpClient,
+                                     ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+                                     HttpClientProperties properties) {
+        super(httpClient, headersFiltersProvider, properties);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (exchange.getAttribute(UpstreamPoolFilter.INSTANCE_ATTRIBUTE) == null) {
+            return chain.filter(exchange);
+        }
+        return super.filter(exchange, chain);
+    }
+
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        UpstreamInstance instance = exchange.getRequiredAttribute(UpstreamPoolFilter.INSTANCE_ATTRIBUTE);
+        UpstreamPool pool = instance.pool();
+        HttpClient client = pool.httpClient();
+        Object connectTimeout = route.getMetadata().get(CONNECT_TIMEOUT_ATTR);
+        if (connectTimeout != null) {
+            client = client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Integer.parseInt(connectTimeout.toString()));
+        }
+        long start = System.nanoTime();
+        return client.doOnRequest((request, connection) -> pool.recordAcquire(System.nanoTime() - start));
+    }
+
+    // Ahead of the stock routing filter, behind HedgedRoutingFilter so both attempts use the pool's connections
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+}
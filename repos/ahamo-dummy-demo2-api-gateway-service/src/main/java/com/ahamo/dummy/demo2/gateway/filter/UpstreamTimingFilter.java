@@ -0,0 +1,33 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.metrics.RequestTiming;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+@Component
+public class UpstreamTimingFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTiming timing = RequestTiming.get(exchange);
+        if (timing == null) {
+            return chain.filter(exchange);
+        }
+
+        timing.upstreamStarted(System.nanoTime());
+        return chain.filter(exchange)
+                .doOnTerminate(() -> timing.upstreamCompleted(System.nanoTime()))
+                .doOnCancel(() -> timing.upstreamCompleted(System.nanoTime()));
+    }
+
+    // Outside HedgedRoutingFilter so hedged requests are timed as the client sees them
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 3;
+    }
+}
@@ -0,0 +1,16 @@
+package com.ahamo.dummy.demo2.gateway.identity;
+
+import java.util.List;
+
+public final class IdentityHeaders {
+
+    public static final String SUBJECT = "X-Auth-Subject";
+    public static final String ROLES = "X-Auth-Roles";
+    public static final String EXPIRES = "X-Auth-Expires";
+    public static final String SIGNATURE = "X-Auth-Signature";
+
+    public static final List<String> ALL = List.of(SUBJECT, ROLES, EXPIRES, SIGNATURE);
+
+    private IdentityHeaders() {
+    }
+}
@@ -0,0 +1,40 @@
+package com.ahamo.dummy.demo2.gateway.identity;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+public class IdentitySigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> mac;
+
+    public IdentitySigner(String secret) {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Unable to initialise " + ALGORITHM, e);
+            }
+        });
+    }
+
+    public String sign(String subject, String roles, long expiresAtEpochSecond) {
+        byte[] signature = mac.get().doFinal(payload(subject, roles, expiresAtEpochSecond));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    byte[] rawSignature(String subject, String roles, long expiresAtEpochSecond) {
+        return mac.get().doFinal(payload(subject, roles, expiresAtEpochSecond));
+    }
+
+    private static byte[] payload(String subject, String roles, long expiresAtEpochSecond) {
+        return (subject + '\n' + roles + '\n' + expiresAtEpochSecond).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,60 @@
+package com.ahamo.dummy.demo2.gateway.identity;
+
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+public class IdentityVerifier {
+
+    private final IdentitySigner signer;
+    private final long clockSkewSeconds;
+
+    public IdentityVerifier(String secret) {
+        this(secret, 30);
+    }
+
+    public IdentityVerifier(String secret, long clockSkewSeconds) {
+        this.signer = new IdentitySigner(secret);
+        this.clockSkewSeconds = clockSkewSeconds;
+    }
+
+    public Optional<VerifiedIdentity> verify(Function<String, String> headerLookup) {
+        return verify(headerLookup.apply(IdentityHeaders.SUBJECT),
+                headerLookup.apply(IdentityHeaders.ROLES),
+                headerLookup.apply(IdentityHeaders.EXPIRES),
+                headerLookup.apply(IdentityHeaders.SIGNATURE));
+    }
+
+    public Optional<VerifiedIdentity> verify(String subject, String roles, String expires, String signature) {
+        if (subject == null || expires == null || signature == null) {
+            return Optional.empty();
+        }
+        String roleList = roles != null ? roles : "";
+
+        long expiresAt;
+        byte[] presented;
+        try {
+            expiresAt = Long.parseLong(expires);
+            presented = Base64.getUrlDecoder().decode(signature);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        if (expiresAt + clockSkewSeconds < System.currentTimeMillis() / 1000) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(presented, signer.rawSignature(subject, roleList, expiresAt))) {
+            return Optional.empty();
+        }
+        return Optional.of(new VerifiedIdentity(subject, parseRoles(roleList), expiresAt));
+    }
+
+    private static List<String> parseRoles(String roles) {
+        if (roles.isEmpty()) {
+            return List.of();
+        }
+        return List.of(roles.split(","));
+    }
+}
@@ -0,0 +1,10 @@
+package com.ahamo.dummy.demo2.gateway.identity;
+
+import java.util.List;
+
+public record VerifiedIdentity(String subject, List<String> roles, long expiresAtEpochSecond) {
+
+    public boolean hasRole(String role) {
+        return roles.contains(role);
+    }
+}
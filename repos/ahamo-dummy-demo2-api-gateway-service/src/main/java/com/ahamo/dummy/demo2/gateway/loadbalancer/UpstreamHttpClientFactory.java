@@ -0,0 +1,87 @@
+package com.ahamo.dummy.demo2.gateway.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.stereotype.Component;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.List;
+
+/**
+ * Builds the HTTP client of an upstream pool: the same decoder, connect timeout, proxy, TLS and customizer setup
+ * as the gateway's shared client, but on a connection pool of its own so one slow upstream cannot exhaust the
+ * connections of every other route.
+ */
+@Component
+public class UpstreamHttpClientFactory {
+
+    private final HttpClientProperties properties;
+    private final ServerProperties serverProperties;
+    private final HttpClientSslConfigurer sslConfigurer;
+    private final List<HttpClientCustomizer> customizers;
+
+    public UpstreamHttpClientFactory(HttpClientProperties properties, ServerProperties serverProperties,
+                                     HttpClientSslConfigurer sslConfigurer,
+                                     ObjectProvider<HttpClientCustomizer> customizers) {
+        this.properties = properties;
+        this.serverProperties = serverProperties;
+        this.sslConfigurer = sslConfigurer;
+        this.customizers = customizers.orderedStream().toList();
+    }
+
+    public HttpClient create(String pool, UpstreamPoolProperties.Connections connections) {
+        boolean h2c = connections.getProtocol() == UpstreamPoolProperties.Protocol.H2C;
+        HttpClient client = new PoolHttpClientFactory(properties, serverProperties, sslConfigurer, customizers,
+                connectionProvider(pool, connections)).build()
+                .keepAlive(connections.isKeepAlive());
+        return h2c ? client.protocol(HttpProtocol.H2C) : client.protocol(HttpProtocol.HTTP11);
+    }
+
+    // Metrics land in the global registry as reactor.netty.connection.provider.* tagged name=upstream-<pool>
+    static ConnectionProvider connectionProvider(String pool, UpstreamPoolProperties.Connections connections) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("upstream-" + pool)
+                .pendingAcquireMaxCount(connections.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(connections.getPendingAcquireTimeout())
+                .maxIdleTime(connections.getMaxIdleTime())
+                .maxLifeTime(connections.getMaxLifeTime())
+                .evictInBackground(connections.getEvictInBackground())
+                .metrics(true);
+        if (connections.getProtocol() == UpstreamPoolProperties.Protocol.H2C) {
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConnections(connections.getMaxConnections())
+                    .maxConcurrentStreams(connections.getMaxConcurrentStreams())
+                    .build());
+        } else {
+            builder.maxConnections(connections.getMaxConnections());
+        }
+        return builder.build();
+    }
+
+    private static final class PoolHttpClientFactory extends HttpClientFactory {
+
+        private final ConnectionProvider connectionProvider;
+
+        PoolHttpClientFactory(HttpClientProperties properties, ServerProperties serverProperties,
+                              HttpClientSslConfigurer sslConfigurer, List<HttpClientCustomizer> customizers,
+                              ConnectionProvider connectionProvider) {
+            super(properties, serverProperties, sslConfigurer, customizers);
+            this.connectionProvider = connectionProvider;
+        }
+
+        @Override
+        protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+            return connectionProvider;
+        }
+
+        HttpClient build() {
+            return createInstance();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ahamo.dummy.demo2.gateway.loadbalancer;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class UpstreamInstance {
+
+    // Cost of an instance with requests outstanding but no latency observed yet, so it is not flooded on startup
+    private static final double UNKNOWN_LATENCY_PENALTY = 1e12;
+
+    private final UpstreamPool pool;
+    private final URI uri;
+    private final double decayNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private double ewmaNanos;
+    private long stampNanos;
+    private int consecutiveFailures;
+
+    private volatile boolean ejected;
+    private volatile long ejectedUntilNanos;
+
+    UpstreamInstance(UpstreamPool pool, URI uri, double decayNanos) {
+        this.pool = pool;
+        this.uri = uri;
+        this.decayNanos = decayNanos;
+        this.stampNanos = System.nanoTime();
+    }
+
+    public UpstreamPool pool() {
+        return pool;
+    }
+
+    public URI uri() {
+        return uri;
+    }
+
+    public URI resolve(URI requestUrl) {
+        return UriComponentsBuilder.fromUri(requestUrl)
+                .scheme(uri.getScheme())
+                .host(uri.getHost())
+                .port(uri.getPort())
+                .build(true)
+                .toUri();
+    }
+
+    public long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    public void complete(long startNanos, boolean success) {
+        inFlight.decrementAndGet();
+        long now = System.nanoTime();
+        observe(now - startNanos, now);
+        pool.onOutcome(this, success, now);
+    }
+
+    public boolean isEjected() {
+        return ejected;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    // Peak EWMA: a slower sample replaces the average at once, faster samples pull it down gradually
+    synchronized void observe(long rttNanos, long nowNanos) {
+        double weight = Math.exp(-Math.max(0, nowNanos - stampNanos) / decayNanos);
+        stampNanos = nowNanos;
+        ewmaNanos = rttNanos > ewmaNanos ? rttNanos : ewmaNanos * weight + rttNanos * (1 - weight);
+    }
+
+    synchronized double latencyNanos(long nowNanos) {
+        return ewmaNanos * Math.exp(-Math.max(0, nowNanos - stampNanos) / decayNanos);
+    }
+
+    double cost(long nowNanos) {
+        double latency = latencyNanos(nowNanos);
+        int active = inFlight.get();
+        if (latency == 0 && active > 0) {
+            return UNKNOWN_LATENCY_PENALTY + active;
+        }
+        return latency * (active + 1);
+    }
+
+    synchronized int recordOutcome(boolean success) {
+        consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+        return consecutiveFailures;
+    }
+
+    void eject(long untilNanos) {
+        ejectedUntilNanos = untilNanos;
+        ejected = true;
+    }
+
+    void readmit() {
+        synchronized (this) {
+            consecutiveFailures = 0;
+        }
+        ejected = false;
+    }
+
+    long ejectedUntilNanos() {
+        return ejectedUntilNanos;
+    }
+
+    public static boolean isFailureStatus(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package com.ahamo.dummy.demo2.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public final class UpstreamPool {
+
+    private final String name;
+    private final UpstreamPoolProperties.Pool config;
+    private final List<UpstreamInstance> instances;
+    private final int maxEjected;
+    private final Counter ejections;
+    private final HttpClient httpClient;
+    private final Timer acquireTimer;
+
+    UpstreamPool(String name, UpstreamPoolProperties.Pool config, HttpClient httpClient, MeterRegistry meterRegistry) {
+        if (config.getInstances().isEmpty()) {
+            throw new IllegalStateException("Upstream pool " + name + " has no instances");
+        }
+        this.name = name;
+        this.config = config;
+        this.httpClient = httpClient;
+        double decayNanos = config.getDecayTime().toNanos();
+        this.instances = config.getInstances().stream()
+                .map(uri -> new UpstreamInstance(this, uri, decayNanos))
+                .toList();
+        this.maxEjected = (int) (instances.size() * config.getMaxEjectionPercent() / 100);
+
+        this.ejections = Counter.builder("gateway.upstream.ejections")
+                .tag("pool", name)
+                .register(meterRegistry);
+        this.acquireTimer = Timer.builder("gateway.upstream.connection.acquire")
+                .description("Time from routing a request to its pooled connection being ready to send it")
+                .tag("pool", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("gateway.upstream.instances", this, pool -> pool.instances.size() - pool.ejectedCount())
+                .tag("pool", name).tag("state", "available")
+                .register(meterRegistry);
+        Gauge.builder("gateway.upstream.instances", this, UpstreamPool::ejectedCount)
+                .tag("pool", name).tag("state", "ejected")
+                .register(meterRegistry);
+        for (UpstreamInstance instance : instances) {
+            Gauge.builder("gateway.upstream.inflight", instance, UpstreamInstance::inFlight)
+                    .tag("pool", name).tag("instance", instance.toString())
+                    .register(meterRegistry);
+            Gauge.builder("gateway.upstream.latency.ewma", instance, i -> i.latencyNanos(System.nanoTime()) / 1e9)
+                    .tag("pool", name).tag("instance", instance.toString())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<UpstreamInstance> instances() {
+        return instances;
+    }
+
+    // Runs on the pool's own connection pool; see UpstreamHttpClientFactory
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+
+    public void recordAcquire(long nanos) {
+        acquireTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public UpstreamInstance choose() {
+        return choose(null);
+    }
+
+    // Power of two choices: of two random available instances take the one with the lower peak-EWMA cost
+    public UpstreamInstance choose(UpstreamInstance exclude) {
+        int size = instances.size();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = size > 1 ? (first + 1 + random.nextInt(size - 1)) % size : first;
+        UpstreamInstance a = instances.get(first);
+        UpstreamInstance b = instances.get(second);
+        boolean aUsable = isUsable(a, exclude);
+        boolean bUsable = isUsable(b, exclude) && b != a;
+        if (aUsable && bUsable) {
+            long now = System.nanoTime();
+            return a.cost(now) <= b.cost(now) ? a : b;
+        }
+        if (aUsable) {
+            return a;
+        }
+        if (bUsable) {
+            return b;
+        }
+        for (int i = 1; i < size; i++) {
+            UpstreamInstance candidate = instances.get((first + i) % size);
+            if (isUsable(candidate, exclude)) {
+                return candidate;
+            }
+        }
+        // Everything is ejected: keep spreading load rather than failing every request
+        return a != exclude ? a : b;
+    }
+
+    void onOutcome(UpstreamInstance instance, boolean success, long nowNanos) {
+        int failures = instance.recordOutcome(success);
+        if (success || failures < config.getConsecutiveFailures() || instance.isEjected()) {
+            return;
+        }
+        synchronized (this) {
+            if (instance.isEjected() || ejectedCount() >= maxEjected) {
+                return;
+            }
+            instance.eject(nowNanos + config.getEjectionTime().toNanos());
+        }
+        ejections.increment();
+        log.warn("Ejected {} from upstream pool {} after {} consecutive failures", instance, name, failures);
+    }
+
+    List<UpstreamInstance> dueForProbe(long nowNanos) {
+        return instances.stream()
+                .filter(instance -> instance.isEjected() && nowNanos - instance.ejectedUntilNanos() >= 0)
+                .toList();
+    }
+
+    void readmit(UpstreamInstance instance) {
+        if (instance.isEjected()) {
+            instance.readmit();
+            log.info("Readmitted {} to upstream pool {}", instance, name);
+        }
+    }
+
+    URI probeUri(UpstreamInstance instance) {
+        return instance.uri().resolve(config.getProbePath());
+    }
+
+    UpstreamPoolProperties.Pool config() {
+        return config;
+    }
+
+    Mono<Void> close() {
+        return httpClient.configuration().connectionProvider().disposeLater();
+    }
+
+    private int ejectedCount() {
+        int ejected = 0;
+        for (UpstreamInstance instance : instances) {
+            if (instance.isEjected()) {
+                ejected++;
+            }
+        }
+        return ejected;
+    }
+
+    private static boolean isUsable(UpstreamInstance instance, UpstreamInstance exclude) {
+        return instance != exclude && !instance.isEjected();
+    }
+}
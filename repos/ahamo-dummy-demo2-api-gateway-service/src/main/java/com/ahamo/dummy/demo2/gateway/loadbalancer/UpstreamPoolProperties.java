@@ -0,0 +1,69 @@
+package com.ahamo.dummy.demo2.gateway.loadbalancer;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.upstream")
+public class UpstreamPoolProperties {
+
+    private Map<String, Pool> pools = new LinkedHashMap<>();
+
+    @Data
+    public static class Pool {
+
+        private List<URI> instances = new ArrayList<>();
+
+        private Duration decayTime = Duration.ofSeconds(10);
+
+        private int consecutiveFailures = 5;
+
+        private Duration ejectionTime = Duration.ofSeconds(30);
+
+        private double maxEjectionPercent = 50;
+
+        private Duration probeInterval = Duration.ofSeconds(5);
+
+        private String probePath = "/actuator/health";
+
+        private Duration probeTimeout = Duration.ofSeconds(2);
+
+        private Connections connections = new Connections();
+    }
+
+    // Sizing of the pool's own connection pool, shared by all of its instances
+    @Data
+    public static class Connections {
+
+        // Per instance; with h2c this caps connections and each one carries up to maxConcurrentStreams requests
+        private int maxConnections = 500;
+
+        private int pendingAcquireMaxCount = 1000;
+
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+
+        private Duration evictInBackground = Duration.ofSeconds(30);
+
+        private boolean keepAlive = true;
+
+        private Protocol protocol = Protocol.HTTP11;
+
+        private long maxConcurrentStreams = 100;
+    }
+
+    public enum Protocol {
+        HTTP11,
+        H2C
+    }
+}
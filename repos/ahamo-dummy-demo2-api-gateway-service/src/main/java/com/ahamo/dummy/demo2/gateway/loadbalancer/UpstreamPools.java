@@ -0,0 +1,84 @@
+package com.ahamo.dummy.demo2.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class UpstreamPools {
+
+    public static final String SCHEME = "pool";
+
+    private final Map<String, UpstreamPool> pools = new ConcurrentHashMap<>();
+    private final UpstreamHttpClientFactory httpClientFactory;
+    private final MeterRegistry meterRegistry;
+    private Disposable probeTask;
+
+    public UpstreamPools(UpstreamPoolProperties properties, UpstreamHttpClientFactory httpClientFactory,
+                         MeterRegistry meterRegistry) {
+        this.httpClientFactory = httpClientFactory;
+        this.meterRegistry = meterRegistry;
+        properties.getPools().forEach(this::register);
+    }
+
+    @PostConstruct
+    public void start() {
+        probeTask = Flux.fromIterable(pools.values())
+                .flatMap(pool -> Flux.interval(pool.config().getProbeInterval())
+                        .onBackpressureDrop()
+                        .concatMap(tick -> probe(pool)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (probeTask != null) {
+            probeTask.dispose();
+        }
+        Flux.fromIterable(pools.values())
+                .flatMap(UpstreamPool::close)
+                .then()
+                .block(Duration.ofSeconds(10));
+    }
+
+    public UpstreamPool register(String name, UpstreamPoolProperties.Pool config) {
+        UpstreamPool pool = new UpstreamPool(name, config, httpClientFactory.create(name, config.getConnections()),
+                meterRegistry);
+        pools.put(name, pool);
+        return pool;
+    }
+
+    public UpstreamPool get(String name) {
+        return pools.get(name);
+    }
+
+    // Ejected instances come back only after their ejection time has passed and a probe succeeds
+    Mono<Void> probe(UpstreamPool pool) {
+        return Flux.fromIterable(pool.dueForProbe(System.nanoTime()))
+                .flatMap(instance -> pool.httpClient().get()
+                        .uri(pool.probeUri(instance))
+                        .responseSingle((response, body) -> body.then(Mono.just(response.status().code())))
+                        .timeout(pool.config().getProbeTimeout())
+                        .map(status -> status < 500)
+                        .onErrorResume(error -> {
+                            log.debug("Probe of {} in upstream pool {} failed: {}", instance, pool.name(), error.toString());
+                            return Mono.just(false);
+                        })
+                        .doOnNext(healthy -> {
+                            if (healthy) {
+                                pool.readmit(instance);
+                            }
+                        }))
+                .then();
+    }
+}
@@ -0,0 +1,220 @@
+package com.ahamo.dummy.demo2.gateway.logging;
+
+import com.ahamo.dummy.demo2.gateway.tracing.RequestIds;
+import com.ahamo.dummy.demo2.gateway.tracing.TraceContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+@Component
+public class AccessLogPipeline {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access-log");
+
+    private final AccessLogRecord[] ring;
+    private final int mask;
+    private final int batchSize;
+    private final double sampleRate;
+    private final long idleParkNanos;
+
+    private final AtomicLong claimSequence = new AtomicLong();
+    private volatile long consumerSequence;
+    private volatile boolean running;
+    private Thread consumer;
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter sampledOut;
+
+    public AccessLogPipeline(@Value("${gateway.access-log.capacity:8192}") int capacity,
+                             @Value("${gateway.access-log.batch-size:256}") int batchSize,
+                             @Value("${gateway.access-log.sample-rate:1.0}") double sampleRate,
+                             @Value("${gateway.access-log.flush-interval:20ms}") Duration flushInterval,
+                             MeterRegistry meterRegistry) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new AccessLogRecord[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new AccessLogRecord();
+        }
+        this.mask = size - 1;
+        this.batchSize = batchSize;
+        this.sampleRate = sampleRate;
+        this.idleParkNanos = flushInterval.toNanos();
+
+        this.written = Counter.builder("gateway.access.log.records")
+                .tag("outcome", "written")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("gateway.access.log.records")
+                .tag("outcome", "dropped")
+                .register(meterRegistry);
+        this.sampledOut = Counter.builder("gateway.access.log.records")
+                .tag("outcome", "sampled_out")
+                .register(meterRegistry);
+        Gauge.builder("gateway.access.log.backlog", this, AccessLogPipeline::backlog)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        consumer = new Thread(this::consume, "access-log-writer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            consumer.join(1000);
+        }
+    }
+
+    public void record(long epochMillis, long durationNanos, HttpMethod method, URI uri,
+                       InetSocketAddress remoteAddress, String requestId, String routeId, int status,
+                       TraceContext trace, long upstreamNanos) {
+        // Errors and sampled traces are always kept
+        if (status < 400 && (trace == null || !trace.sampled())
+                && sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            sampledOut.increment();
+            return;
+        }
+
+        long sequence;
+        do {
+            sequence = claimSequence.get();
+            if (sequence - consumerSequence >= ring.length) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimSequence.compareAndSet(sequence, sequence + 1));
+
+        AccessLogRecord slot = ring[(int) sequence & mask];
+        slot.epochMillis = epochMillis;
+        slot.durationNanos = durationNanos;
+        slot.method = method;
+        slot.uri = uri;
+        slot.remoteAddress = remoteAddress;
+        slot.requestId = requestId;
+        slot.routeId = routeId;
+        slot.status = status;
+        slot.trace = trace;
+        slot.upstreamNanos = upstreamNanos;
+        slot.publishedSequence = sequence;
+    }
+
+    public long backlog() {
+        return claimSequence.get() - consumerSequence;
+    }
+
+    int drain(int maxRecords) {
+        long sequence = consumerSequence;
+        int drained = 0;
+        while (drained < maxRecords) {
+            AccessLogRecord slot = ring[(int) sequence & mask];
+            if (slot.publishedSequence != sequence) {
+                break;
+            }
+            ACCESS_LOG.info(encode(slot));
+            slot.clear();
+            sequence++;
+            drained++;
+            consumerSequence = sequence;
+        }
+        if (drained > 0) {
+            written.increment(drained);
+        }
+        return drained;
+    }
+
+    private void consume() {
+        while (running || backlog() > 0) {
+            if (drain(batchSize) == 0) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(idleParkNanos);
+            }
+        }
+    }
+
+    private String encode(AccessLogRecord record) {
+        StringBuilder json = line;
+        json.setLength(0);
+        json.append("{\"timestamp\":\"").append(Instant.ofEpochMilli(record.epochMillis)).append('"');
+        json.append(",\"requestId\":");
+        appendString(json, record.requestId != null ? record.requestId : RequestIds.next());
+        json.append(",\"route\":");
+        appendString(json, record.routeId);
+        json.append(",\"method\":");
+        appendString(json, record.method != null ? record.method.name() : null);
+        json.append(",\"path\":");
+        appendString(json, record.uri != null ? record.uri.getRawPath() : null);
+        json.append(",\"remote\":");
+        appendString(json, record.remoteAddress != null ? record.remoteAddress.getAddress() != null
+                ? record.remoteAddress.getAddress().getHostAddress()
+                : record.remoteAddress.getHostString() : null);
+        json.append(",\"status\":").append(record.status);
+        json.append(",\"durationMicros\":").append(record.durationNanos / 1000);
+        TraceContext trace = record.trace;
+        if (trace != null) {
+            json.append(",\"traceId\":\"").append(trace.traceId()).append('"');
+            if (trace.sampled()) {
+                json.append(",\"span\":{\"id\":\"").append(TraceContext.spanId(trace.spanId())).append('"');
+                if (trace.parentSpanId() != 0) {
+                    json.append(",\"parentId\":\"").append(TraceContext.spanId(trace.parentSpanId())).append('"');
+                }
+                if (record.upstreamNanos >= 0) {
+                    json.append(",\"upstreamMicros\":").append(record.upstreamNanos / 1000);
+                }
+                json.append('}');
+            }
+        }
+        json.append('}');
+        return json.toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,32 @@
+package com.ahamo.dummy.demo2.gateway.logging;
+
+import com.ahamo.dummy.demo2.gateway.tracing.TraceContext;
+import org.springframework.http.HttpMethod;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+final class AccessLogRecord {
+
+    volatile long publishedSequence = -1;
+
+    long epochMillis;
+    long durationNanos;
+    HttpMethod method;
+    URI uri;
+    InetSocketAddress remoteAddress;
+    String requestId;
+    String routeId;
+    int status;
+    TraceContext trace;
+    long upstreamNanos;
+
+    void clear() {
+        method = null;
+        uri = null;
+        remoteAddress = null;
+        requestId = null;
+        routeId = null;
+        trace = null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.ahamo.dummy.demo2.gateway.metrics;
+
+import org.springframework.web.server.ServerWebExchange;
+
+public final class RequestTiming {
+
+    public static final String ATTRIBUTE = RequestTiming.class.getName();
+
+    private final long startNanos;
+    private long upstreamStartNanos;
+    private long upstreamNanos = -1;
+
+    public RequestTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public static RequestTiming get(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    public void upstreamStarted(long nowNanos) {
+        upstreamStartNanos = nowNanos;
+    }
+
+    public void upstreamCompleted(long nowNanos) {
+        if (upstreamStartNanos != 0) {
+            upstreamNanos = nowNanos - upstreamStartNanos;
+        }
+    }
+
+    public long upstreamNanos() {
+        return upstreamNanos;
+    }
+}
@@ -0,0 +1,99 @@
+package com.ahamo.dummy.demo2.gateway.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class RouteMetrics {
+
+    private static final String[] STATUS_CLASSES = {"none", "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RouteMeters> routes = new ConcurrentHashMap<>();
+
+    public RouteMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public RouteMeters forRoute(String routeId) {
+        RouteMeters meters = routes.get(routeId);
+        if (meters == null) {
+            meters = routes.computeIfAbsent(routeId, id -> new RouteMeters(meterRegistry, id));
+        }
+        return meters;
+    }
+
+    public static final class RouteMeters {
+
+        private final Timer total;
+        private final Timer upstream;
+        private final Timer overhead;
+        private final Counter[] responses = new Counter[STATUS_CLASSES.length];
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private RouteMeters(MeterRegistry meterRegistry, String routeId) {
+            this.total = latencyTimer(meterRegistry, "gateway.route.latency", routeId);
+            this.upstream = latencyTimer(meterRegistry, "gateway.route.upstream.latency", routeId);
+            this.overhead = latencyTimer(meterRegistry, "gateway.route.overhead", routeId);
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                responses[i] = Counter.builder("gateway.route.responses")
+                        .tag("route", routeId)
+                        .tag("status", STATUS_CLASSES[i])
+                        .register(meterRegistry);
+            }
+            Gauge.builder("gateway.route.inflight", inFlight, AtomicInteger::get)
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        public void requestStarted() {
+            inFlight.incrementAndGet();
+        }
+
+        public void requestCompleted(long totalNanos, long upstreamNanos, int status) {
+            inFlight.decrementAndGet();
+            total.record(totalNanos, TimeUnit.NANOSECONDS);
+            if (upstreamNanos >= 0) {
+                upstream.record(upstreamNanos, TimeUnit.NANOSECONDS);
+                overhead.record(Math.max(0, totalNanos - upstreamNanos), TimeUnit.NANOSECONDS);
+            }
+            int statusClass = status >= 100 && status < 600 ? status / 100 : 0;
+            responses[statusClass].increment();
+        }
+
+        // Decaying upstream latency percentile, or -1 until enough requests have been seen
+        public long upstreamPercentileNanos(double percentile, long minSamples) {
+            HistogramSnapshot snapshot = upstream.takeSnapshot();
+            if (snapshot.count() < minSamples) {
+                return -1;
+            }
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                if (value.percentile() == percentile && value.value() > 0) {
+                    return (long) value.value(TimeUnit.NANOSECONDS);
+                }
+            }
+            return -1;
+        }
+
+        private static Timer latencyTimer(MeterRegistry meterRegistry, String name, String routeId) {
+            return Timer.builder(name)
+                    .tag("route", routeId)
+                    .publishPercentiles(0.5, 0.95, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(50_000))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry);
+        }
+    }
+}
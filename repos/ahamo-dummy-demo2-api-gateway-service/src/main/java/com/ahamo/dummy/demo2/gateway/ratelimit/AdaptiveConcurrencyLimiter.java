@@ -0,0 +1,103 @@
+package com.ahamo.dummy.demo2.gateway.ratelimit;
+
+import com.ahamo.dummy.demo2.gateway.ratelimit.ConcurrencyLimitProperties.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    private final ConcurrencyLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, String> groupOfRoute = new HashMap<>();
+    private final Map<String, RouteLimiter> routes = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        properties.getGroups().forEach((group, routeIds) ->
+                routeIds.forEach(routeId -> groupOfRoute.put(routeId, group)));
+    }
+
+    // Grouped routes share the group's limiter, which is tagged with the group name; other routes have their own
+    public RouteLimiter forRoute(String routeId) {
+        String name = groupOfRoute.getOrDefault(routeId, routeId);
+        RouteLimiter limiter = routes.get(name);
+        if (limiter == null) {
+            limiter = routes.computeIfAbsent(name, id -> new RouteLimiter(id, properties, meterRegistry));
+        }
+        return limiter;
+    }
+
+    public static final class RouteLimiter {
+
+        private final GradientConcurrencyLimit limit;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Map<Priority, Double> shares = new EnumMap<>(Priority.class);
+        private final Map<Priority, Counter> accepted = new EnumMap<>(Priority.class);
+        private final Map<Priority, Counter> rejected = new EnumMap<>(Priority.class);
+
+        private RouteLimiter(String routeId, ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+            this.limit = new GradientConcurrencyLimit(properties, System.nanoTime());
+            for (Priority priority : Priority.values()) {
+                shares.put(priority, properties.shareOf(priority));
+                accepted.put(priority, counter(meterRegistry, routeId, priority, "accepted"));
+                rejected.put(priority, counter(meterRegistry, routeId, priority, "rejected"));
+            }
+            Gauge.builder("gateway.concurrency.limit", limit, GradientConcurrencyLimit::limit)
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+            Gauge.builder("gateway.concurrency.inflight", inFlight, AtomicInteger::get)
+                    .tag("route", routeId)
+                    .register(meterRegistry);
+        }
+
+        // Lower priorities may only fill their share of the limit, so they are shed first as it contracts
+        public boolean tryAcquire(Priority priority) {
+            int allowed = Math.max(1, (int) (limit.limit() * shares.get(priority)));
+            for (;;) {
+                int current = inFlight.get();
+                if (current >= allowed) {
+                    rejected.get(priority).increment();
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    accepted.get(priority).increment();
+                    return true;
+                }
+            }
+        }
+
+        // A negative RTT means the request never reached the upstream and says nothing about its latency
+        public void release(long upstreamRttNanos) {
+            int current = inFlight.getAndDecrement();
+            if (upstreamRttNanos >= 0) {
+                limit.onSample(upstreamRttNanos, current, System.nanoTime());
+            }
+        }
+
+        public int limit() {
+            return limit.limit();
+        }
+
+        public int inFlight() {
+            return inFlight.get();
+        }
+
+        private static Counter counter(MeterRegistry meterRegistry, String routeId, Priority priority, String result) {
+            return Counter.builder("gateway.concurrency.requests")
+                    .tag("route", routeId)
+                    .tag("priority", priority.name().toLowerCase())
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.ahamo.dummy.demo2.gateway.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "rate-limit.concurrency")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+
+    private int initialLimit = 100;
+
+    private int minLimit = 10;
+
+    private int maxLimit = 2000;
+
+    private double smoothing = 0.2;
+
+    private double rttTolerance = 1.5;
+
+    private int longWindow = 600;
+
+    private Duration sampleWindow = Duration.ofMillis(100);
+
+    private int minSamples = 10;
+
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    private Priority defaultPriority = Priority.NORMAL;
+
+    private List<PriorityRule> priorities = new ArrayList<>();
+
+    // Routes listed under one group share a single limit, so their priorities are weighed against each other
+    private Map<String, List<String>> groups = new LinkedHashMap<>();
+
+    private Map<Priority, Double> shares = new EnumMap<>(Map.of(
+            Priority.CRITICAL, 1.0,
+            Priority.NORMAL, 0.9,
+            Priority.SHEDDABLE, 0.75));
+
+    public double shareOf(Priority priority) {
+        return shares.getOrDefault(priority, 1.0);
+    }
+
+    @Data
+    public static class PriorityRule {
+
+        private String path;
+
+        private Priority priority = Priority.NORMAL;
+    }
+
+    public enum Priority {
+        CRITICAL,
+        NORMAL,
+        SHEDDABLE
+    }
+}
@@ -0,0 +1,74 @@
+package com.ahamo.dummy.demo2.gateway.ratelimit;
+
+/**
+ * Gradient-based concurrency limit: the limit shrinks when the recent upstream RTT rises above the long-term
+ * baseline and grows by roughly sqrt(limit) per window while latency stays flat.
+ */
+final class GradientConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final double longRttDecay;
+    private final long sampleWindowNanos;
+    private final int minSamples;
+
+    private double estimatedLimit;
+    private double longRttNanos;
+    private long windowStartNanos;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    private volatile int limit;
+
+    GradientConcurrencyLimit(ConcurrencyLimitProperties properties, long nowNanos) {
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.smoothing = properties.getSmoothing();
+        this.rttTolerance = properties.getRttTolerance();
+        this.longRttDecay = 2.0 / (properties.getLongWindow() + 1);
+        this.sampleWindowNanos = properties.getSampleWindow().toNanos();
+        this.minSamples = properties.getMinSamples();
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, properties.getInitialLimit()));
+        this.limit = (int) estimatedLimit;
+        this.windowStartNanos = nowNanos;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    synchronized void onSample(long rttNanos, int inFlight, long nowNanos) {
+        windowRttSum += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        if (nowNanos - windowStartNanos < sampleWindowNanos || windowSamples < minSamples) {
+            return;
+        }
+
+        double shortRtt = Math.max(1, (double) windowRttSum / windowSamples);
+        int maxInFlight = windowMaxInFlight;
+        windowStartNanos = nowNanos;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+
+        longRttNanos = longRttNanos == 0 ? shortRtt : longRttNanos + (shortRtt - longRttNanos) * longRttDecay;
+        // After a latency spike the baseline would otherwise stay inflated for the whole long window
+        if (longRttNanos / shortRtt > 2) {
+            longRttNanos *= 0.95;
+        }
+        // Too little traffic to tell whether the limit is right
+        if (maxInFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / shortRtt));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        double smoothed = estimatedLimit * (1 - smoothing) + target * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -0,0 +1,283 @@
+package com.ahamo.dummy.demo2.gateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.filter.ratelimit.RedisRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class HybridRateLimiter extends AbstractRateLimiter<HybridRateLimiter.Config> {
+
+    public static final String CONFIGURATION_PROPERTY_NAME = "hybrid-rate-limiter";
+
+    private static final String OVERFLOW_KEY = "__overflow__";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final HybridRateLimiterProperties properties;
+    private final Config defaultConfig;
+    private final long windowMillis;
+
+    private final Map<String, LocalTokenBucket> buckets = new ConcurrentHashMap<>();
+    private volatile boolean redisAvailable = true;
+    private Disposable syncTask;
+
+    private final Counter allowed;
+    private final Counter denied;
+    private final Counter redisOperations;
+    private final Counter redisFailures;
+    private final Counter overAdmitted;
+    private final Timer decisionTimer;
+    private final Timer syncTimer;
+
+    public HybridRateLimiter(ReactiveStringRedisTemplate redisTemplate,
+                             ConfigurationService configurationService,
+                             HybridRateLimiterProperties properties,
+                             MeterRegistry meterRegistry,
+                             Config defaultConfig) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.defaultConfig = defaultConfig;
+        this.windowMillis = properties.getWindow().toMillis();
+
+        this.allowed = Counter.builder("gateway.ratelimit.requests")
+                .tag("limiter", "hybrid").tag("outcome", "allowed")
+                .register(meterRegistry);
+        this.denied = Counter.builder("gateway.ratelimit.requests")
+                .tag("limiter", "hybrid").tag("outcome", "denied")
+                .register(meterRegistry);
+        this.redisOperations = Counter.builder("gateway.ratelimit.redis.operations")
+                .tag("limiter", "hybrid").tag("result", "success")
+                .register(meterRegistry);
+        this.redisFailures = Counter.builder("gateway.ratelimit.redis.operations")
+                .tag("limiter", "hybrid").tag("result", "failure")
+                .register(meterRegistry);
+        this.overAdmitted = Counter.builder("gateway.ratelimit.hybrid.over.admitted")
+                .description("Tokens admitted locally beyond the cluster-wide limit, detected at sync time")
+                .register(meterRegistry);
+        this.decisionTimer = Timer.builder("gateway.ratelimit.decision")
+                .tag("limiter", "hybrid")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+        this.syncTimer = Timer.builder("gateway.ratelimit.hybrid.sync")
+                .register(meterRegistry);
+        Gauge.builder("gateway.ratelimit.hybrid.buckets", buckets, Map::size)
+                .register(meterRegistry);
+        Gauge.builder("gateway.ratelimit.hybrid.redis.available", this, limiter -> limiter.redisAvailable ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        syncTask = Flux.interval(properties.getSyncInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> synchronize())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (syncTask != null) {
+            syncTask.dispose();
+        }
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        long start = System.nanoTime();
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+
+        long emissionIntervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getReplenishRate();
+        long burstToleranceNanos = emissionIntervalNanos * config.getBurstCapacity();
+
+        boolean permitted;
+        long remaining;
+        if (!redisAvailable && properties.getFailureMode() == HybridRateLimiterProperties.FailureMode.CLOSED) {
+            permitted = false;
+            remaining = 0;
+        } else {
+            LocalTokenBucket bucket = bucketFor(routeId, id, start);
+            permitted = bucket.tryConsume(start, emissionIntervalNanos, burstToleranceNanos, config.getRequestedTokens());
+            remaining = bucket.remainingTokens(start, emissionIntervalNanos, burstToleranceNanos);
+        }
+
+        (permitted ? allowed : denied).increment();
+        decisionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Mono.just(new Response(permitted, headers(config, remaining)));
+    }
+
+    Mono<Void> synchronize() {
+        long startNanos = System.nanoTime();
+        long windowId = System.currentTimeMillis() / windowMillis;
+        Duration keyTtl = Duration.ofMillis(windowMillis * 2);
+
+        evictIdleBuckets(startNanos);
+
+        Mono<Long> synced = Flux.fromIterable(buckets.entrySet())
+                .flatMap(entry -> {
+                    LocalTokenBucket bucket = entry.getValue();
+                    long delta = bucket.drainUnsyncedTokens();
+                    if (delta == 0) {
+                        return Mono.empty();
+                    }
+                    if (bucket.windowId != windowId) {
+                        bucket.windowId = windowId;
+                        bucket.localTokensInWindow = 0;
+                        bucket.remoteTokensSeen = 0;
+                        bucket.overAdmittedCounted = 0;
+                    }
+                    String redisKey = redisKey(entry.getKey(), windowId);
+                    return redisTemplate.opsForValue().increment(redisKey, delta)
+                            // Tokens Redis never counted are handed back to the bucket for the next sync
+                            .doFinally(signal -> {
+                                if (signal != SignalType.ON_COMPLETE) {
+                                    bucket.restoreUnsyncedTokens(delta);
+                                }
+                            })
+                            .doOnNext(total -> bucket.localTokensInWindow += delta)
+                            .flatMap(total -> redisTemplate.expire(redisKey, keyTtl).thenReturn(total))
+                            .doOnNext(total -> reconcile(entry.getKey(), bucket, total))
+                            .doOnSuccess(total -> redisOperations.increment(2));
+                })
+                .count();
+
+        // Availability is only ever set from a Redis reply: with nothing to sync, which is also the case while
+        // failing closed, Redis is pinged instead
+        return synced.flatMap(count -> count > 0 ? Mono.empty() : ping())
+                .timeout(properties.getRedisTimeout())
+                .then()
+                .doOnSuccess(done -> redisAvailable = true)
+                .onErrorResume(e -> {
+                    redisFailures.increment();
+                    if (redisAvailable) {
+                        log.warn("Rate limit sync with Redis failed, failing {}: {}",
+                                properties.getFailureMode(), e.getMessage());
+                    }
+                    redisAvailable = false;
+                    return Mono.empty();
+                })
+                .doFinally(signal -> syncTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS));
+    }
+
+    private Mono<Void> ping() {
+        return redisTemplate.execute(connection -> connection.ping())
+                .doOnComplete(redisOperations::increment)
+                .then();
+    }
+
+    boolean isRedisAvailable() {
+        return redisAvailable;
+    }
+
+    private void reconcile(String bucketKey, LocalTokenBucket bucket, long clusterTotal) {
+        Config config = getConfig().getOrDefault(routeIdOf(bucketKey), defaultConfig);
+        long now = System.nanoTime();
+        long emissionIntervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getReplenishRate();
+
+        long remoteTotal = clusterTotal - bucket.localTokensInWindow;
+        bucket.applyRemoteConsumption(remoteTotal - bucket.remoteTokensSeen, now, emissionIntervalNanos);
+        bucket.remoteTokensSeen = Math.max(bucket.remoteTokensSeen, remoteTotal);
+
+        long windowAllowance = config.getReplenishRate() * windowMillis / 1000 + config.getBurstCapacity();
+        long excess = clusterTotal - windowAllowance - bucket.overAdmittedCounted;
+        if (excess > 0) {
+            overAdmitted.increment(excess);
+            bucket.overAdmittedCounted += excess;
+        }
+    }
+
+    private LocalTokenBucket bucketFor(String routeId, String id, long nowNanos) {
+        String key = routeId + '\u0000' + id;
+        LocalTokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= properties.getMaxKeys()) {
+            key = routeId + '\u0000' + OVERFLOW_KEY;
+        }
+        return buckets.computeIfAbsent(key, k -> new LocalTokenBucket(nowNanos));
+    }
+
+    private void evictIdleBuckets(long nowNanos) {
+        long idleNanos = properties.getIdleTimeout().toNanos();
+        buckets.values().removeIf(bucket -> nowNanos - bucket.lastAccessNanos() > idleNanos);
+    }
+
+    private Map<String, String> headers(Config config, long remaining) {
+        if (!properties.isIncludeHeaders()) {
+            return Map.of();
+        }
+        return Map.of(
+                RedisRateLimiter.REMAINING_HEADER, Long.toString(remaining),
+                RedisRateLimiter.REPLENISH_RATE_HEADER, Integer.toString(config.getReplenishRate()),
+                RedisRateLimiter.BURST_CAPACITY_HEADER, Integer.toString(config.getBurstCapacity()),
+                RedisRateLimiter.REQUESTED_TOKENS_HEADER, Integer.toString(config.getRequestedTokens()));
+    }
+
+    private static String routeIdOf(String bucketKey) {
+        return bucketKey.substring(0, bucketKey.indexOf('\u0000'));
+    }
+
+    private static String redisKey(String bucketKey, long windowId) {
+        return "hybrid_rate_limiter.{" + bucketKey.replace('\u0000', ':') + "}." + windowId;
+    }
+
+    public static class Config {
+
+        private int replenishRate = 1;
+
+        private int burstCapacity = 1;
+
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "HybridRateLimiter.Config{replenishRate=" + replenishRate
+                    + ", burstCapacity=" + burstCapacity
+                    + ", requestedTokens=" + requestedTokens + '}';
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ahamo.dummy.demo2.gateway.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "rate-limit.hybrid")
+public class HybridRateLimiterProperties {
+
+    private int maxKeys = 100_000;
+
+    private Duration syncInterval = Duration.ofMillis(250);
+
+    private Duration window = Duration.ofSeconds(1);
+
+    private Duration idleTimeout = Duration.ofMinutes(5);
+
+    private Duration redisTimeout = Duration.ofMillis(500);
+
+    private FailureMode failureMode = FailureMode.OPEN;
+
+    private boolean includeHeaders = true;
+
+    public enum FailureMode {
+        OPEN,
+        CLOSED
+    }
+}
@@ -0,0 +1,67 @@
+package com.ahamo.dummy.demo2.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+final class LocalTokenBucket {
+
+    private final AtomicLong theoreticalArrivalNanos;
+    private final LongAdder unsyncedTokens = new LongAdder();
+    private volatile long lastAccessNanos;
+
+    long windowId;
+    long localTokensInWindow;
+    long remoteTokensSeen;
+    long overAdmittedCounted;
+
+    LocalTokenBucket(long nowNanos) {
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+        this.lastAccessNanos = nowNanos;
+    }
+
+    boolean tryConsume(long nowNanos, long emissionIntervalNanos, long burstToleranceNanos, int tokens) {
+        lastAccessNanos = nowNanos;
+        long increment = emissionIntervalNanos * tokens;
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            long newTat = Math.max(tat, nowNanos) + increment;
+            if (newTat - nowNanos > burstToleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, newTat)) {
+                unsyncedTokens.add(tokens);
+                return true;
+            }
+        }
+    }
+
+    long remainingTokens(long nowNanos, long emissionIntervalNanos, long burstToleranceNanos) {
+        long backlog = Math.max(0, theoreticalArrivalNanos.get() - nowNanos);
+        return Math.max(0, (burstToleranceNanos - backlog) / emissionIntervalNanos);
+    }
+
+    void applyRemoteConsumption(long tokens, long nowNanos, long emissionIntervalNanos) {
+        if (tokens <= 0) {
+            return;
+        }
+        long increment = emissionIntervalNanos * tokens;
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            if (theoreticalArrivalNanos.compareAndSet(tat, Math.max(tat, nowNanos) + increment)) {
+                return;
+            }
+        }
+    }
+
+    long drainUnsyncedTokens() {
+        return unsyncedTokens.sumThenReset();
+    }
+
+    void restoreUnsyncedTokens(long tokens) {
+        unsyncedTokens.add(tokens);
+    }
+
+    long lastAccessNanos() {
+        return lastAccessNanos;
+    }
+}
@@ -0,0 +1,66 @@
+package com.ahamo.dummy.demo2.gateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class MeteredRateLimiter<C> implements RateLimiter<C> {
+
+    private final RateLimiter<C> delegate;
+    private final int redisOperationsPerDecision;
+
+    private final Counter allowed;
+    private final Counter denied;
+    private final Counter redisOperations;
+    private final Timer decisionTimer;
+
+    public MeteredRateLimiter(String name, RateLimiter<C> delegate, MeterRegistry meterRegistry,
+                              int redisOperationsPerDecision) {
+        this.delegate = delegate;
+        this.redisOperationsPerDecision = redisOperationsPerDecision;
+        this.allowed = Counter.builder("gateway.ratelimit.requests")
+                .tag("limiter", name).tag("outcome", "allowed")
+                .register(meterRegistry);
+        this.denied = Counter.builder("gateway.ratelimit.requests")
+                .tag("limiter", name).tag("outcome", "denied")
+                .register(meterRegistry);
+        this.redisOperations = Counter.builder("gateway.ratelimit.redis.operations")
+                .tag("limiter", name).tag("result", "success")
+                .register(meterRegistry);
+        this.decisionTimer = Timer.builder("gateway.ratelimit.decision")
+                .tag("limiter", name)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        long start = System.nanoTime();
+        return delegate.isAllowed(routeId, id)
+                .doOnNext(response -> {
+                    decisionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    redisOperations.increment(redisOperationsPerDecision);
+                    (response.isAllowed() ? allowed : denied).increment();
+                });
+    }
+
+    @Override
+    public Map<String, C> getConfig() {
+        return delegate.getConfig();
+    }
+
+    @Override
+    public Class<C> getConfigClass() {
+        return delegate.getConfigClass();
+    }
+
+    @Override
+    public C newConfig() {
+        return delegate.newConfig();
+    }
+}
@@ -0,0 +1,158 @@
+package com.ahamo.dummy.demo2.gateway.route;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable prefix trie over path segments. Supports literal segments, single-segment wildcards ({@code *} or
+ * {@code {name}}) and a trailing catch-all ({@code **} or {@code {*name}}), which also matches the bare prefix.
+ * Lookup walks the request path once; at each segment a literal beats a wildcard, and the deepest catch-all
+ * wins, so the most specific pattern matches regardless of declaration order.
+ */
+public final class PathTrie<T> {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\{[^*{}/]+}");
+    private static final Pattern CATCH_ALL_VARIABLE = Pattern.compile("\\{\\*[^{}/]+}");
+
+    private final Node<T> root;
+    private final int size;
+
+    private PathTrie(Node<T> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public T match(String path) {
+        return match(root, path, skipSeparators(path, 0));
+    }
+
+    private static <T> T match(Node<T> node, String path, int start) {
+        if (start == path.length()) {
+            return node.exact != null ? node.exact : node.catchAll;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        int next = skipSeparators(path, end);
+        if (!node.literals.isEmpty()) {
+            Node<T> literal = node.literals.get(path.substring(start, end));
+            if (literal != null) {
+                T found = match(literal, path, next);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        if (node.wildcard != null) {
+            T found = match(node.wildcard, path, next);
+            if (found != null) {
+                return found;
+            }
+        }
+        return node.catchAll;
+    }
+
+    private static int skipSeparators(String path, int index) {
+        while (index < path.length() && path.charAt(index) == '/') {
+            index++;
+        }
+        return index;
+    }
+
+    private record Node<T>(Map<String, Node<T>> literals, Node<T> wildcard, T exact, T catchAll) {
+    }
+
+    public static final class Builder<T> {
+
+        private final MutableNode<T> root = new MutableNode<>();
+        private int size;
+
+        private Builder() {
+        }
+
+        // Rejects a pattern that another value already claims; re-adding the same value is a no-op
+        public Builder<T> add(String pattern, T value) {
+            List<String> segments = segments(pattern);
+            MutableNode<T> node = root;
+            for (int i = 0; i < segments.size(); i++) {
+                String segment = segments.get(i);
+                if (isCatchAll(segment)) {
+                    if (i != segments.size() - 1) {
+                        throw new IllegalArgumentException("Catch-all must be the last segment of " + pattern);
+                    }
+                    node.catchAll = claim(node.catchAll, value, pattern);
+                    return this;
+                }
+                if (isWildcard(segment)) {
+                    node = node.wildcard != null ? node.wildcard : (node.wildcard = new MutableNode<>());
+                } else if (segment.indexOf('*') >= 0 || segment.indexOf('{') >= 0 || segment.indexOf('?') >= 0) {
+                    throw new IllegalArgumentException("Unsupported segment '" + segment + "' in " + pattern);
+                } else {
+                    node = node.literals.computeIfAbsent(segment, key -> new MutableNode<>());
+                }
+            }
+            node.exact = claim(node.exact, value, pattern);
+            return this;
+        }
+
+        public PathTrie<T> build() {
+            return new PathTrie<>(root.freeze(), size);
+        }
+
+        private T claim(T existing, T value, String pattern) {
+            if (existing == null) {
+                size++;
+            } else if (!existing.equals(value)) {
+                throw new IllegalStateException("Path " + pattern + " of " + value + " conflicts with " + existing);
+            }
+            return value;
+        }
+
+        private static List<String> segments(String pattern) {
+            if (!pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Path pattern must start with '/': " + pattern);
+            }
+            return Arrays.stream(pattern.split("/"))
+                    .filter(segment -> !segment.isEmpty())
+                    .toList();
+        }
+
+        private static boolean isCatchAll(String segment) {
+            return "**".equals(segment) || CATCH_ALL_VARIABLE.matcher(segment).matches();
+        }
+
+        private static boolean isWildcard(String segment) {
+            return "*".equals(segment) || VARIABLE.matcher(segment).matches();
+        }
+    }
+
+    private static final class MutableNode<T> {
+
+        private final Map<String, MutableNode<T>> literals = new HashMap<>();
+        private MutableNode<T> wildcard;
+        private T exact;
+        private T catchAll;
+
+        // A HashMap rather than Map.copyOf: sibling segments like service-1..service-500 have near-consecutive hash
+        // codes, which cluster badly in the immutable map's linear probing
+        private Node<T> freeze() {
+            Map<String, Node<T>> frozen = new HashMap<>(literals.size() * 2);
+            literals.forEach((segment, child) -> frozen.put(segment, child.freeze()));
+            return new Node<>(Collections.unmodifiableMap(frozen), wildcard != null ? wildcard.freeze() : null,
+                    exact, catchAll);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.ahamo.dummy.demo2.gateway.route;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The gateway's routes compiled from {@link RouteTableProperties} into a path trie. Conflicting or malformed
+ * paths fail startup instead of silently shadowing each other, and {@link #match} costs a walk of the request
+ * path however many routes there are.
+ * <p>
+ * A reload compiles a complete new table and swaps it in with a single write. Requests that were already
+ * routed keep the {@link Route}, and with it the filters, they started with.
+ */
+@Slf4j
+public final class RouteTable implements RouteLocator {
+
+    @FunctionalInterface
+    public interface RouteFactory {
+
+        Route create(String id, RouteTableProperties.RouteSpec spec);
+    }
+
+    private final RouteFactory routeFactory;
+    private final Consumer<RouteTableProperties> onActivate;
+    private volatile Snapshot snapshot;
+
+    public RouteTable(RouteTableProperties properties, RouteFactory routeFactory) {
+        this(properties, routeFactory, activated -> {
+        });
+    }
+
+    // onActivate applies policy held outside the routes themselves, such as rate limiter configs, once a table is live
+    public RouteTable(RouteTableProperties properties, RouteFactory routeFactory,
+                      Consumer<RouteTableProperties> onActivate) {
+        this.routeFactory = routeFactory;
+        this.onActivate = onActivate;
+        this.snapshot = compile(properties, 1);
+        onActivate.accept(properties);
+    }
+
+    // Throws, leaving the current table in place, if the new one does not compile
+    public synchronized long reload(RouteTableProperties properties) {
+        Snapshot next = compile(properties, snapshot.version() + 1);
+        snapshot = next;
+        onActivate.accept(properties);
+        return next.version();
+    }
+
+    public Route match(String path) {
+        Snapshot current = snapshot;
+        String id = current.paths().match(path);
+        return id != null ? current.routesById().get(id) : null;
+    }
+
+    public boolean contains(String routeId) {
+        return snapshot.routesById().containsKey(routeId);
+    }
+
+    public long version() {
+        return snapshot.version();
+    }
+
+    public Instant loadedAt() {
+        return snapshot.loadedAt();
+    }
+
+    public Map<String, RouteTableProperties.RouteSpec> specs() {
+        return snapshot.specs();
+    }
+
+    @Override
+    public Flux<Route> getRoutes() {
+        return Flux.fromIterable(snapshot.routes());
+    }
+
+    private Snapshot compile(RouteTableProperties properties, long version) {
+        PathTrie.Builder<String> paths = PathTrie.builder();
+        List<Route> routes = new ArrayList<>();
+        // Not Map.copyOf, for the same reason as in PathTrie
+        Map<String, Route> routesById = new HashMap<>();
+        Map<String, RouteTableProperties.RouteSpec> specs = new LinkedHashMap<>();
+        properties.getRoutes().forEach((id, spec) -> {
+            if (!spec.isEnabled()) {
+                return;
+            }
+            if (spec.getUri() == null || spec.getPaths().isEmpty()) {
+                throw new IllegalStateException("Route " + id + " needs a uri and at least one path");
+            }
+            spec.getPaths().forEach(path -> paths.add(path, id));
+            Route route = routeFactory.create(id, spec);
+            routes.add(route);
+            routesById.put(id, route);
+            specs.put(id, spec);
+        });
+        Snapshot compiled = new Snapshot(version, Instant.now(), List.copyOf(routes),
+                Collections.unmodifiableMap(routesById), paths.build(), Collections.unmodifiableMap(specs));
+        log.info("Compiled route table version {} with {} routes and {} path patterns",
+                version, compiled.routes().size(), compiled.paths().size());
+        return compiled;
+    }
+
+    private record Snapshot(long version, Instant loadedAt, List<Route> routes, Map<String, Route> routesById,
+                            PathTrie<String> paths, Map<String, RouteTableProperties.RouteSpec> specs) {
+    }
+}
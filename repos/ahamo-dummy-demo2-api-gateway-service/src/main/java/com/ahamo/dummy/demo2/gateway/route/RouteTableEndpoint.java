@@ -0,0 +1,41 @@
+package com.ahamo.dummy.demo2.gateway.route;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "routetable")
+public class RouteTableEndpoint {
+
+    private final RouteTable routeTable;
+    private final RouteTableReloader reloader;
+
+    public RouteTableEndpoint(RouteTable routeTable, RouteTableReloader reloader) {
+        this.routeTable = routeTable;
+        this.reloader = reloader;
+    }
+
+    @ReadOperation
+    public Map<String, Object> table() {
+        Map<String, Object> routes = new LinkedHashMap<>();
+        routeTable.specs().forEach((id, spec) -> routes.put(id, Map.of(
+                "uri", String.valueOf(spec.getUri()),
+                "paths", spec.getPaths(),
+                "chain", String.valueOf(spec.getChain()))));
+        return Map.of(
+                "version", routeTable.version(),
+                "loadedAt", routeTable.loadedAt().toString(),
+                "routes", routes,
+                "lastReload", reloader.lastReload());
+    }
+
+    @WriteOperation
+    public Map<String, Object> reload() {
+        return reloader.reload();
+    }
+}
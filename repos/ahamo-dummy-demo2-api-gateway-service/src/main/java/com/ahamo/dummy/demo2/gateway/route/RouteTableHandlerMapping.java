@@ -0,0 +1,45 @@
+package com.ahamo.dummy.demo2.gateway.route;
+
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.core.env.Environment;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * Finds the route through the {@link RouteTable} trie instead of testing every route's predicates in turn. The
+ * candidate's own predicate still runs, so path variables are extracted as usual. Routes from other locators
+ * are walked the stock way when the table has no match.
+ */
+public class RouteTableHandlerMapping extends RoutePredicateHandlerMapping {
+
+    private final RouteTable routeTable;
+
+    public RouteTableHandlerMapping(FilteringWebHandler webHandler, RouteLocator routeLocator, RouteTable routeTable,
+                                    GlobalCorsProperties globalCorsProperties, Environment environment) {
+        super(webHandler, () -> routeLocator.getRoutes().filter(route -> !routeTable.contains(route.getId())),
+                globalCorsProperties, environment);
+        this.routeTable = routeTable;
+    }
+
+    @Override
+    protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
+        Route route = routeTable.match(exchange.getRequest().getPath().pathWithinApplication().value());
+        if (route == null) {
+            return super.lookupRoute(exchange);
+        }
+        exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, route.getId());
+        return Mono.from(route.getPredicate().apply(exchange))
+                .filter(Boolean::booleanValue)
+                .map(matched -> {
+                    validateRoute(route, exchange);
+                    return route;
+                })
+                .switchIfEmpty(Mono.defer(() -> super.lookupRoute(exchange)));
+    }
+}
@@ -0,0 +1,73 @@
+package com.ahamo.dummy.demo2.gateway.route;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The gateway's routes, keyed by route ID; filter chains are assembled in GatewayConfig
+@Data
+@ConfigurationProperties(prefix = "gateway.route-table")
+public class RouteTableProperties {
+
+    private Map<String, RouteSpec> routes = new LinkedHashMap<>();
+
+    // Optional YAML file layered over the application's configuration and reloaded when it changes
+    private Path file;
+
+    private Duration watchInterval = Duration.ofSeconds(2);
+
+    @Data
+    public static class RouteSpec {
+
+        // Lets a reload file drop a route that the application's configuration defines
+        private boolean enabled = true;
+
+        private URI uri;
+
+        private List<String> paths = new ArrayList<>();
+
+        // Name of a filter chain defined in GatewayConfig
+        private String chain;
+
+        // Unset means the route is not rate limited
+        private RateLimit rateLimit;
+
+        // Unset uses the route's resilience4j time limiter
+        private Duration timeout;
+
+        private Cache cache = new Cache();
+
+        // Unset uses gateway.server-protection.max-body-size
+        private DataSize maxBodySize;
+
+        // Unset leaves headers to the server-wide server.max-http-request-header-size
+        private DataSize maxHeaderSize;
+    }
+
+    @Data
+    public static class RateLimit {
+
+        private int replenishRate = 10;
+
+        private int burstCapacity = 20;
+
+        private int requestedTokens = 1;
+    }
+
+    // Applies to routes on the catalog chain
+    @Data
+    public static class Cache {
+
+        private Duration defaultTtl = Duration.ZERO;
+
+        private Duration staleWhileRevalidate = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,158 @@
+package com.ahamo.dummy.demo2.gateway.route;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebinds {@code gateway.route-table} and swaps the recompiled table into {@link RouteTable}. The optional
+ * {@code gateway.route-table.file} is layered over the application's configuration and watched for changes;
+ * a reload can also be triggered through the {@code routetable} actuator endpoint. A table that fails to bind
+ * or compile is rejected and the live one keeps serving.
+ */
+@Slf4j
+@Component
+public class RouteTableReloader {
+
+    private static final String FILE_SOURCE_NAME = "route-table-file";
+
+    private final RouteTable routeTable;
+    private final ConfigurableEnvironment environment;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path file;
+    private final Duration watchInterval;
+    private final Timer succeeded;
+    private final Timer failed;
+
+    private volatile FileTime fileModified;
+    private volatile Map<String, Object> lastReload = Map.of();
+    private Disposable watchTask;
+
+    public RouteTableReloader(RouteTable routeTable, RouteTableProperties properties, ConfigurableEnvironment environment,
+                              ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+        this.routeTable = routeTable;
+        this.environment = environment;
+        this.eventPublisher = eventPublisher;
+        this.file = properties.getFile();
+        this.watchInterval = properties.getWatchInterval();
+        this.succeeded = reloadTimer(meterRegistry, "success");
+        this.failed = reloadTimer(meterRegistry, "failure");
+        Gauge.builder("gateway.routes.version", routeTable, RouteTable::version)
+                .description("Version of the live route table, incremented by every successful reload")
+                .register(meterRegistry);
+        Gauge.builder("gateway.routes.count", routeTable, table -> table.specs().size())
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (file == null) {
+            return;
+        }
+        if (Files.exists(file)) {
+            reload();
+        }
+        watchTask = Flux.interval(watchInterval, Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .filter(tick -> fileChanged())
+                .subscribe(tick -> reload());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watchTask != null) {
+            watchTask.dispose();
+        }
+    }
+
+    public synchronized Map<String, Object> reload() {
+        long start = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            fileModified = lastModified();
+            long version = routeTable.reload(bind());
+            long nanos = System.nanoTime() - start;
+            succeeded.record(nanos, TimeUnit.NANOSECONDS);
+            log.info("Route table reloaded to version {} with {} routes in {} ms",
+                    version, routeTable.specs().size(), TimeUnit.NANOSECONDS.toMillis(nanos));
+            result.put("outcome", "success");
+            result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(nanos));
+            eventPublisher.publishEvent(new RefreshRoutesEvent(this));
+        } catch (IOException | RuntimeException e) {
+            long nanos = System.nanoTime() - start;
+            failed.record(nanos, TimeUnit.NANOSECONDS);
+            log.warn("Route table reload rejected, version {} stays live: {}", routeTable.version(), e.getMessage());
+            result.put("outcome", "failure");
+            result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(nanos));
+            result.put("error", String.valueOf(e.getMessage()));
+        }
+        result.put("version", routeTable.version());
+        result.put("at", Instant.now().toString());
+        lastReload = Collections.unmodifiableMap(result);
+        return lastReload;
+    }
+
+    public Map<String, Object> lastReload() {
+        return lastReload;
+    }
+
+    private RouteTableProperties bind() throws IOException {
+        List<PropertySource<?>> sources = new ArrayList<>();
+        if (file != null && Files.exists(file)) {
+            sources.addAll(new YamlPropertySourceLoader().load(FILE_SOURCE_NAME, new FileSystemResource(file)));
+        }
+        environment.getPropertySources().forEach(sources::add);
+        return new Binder(ConfigurationPropertySources.from(sources), new PropertySourcesPlaceholdersResolver(sources))
+                .bind("gateway.route-table", RouteTableProperties.class)
+                .orElseGet(RouteTableProperties::new);
+    }
+
+    private boolean fileChanged() {
+        FileTime modified = lastModified();
+        return modified != null && !modified.equals(fileModified);
+    }
+
+    private FileTime lastModified() {
+        try {
+            return file != null && Files.exists(file) ? Files.getLastModifiedTime(file) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Timer reloadTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("gateway.routes.reload")
+                .description("Route table reloads, including binding and compiling the new table")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
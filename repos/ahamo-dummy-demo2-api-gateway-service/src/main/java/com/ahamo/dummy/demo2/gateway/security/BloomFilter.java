@@ -0,0 +1,93 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size Bloom filter over strings. Membership checks hash the characters in place and allocate nothing.
+ * Writers must be serialized by the caller; readers may run concurrently with them.
+ */
+final class BloomFilter {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private volatile long bitsSet;
+
+    private BloomFilter(long bits, int hashes) {
+        this.words = new AtomicLongArray((int) (bits >>> 6));
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    static BloomFilter create(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        double optimalBits = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long bits = Math.max(64, ((long) Math.ceil(optimalBits) + 63) & ~63L);
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9e3779b97f4a7c15L) | 1;
+        long combined = hash1;
+        for (int i = 0; i < hashes; i++) {
+            long index = (combined & Long.MAX_VALUE) % bits;
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+
+    void put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9e3779b97f4a7c15L) | 1;
+        long combined = hash1;
+        long newlySet = 0;
+        for (int i = 0; i < hashes; i++) {
+            long index = (combined & Long.MAX_VALUE) % bits;
+            long mask = 1L << index;
+            if ((words.getAndUpdate((int) (index >>> 6), word -> word | mask) & mask) == 0) {
+                newlySet++;
+            }
+            combined += hash2;
+        }
+        bitsSet += newlySet;
+    }
+
+    long bits() {
+        return bits;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+
+    // Probability that a value never added is reported present, given how full the filter is now
+    double expectedFalsePositiveRate() {
+        return Math.pow((double) bitsSet / bits, hashes);
+    }
+
+    private static long hash(String value) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3 finalizer, spreads FNV's weak low bits across the word
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,128 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.CorsProcessor;
+import org.springframework.web.cors.reactive.CorsUtils;
+import org.springframework.web.cors.reactive.DefaultCorsProcessor;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies CORS ahead of the security chain. The decision for each configuration, origin, method and requested
+ * headers is computed once by {@link DefaultCorsProcessor} and replayed from then on: preflights are answered
+ * here without reaching security or routing, rejected requests get 403, and accepted requests continue with the
+ * CORS response headers already set.
+ */
+public class CachedCorsWebFilter implements WebFilter, Ordered {
+
+    private final CorsConfigurationSource configurationSource;
+    private final CorsProcessor processor = new DefaultCorsProcessor();
+    private final Map<Key, Decision> decisions = new ConcurrentHashMap<>();
+    private final int maxEntries;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public CachedCorsWebFilter(CorsConfigurationSource configurationSource, int maxEntries,
+                               MeterRegistry meterRegistry) {
+        this.configurationSource = configurationSource;
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("gateway.cors.decisions")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("gateway.cors.decisions")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("gateway.cors.decisions.cached", decisions, Map::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        // Same-origin requests are not CORS requests, so the decision never depends on the Host header
+        if (!CorsUtils.isCorsRequest(request)) {
+            return chain.filter(exchange);
+        }
+        CorsConfiguration configuration = configurationSource.getCorsConfiguration(exchange);
+        if (configuration == null) {
+            return chain.filter(exchange);
+        }
+        boolean preflight = CorsUtils.isPreFlightRequest(request);
+
+        HttpHeaders headers = request.getHeaders();
+        Key key = new Key(configuration, headers.getOrigin(), preflight,
+                preflight ? headers.getFirst(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD) : request.getMethod().name(),
+                preflight ? headers.getFirst(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS) : null);
+        Decision decision = decisions.get(key);
+        ServerHttpResponse response = exchange.getResponse();
+        if (decision != null) {
+            hits.increment();
+            decision.applyTo(response);
+        } else {
+            misses.increment();
+            decision = Decision.of(processor.process(configuration, exchange), response);
+            // Origins and header lists are client supplied, so past the cap decisions are computed but not kept
+            if (decisions.size() < maxEntries) {
+                decisions.put(key, decision);
+            }
+        }
+        return !decision.accepted() || preflight ? response.setComplete() : chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        // Right after tracing, so rejected and preflight responses still carry the request ID
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    // CorsConfiguration has identity equality, which is what a reloaded configuration source needs
+    private record Key(CorsConfiguration configuration, String origin, boolean preflight, String method,
+                       String requestHeaders) {
+    }
+
+    private record Decision(boolean accepted, HttpStatus status, HttpHeaders headers) {
+
+        // The response is fresh when the processor runs, so every CORS header on it is part of the decision
+        static Decision of(boolean accepted, ServerHttpResponse response) {
+            HttpHeaders headers = new HttpHeaders();
+            response.getHeaders().forEach((name, values) -> {
+                if (name.regionMatches(true, 0, "Access-Control-", 0, 15) || name.equalsIgnoreCase(HttpHeaders.VARY)) {
+                    headers.put(name, List.copyOf(values));
+                }
+            });
+            HttpStatus status = response.getStatusCode() != null ? HttpStatus.resolve(response.getStatusCode().value())
+                    : null;
+            return new Decision(accepted, status, HttpHeaders.readOnlyHttpHeaders(headers));
+        }
+
+        void applyTo(ServerHttpResponse response) {
+            HttpHeaders target = response.getHeaders();
+            headers.forEach((name, values) -> {
+                if (name.equalsIgnoreCase(HttpHeaders.VARY)) {
+                    values.forEach(value -> target.add(name, value));
+                } else {
+                    target.put(name, values);
+                }
+            });
+            if (status != null) {
+                response.setStatusCode(status);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+
+@Component
+@Order(1)
+public class HmacSigningKeyProvider implements SigningKeyProvider {
+
+    private final SecretKey key;
+
+    public HmacSigningKeyProvider(@Value("${jwt.secret}") String jwtSecret) {
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean supports(JwsHeader header) {
+        String algorithm = header.getAlgorithm();
+        return algorithm != null && algorithm.startsWith("HS");
+    }
+
+    @Override
+    public Key resolveKey(JwsHeader header) {
+        return key;
+    }
+}
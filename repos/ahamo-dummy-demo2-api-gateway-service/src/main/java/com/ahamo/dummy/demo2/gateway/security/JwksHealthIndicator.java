@@ -0,0 +1,29 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Out of service until the first JWKS keys are loaded, so tokens signed with them are not rejected by an instance
+ * that has just started. Failed refreshes keep the loaded keys and do not affect it.
+ */
+@Component
+public class JwksHealthIndicator implements ReactiveHealthIndicator {
+
+    private final JwksKeyCache jwksKeyCache;
+
+    public JwksHealthIndicator(JwksKeyCache jwksKeyCache) {
+        this.jwksKeyCache = jwksKeyCache;
+    }
+
+    @Override
+    public Mono<Health> health() {
+        if (!jwksKeyCache.isEnabled()) {
+            return Mono.just(Health.up().withDetail("jwks", "not configured").build());
+        }
+        Health.Builder health = jwksKeyCache.isLoaded() ? Health.up() : Health.outOfService();
+        return Mono.just(health.withDetail("uri", jwksKeyCache.getJwksUri()).build());
+    }
+}
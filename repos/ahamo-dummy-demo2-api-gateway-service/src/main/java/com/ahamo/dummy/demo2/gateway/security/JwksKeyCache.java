@@ -0,0 +1,146 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.PublicKey;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+@Component
+public class JwksKeyCache {
+
+    private final WebClient webClient;
+    private final String jwksUri;
+    private final Duration refreshInterval;
+    private final long minRefetchIntervalNanos;
+    private final Duration fetchTimeout;
+
+    private final AtomicReference<Map<String, PublicKey>> keys = new AtomicReference<>(Map.of());
+    private final AtomicLong lastFetchNanos;
+
+    private Disposable refreshTask;
+
+    public JwksKeyCache(WebClient.Builder webClientBuilder,
+                        @Value("${jwt.jwks.uri:}") String jwksUri,
+                        @Value("${jwt.jwks.refresh-interval:5m}") Duration refreshInterval,
+                        @Value("${jwt.jwks.min-refetch-interval:30s}") Duration minRefetchInterval,
+                        @Value("${jwt.jwks.fetch-timeout:3s}") Duration fetchTimeout) {
+        this.webClient = webClientBuilder.build();
+        this.jwksUri = jwksUri;
+        this.refreshInterval = refreshInterval;
+        this.minRefetchIntervalNanos = minRefetchInterval.toNanos();
+        this.fetchTimeout = fetchTimeout;
+        this.lastFetchNanos = new AtomicLong(System.nanoTime() - minRefetchIntervalNanos);
+    }
+
+    // Deferred until the server is up so fetching never competes with startup; readiness waits for the first keys
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!StringUtils.hasText(jwksUri)) {
+            log.info("JWKS URI is not configured, asymmetric JWT verification is disabled");
+            return;
+        }
+        refreshTask = Flux.interval(Duration.ZERO, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> {
+                    lastFetchNanos.set(System.nanoTime());
+                    return fetch();
+                })
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refreshTask != null) {
+            refreshTask.dispose();
+        }
+    }
+
+    public PublicKey getKey(String kid) {
+        Map<String, PublicKey> current = keys.get();
+        PublicKey key = kid != null
+                ? current.get(kid)
+                : current.size() == 1 ? current.values().iterator().next() : null;
+        if (key == null) {
+            requestRefresh();
+        }
+        return key;
+    }
+
+    public boolean isLoaded() {
+        return !keys.get().isEmpty();
+    }
+
+    public boolean isEnabled() {
+        return StringUtils.hasText(jwksUri);
+    }
+
+    public String getJwksUri() {
+        return jwksUri;
+    }
+
+    public void requestRefresh() {
+        if (!StringUtils.hasText(jwksUri)) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastFetchNanos.get();
+        if (now - last < minRefetchIntervalNanos || !lastFetchNanos.compareAndSet(last, now)) {
+            return;
+        }
+        fetch().subscribe();
+    }
+
+    private Mono<Void> fetch() {
+        return webClient.get()
+                .uri(jwksUri)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(fetchTimeout)
+                .map(this::parse)
+                .doOnNext(parsed -> {
+                    keys.set(parsed);
+                    log.debug("Loaded {} JWKS keys from {}", parsed.size(), jwksUri);
+                })
+                .doOnError(e -> log.warn("JWKS refresh from {} failed: {}", jwksUri, e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private Map<String, PublicKey> parse(String json) {
+        try {
+            Map<String, PublicKey> parsed = new HashMap<>();
+            for (JWK jwk : JWKSet.parse(json).getKeys()) {
+                if (jwk instanceof RSAKey rsaKey) {
+                    parsed.put(jwk.getKeyID(), rsaKey.toRSAPublicKey());
+                } else if (jwk instanceof ECKey ecKey) {
+                    parsed.put(jwk.getKeyID(), ecKey.toECPublicKey());
+                }
+            }
+            return Collections.unmodifiableMap(parsed);
+        } catch (ParseException | JOSEException e) {
+            throw new IllegalStateException("Invalid JWKS document", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.jsonwebtoken.JwsHeader;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.security.Key;
+
+@Component
+@Order(2)
+public class JwksSigningKeyProvider implements SigningKeyProvider {
+
+    private final JwksKeyCache keyCache;
+
+    public JwksSigningKeyProvider(JwksKeyCache keyCache) {
+        this.keyCache = keyCache;
+    }
+
+    @Override
+    public boolean supports(JwsHeader header) {
+        String algorithm = header.getAlgorithm();
+        return algorithm != null
+                && (algorithm.startsWith("RS") || algorithm.startsWith("PS") || algorithm.startsWith("ES"));
+    }
+
+    @Override
+    public Key resolveKey(JwsHeader header) {
+        return keyCache.getKey(header.getKeyId());
+    }
+}
@@ -0,0 +1,65 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.security.Key;
+import java.util.List;
+
+@Component
+public class JwtTokenVerifier {
+
+    public static final String VERIFIED_CLAIMS_ATTR = JwtTokenVerifier.class.getName() + ".verifiedClaims";
+
+    private final List<SigningKeyProvider> keyProviders;
+    private final VerifiedTokenCache tokenCache;
+    private final TokenRevocationList revocationList;
+    private final JwtParser jwtParser;
+
+    public JwtTokenVerifier(List<SigningKeyProvider> keyProviders, VerifiedTokenCache tokenCache,
+                            TokenRevocationList revocationList) {
+        this.keyProviders = List.copyOf(keyProviders);
+        this.tokenCache = tokenCache;
+        this.revocationList = revocationList;
+        this.jwtParser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        return resolveKey(header);
+                    }
+                })
+                .build();
+    }
+
+    public Claims verify(String token) {
+        VerifiedTokenCache.TokenDigest digest = tokenCache.digest(token);
+        Claims claims = tokenCache.get(digest);
+        if (claims == null) {
+            claims = jwtParser.parseSignedClaims(token).getPayload();
+            tokenCache.put(digest, claims);
+        }
+        // Checked on cache hits too, since a token can be revoked long after it was first verified
+        if (revocationList.isRevoked(claims)) {
+            throw new RevokedTokenException(claims.getId());
+        }
+        return claims;
+    }
+
+    public static Claims getVerifiedClaims(ServerWebExchange exchange) {
+        return exchange.getAttribute(VERIFIED_CLAIMS_ATTR);
+    }
+
+    private Key resolveKey(JwsHeader header) {
+        for (SigningKeyProvider provider : keyProviders) {
+            if (provider.supports(header)) {
+                return provider.resolveKey(header);
+            }
+        }
+        return null;
+    }
+}
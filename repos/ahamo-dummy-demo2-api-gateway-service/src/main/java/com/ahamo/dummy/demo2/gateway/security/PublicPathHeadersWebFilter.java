@@ -0,0 +1,50 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import org.springframework.core.Ordered;
+import org.springframework.security.web.server.header.CacheControlServerHttpHeadersWriter;
+import org.springframework.security.web.server.header.CompositeServerHttpHeadersWriter;
+import org.springframework.security.web.server.header.ContentTypeOptionsServerHttpHeadersWriter;
+import org.springframework.security.web.server.header.HttpHeaderWriterWebFilter;
+import org.springframework.security.web.server.header.ReferrerPolicyServerHttpHeadersWriter;
+import org.springframework.security.web.server.header.StrictTransportSecurityServerHttpHeadersWriter;
+import org.springframework.security.web.server.header.XFrameOptionsServerHttpHeadersWriter;
+import org.springframework.security.web.server.header.XXssProtectionServerHttpHeadersWriter;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes the security chain's default response headers on the public paths, which bypass that chain: no-store
+ * caching, nosniff, frame denial, the XSS auditor switch, no-referrer and HSTS over HTTPS. Each writer leaves
+ * headers the upstream already set alone, as it does behind the security chain.
+ */
+public class PublicPathHeadersWebFilter implements WebFilter, Ordered {
+
+    private final ServerWebExchangeMatcher publicPaths;
+    private final WebFilter headersWriter = new HttpHeaderWriterWebFilter(new CompositeServerHttpHeadersWriter(
+            new CacheControlServerHttpHeadersWriter(),
+            new ContentTypeOptionsServerHttpHeadersWriter(),
+            new StrictTransportSecurityServerHttpHeadersWriter(),
+            new XFrameOptionsServerHttpHeadersWriter(),
+            new XXssProtectionServerHttpHeadersWriter(),
+            new ReferrerPolicyServerHttpHeadersWriter()));
+
+    public PublicPathHeadersWebFilter(String... publicPaths) {
+        this.publicPaths = ServerWebExchangeMatchers.pathMatchers(publicPaths);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return publicPaths.matches(exchange)
+                .flatMap(match -> match.isMatch() ? headersWriter.filter(exchange, chain) : chain.filter(exchange));
+    }
+
+    @Override
+    public int getOrder() {
+        // Right after CORS, where the security chain would otherwise have started
+        return Ordered.HIGHEST_PRECEDENCE + 2;
+    }
+}
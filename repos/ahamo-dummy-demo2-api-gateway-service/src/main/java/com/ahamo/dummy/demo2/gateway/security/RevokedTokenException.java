@@ -0,0 +1,10 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.jsonwebtoken.JwtException;
+
+public class RevokedTokenException extends JwtException {
+
+    public RevokedTokenException(String tokenId) {
+        super("Token " + tokenId + " has been revoked");
+    }
+}
@@ -0,0 +1,12 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.jsonwebtoken.JwsHeader;
+
+import java.security.Key;
+
+public interface SigningKeyProvider {
+
+    boolean supports(JwsHeader header);
+
+    Key resolveKey(JwsHeader header);
+}
@@ -0,0 +1,33 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "tokenrevocations")
+public class TokenRevocationEndpoint {
+
+    private final TokenRevocationList revocationList;
+
+    public TokenRevocationEndpoint(TokenRevocationList revocationList) {
+        this.revocationList = revocationList;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        return revocationList.stats();
+    }
+
+    // expiresAt is the token's exp claim in epoch seconds
+    @WriteOperation
+    public Mono<Map<String, Object>> revoke(String tokenId, long expiresAt) {
+        return revocationList.revoke(tokenId, Instant.ofEpochSecond(expiresAt))
+                .thenReturn(Map.of("revoked", tokenId, "entries", revocationList.size()));
+    }
+}
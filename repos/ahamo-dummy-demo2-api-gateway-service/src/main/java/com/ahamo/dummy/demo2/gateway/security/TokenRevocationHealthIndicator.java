@@ -0,0 +1,29 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.ReactiveHealthIndicator;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Out of service until the revocation set has been loaded from Redis once, so a new instance does not accept
+ * revoked tokens. Redis failures after that keep the last set and do not affect it.
+ */
+@Component
+public class TokenRevocationHealthIndicator implements ReactiveHealthIndicator {
+
+    private final TokenRevocationList revocationList;
+
+    public TokenRevocationHealthIndicator(TokenRevocationList revocationList) {
+        this.revocationList = revocationList;
+    }
+
+    @Override
+    public Mono<Health> health() {
+        if (!revocationList.isEnabled()) {
+            return Mono.just(Health.up().withDetail("revocation", "disabled").build());
+        }
+        Health.Builder health = revocationList.isLoaded() ? Health.up() : Health.outOfService();
+        return Mono.just(health.withDetail("entries", revocationList.size()).build());
+    }
+}
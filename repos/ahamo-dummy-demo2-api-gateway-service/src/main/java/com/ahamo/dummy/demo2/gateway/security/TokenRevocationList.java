@@ -0,0 +1,240 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked token IDs ({@code jti}) replicated from Redis, so checking a token never leaves the process. A Bloom
+ * filter answers the common case of a token that was never revoked; its positives are confirmed against the
+ * exact set.
+ * <p>
+ * Revocations are kept in a Redis sorted set scored by the token's expiry and announced on a pub/sub channel.
+ * The list subscribes before loading the set, so a revocation published in between is not missed, and reloads
+ * the set periodically, which drops expired tokens and repairs anything missed while disconnected. Nothing
+ * connects to Redis until the application is ready; readiness then waits for the first load.
+ */
+@Slf4j
+@Component
+public class TokenRevocationList {
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final boolean enabled;
+    private final String key;
+    private final String channel;
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+    private final Duration rebuildInterval;
+    private final Duration redisTimeout;
+
+    private volatile Filter filter;
+    private volatile boolean loaded;
+
+    private final Counter notRevoked;
+    private final Counter falsePositives;
+    private final Counter revoked;
+    private final Timer rebuilds;
+    private final Timer failedRebuilds;
+
+    private Disposable subscription;
+    private Disposable rebuildTask;
+
+    public TokenRevocationList(ReactiveStringRedisTemplate redisTemplate,
+                               @Value("${jwt.revocation.enabled:true}") boolean enabled,
+                               @Value("${jwt.revocation.key:gateway:revoked-tokens}") String key,
+                               @Value("${jwt.revocation.channel:gateway:token-revocations}") String channel,
+                               @Value("${jwt.revocation.expected-insertions:100000}") int expectedInsertions,
+                               @Value("${jwt.revocation.false-positive-rate:0.001}") double falsePositiveRate,
+                               @Value("${jwt.revocation.rebuild-interval:5m}") Duration rebuildInterval,
+                               @Value("${jwt.revocation.redis-timeout:2s}") Duration redisTimeout,
+                               MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.enabled = enabled;
+        this.key = key;
+        this.channel = channel;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rebuildInterval = rebuildInterval;
+        this.redisTimeout = redisTimeout;
+        this.filter = new Filter(BloomFilter.create(expectedInsertions, falsePositiveRate), new ConcurrentHashMap<>());
+
+        this.notRevoked = check(meterRegistry, "not_revoked");
+        this.falsePositives = check(meterRegistry, "false_positive");
+        this.revoked = check(meterRegistry, "revoked");
+        this.rebuilds = rebuildTimer(meterRegistry, "success");
+        this.failedRebuilds = rebuildTimer(meterRegistry, "failure");
+        Gauge.builder("gateway.auth.revocation.entries", this, list -> list.filter.exact().size())
+                .register(meterRegistry);
+        Gauge.builder("gateway.auth.revocation.bloom.false.positive.rate", this,
+                        list -> list.filter.bloom().expectedFalsePositiveRate())
+                .description("Expected Bloom filter false positive rate at its current fill")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            log.info("Token revocation is disabled");
+            return;
+        }
+        // The listener container connects eagerly and blocking, so it is created off the startup thread
+        subscription = Mono.defer(() -> redisTemplate.listenToChannelLater(channel))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(messages -> Flux.merge(
+                        rebuild(),
+                        messages.doOnNext(message -> add(message.getMessage())).then()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Token revocation subscription to {} failed, retrying: {}",
+                                channel, signal.failure().getMessage())))
+                .subscribe();
+        rebuildTask = Flux.interval(rebuildInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> rebuild())
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (rebuildTask != null) {
+            rebuildTask.dispose();
+        }
+    }
+
+    // On every authenticated request, so it must not allocate; tokens without a jti cannot be revoked
+    public boolean isRevoked(Claims claims) {
+        String tokenId = claims.getId();
+        if (tokenId == null) {
+            return false;
+        }
+        Filter current = filter;
+        if (!current.bloom().mightContain(tokenId)) {
+            notRevoked.increment();
+            return false;
+        }
+        if (current.exact().containsKey(tokenId)) {
+            revoked.increment();
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    // Records the revocation for every gateway instance; expiresAt is the token's exp, after which it is dropped
+    public Mono<Void> revoke(String tokenId, Instant expiresAt) {
+        add(tokenId);
+        return redisTemplate.opsForZSet().add(key, tokenId, expiresAt.getEpochSecond())
+                .then(redisTemplate.convertAndSend(channel, tokenId))
+                .timeout(redisTimeout)
+                .then();
+    }
+
+    public int size() {
+        return filter.exact().size();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Whether the revocation set was loaded from Redis at least once
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Map<String, Object> stats() {
+        Filter current = filter;
+        return Map.of(
+                "entries", current.exact().size(),
+                "bloomBits", current.bloom().bits(),
+                "bloomHashes", current.bloom().hashes(),
+                "expectedFalsePositiveRate", current.bloom().expectedFalsePositiveRate());
+    }
+
+    Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            double now = Instant.now().getEpochSecond();
+            return redisTemplate.opsForZSet().removeRangeByScore(key, Range.leftUnbounded(Range.Bound.inclusive(now)))
+                    .thenMany(redisTemplate.opsForZSet().rangeByScore(key,
+                            Range.rightUnbounded(Range.Bound.exclusive(now))))
+                    .collectList()
+                    .timeout(redisTimeout)
+                    .doOnNext(tokenIds -> {
+                        replace(tokenIds, start);
+                        long nanos = System.nanoTime() - start;
+                        rebuilds.record(nanos, TimeUnit.NANOSECONDS);
+                        log.debug("Rebuilt token revocation list with {} entries in {} ms",
+                                filter.exact().size(), TimeUnit.NANOSECONDS.toMillis(nanos));
+                    })
+                    .doOnError(e -> {
+                        failedRebuilds.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        log.warn("Token revocation list rebuild failed, keeping {} entries: {}", size(), e.getMessage());
+                    });
+        }).onErrorResume(e -> Mono.empty()).then();
+    }
+
+    synchronized void add(String tokenId) {
+        Filter current = filter;
+        current.exact().put(tokenId, System.nanoTime());
+        current.bloom().put(tokenId);
+    }
+
+    // Sized from the snapshot, so a growing list gets a larger filter instead of a rising false positive rate
+    private synchronized void replace(List<String> snapshot, long startedNanos) {
+        Map<String, Long> exact = new ConcurrentHashMap<>(Math.max(16, snapshot.size() * 2));
+        long now = System.nanoTime();
+        snapshot.forEach(tokenId -> exact.put(tokenId, now));
+        // Revocations announced while the snapshot loaded may not be in it yet
+        filter.exact().forEach((tokenId, addedAt) -> {
+            if (addedAt - startedNanos >= 0) {
+                exact.putIfAbsent(tokenId, addedAt);
+            }
+        });
+        BloomFilter bloom = BloomFilter.create(Math.max(expectedInsertions, exact.size() * 2), falsePositiveRate);
+        exact.keySet().forEach(bloom::put);
+        filter = new Filter(bloom, exact);
+        loaded = true;
+    }
+
+    private static Counter check(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("gateway.auth.revocation.checks")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Timer rebuildTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("gateway.auth.revocation.rebuild")
+                .description("Loading the revocation set from Redis and rebuilding the Bloom filter")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record Filter(BloomFilter bloom, Map<String, Long> exact) {
+    }
+}
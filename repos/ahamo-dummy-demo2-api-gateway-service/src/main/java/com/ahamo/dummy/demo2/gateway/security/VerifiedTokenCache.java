@@ -0,0 +1,153 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class VerifiedTokenCache {
+
+    private static final int SEGMENTS = 16;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long maxTtlMillis;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter sizeEvictions;
+    private final Counter expiredEvictions;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-entries:10000}") int maxEntries,
+                              @Value("${jwt.cache.max-ttl:5m}") Duration maxTtl,
+                              MeterRegistry meterRegistry) {
+        int perSegment = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.maxTtlMillis = maxTtl.toMillis();
+
+        this.hits = Counter.builder("gateway.auth.token.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("gateway.auth.token.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.sizeEvictions = Counter.builder("gateway.auth.token.cache.evictions")
+                .tag("cause", "size")
+                .register(meterRegistry);
+        this.expiredEvictions = Counter.builder("gateway.auth.token.cache.evictions")
+                .tag("cause", "expired")
+                .register(meterRegistry);
+        Gauge.builder("gateway.auth.token.cache.size", this, VerifiedTokenCache::size)
+                .register(meterRegistry);
+    }
+
+    public TokenDigest digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        ByteBuffer hash = ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        return new TokenDigest(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+    }
+
+    public Claims get(TokenDigest digest) {
+        Segment segment = segmentFor(digest);
+        long now = System.currentTimeMillis();
+        synchronized (segment) {
+            Entry entry = segment.get(digest);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.expiresAtMillis <= now) {
+                segment.remove(digest);
+                expiredEvictions.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.claims;
+        }
+    }
+
+    public void put(TokenDigest digest, Claims claims) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + maxTtlMillis;
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            expiresAt = Math.min(expiresAt, expiration.getTime());
+        }
+        if (expiresAt <= now) {
+            return;
+        }
+        Segment segment = segmentFor(digest);
+        synchronized (segment) {
+            segment.put(digest, new Entry(claims, expiresAt));
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(TokenDigest digest) {
+        return segments[(int) (digest.high() >>> 60) & (SEGMENTS - 1)];
+    }
+
+    public record TokenDigest(long high, long midHigh, long midLow, long low) {
+    }
+
+    private record Entry(Claims claims, long expiresAtMillis) {
+    }
+
+    private final class Segment extends LinkedHashMap<TokenDigest, Entry> {
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TokenDigest, Entry> eldest) {
+            if (size() > capacity) {
+                sizeEvictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.ahamo.dummy.demo2.gateway.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caps the connections one client address may hold open at once. Connections over the cap are closed as soon as
+ * they are accepted, before any of their bytes are read, so a client opening connections it never uses cannot take
+ * connection slots from everyone else.
+ */
+@ChannelHandler.Sharable
+public final class ConnectionLimiter extends ChannelInboundHandlerAdapter {
+
+    public static final String NAME = "gateway.connectionLimiter";
+
+    private final int maxConnectionsPerClient;
+    private final Map<InetAddress, Integer> openConnections = new ConcurrentHashMap<>();
+    private final Counter rejected;
+
+    public ConnectionLimiter(int maxConnectionsPerClient, MeterRegistry meterRegistry) {
+        this.maxConnectionsPerClient = maxConnectionsPerClient;
+        this.rejected = Counter.builder("gateway.server.connections.rejected")
+                .description("Connections closed on accept because their client address was at its cap")
+                .tag("reason", "per_client_limit")
+                .register(meterRegistry);
+        Gauge.builder("gateway.server.connections.clients", openConnections, Map::size)
+                .description("Client addresses with at least one open connection")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        if (!(ctx.channel().remoteAddress() instanceof InetSocketAddress remote) || remote.getAddress() == null) {
+            super.channelActive(ctx);
+            return;
+        }
+        InetAddress client = remote.getAddress();
+        if (openConnections.merge(client, 1, Integer::sum) > maxConnectionsPerClient) {
+            release(client);
+            rejected.increment();
+            ctx.close();
+            return;
+        }
+        ctx.channel().closeFuture().addListener(closed -> release(client));
+        super.channelActive(ctx);
+    }
+
+    int openConnections(InetAddress client) {
+        return openConnections.getOrDefault(client, 0);
+    }
+
+    private void release(InetAddress client) {
+        openConnections.computeIfPresent(client, (address, open) -> open > 1 ? open - 1 : null);
+    }
+}
@@ -0,0 +1,29 @@
+package com.ahamo.dummy.demo2.gateway.server;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+// Connection-level limits applied by ServerProtectionConfig; header size and keep-alive idle limits are server.* properties
+@Data
+@ConfigurationProperties(prefix = "gateway.server-protection")
+public class ServerProtectionProperties {
+
+    // Time a client has to finish sending a request head once it has sent the first byte of it
+    private Duration headerTimeout = Duration.ofSeconds(10);
+
+    // Longest pause allowed between reads of a request body
+    private Duration bodyReadTimeout = Duration.ofSeconds(15);
+
+    // Longest a response write may wait on a client that stopped reading
+    private Duration writeTimeout = Duration.ofSeconds(30);
+
+    // Open connections per client address, 0 for no cap. The address is the TCP peer, so behind a proxy that does
+    // not preserve client addresses this caps the proxy instead
+    private int maxConnectionsPerClient = 100;
+
+    // Body limit for routes that do not set their own max-body-size
+    private DataSize maxBodySize = DataSize.ofMegabytes(1);
+}
@@ -0,0 +1,204 @@
+package com.ahamo.dummy.demo2.gateway.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closes connections whose clients send too slowly to be worth serving. Once the first byte of a request head
+ * arrives the rest of the head must follow within the header timeout, and while the server is asking for more of a
+ * request body the client may not leave it waiting longer than the body read timeout. Time spent not reading
+ * because the upstream is applying backpressure is not held against the client, and waiting for the next request
+ * on a kept-alive connection is left to the server's idle timeout.
+ * <p>
+ * One instance per connection, added on both sides of the HTTP codec: {@link #bytesHandler()} sees the raw bytes
+ * before decoding, the handler itself the decoded requests and the responses written back. All of it runs on the
+ * connection's event loop.
+ */
+public final class SlowClientHandler extends ChannelDuplexHandler {
+
+    public static final String NAME = "gateway.slowClient";
+    public static final String BYTES_NAME = "gateway.slowClient.bytes";
+    public static final String WRITE_TIMEOUT_NAME = "gateway.writeTimeout";
+
+    private enum Phase {
+        IDLE, HEAD, BODY, RESPONSE
+    }
+
+    private final long headerTimeoutNanos;
+    private final long bodyReadTimeoutNanos;
+    private final Counter headerTimeouts;
+    private final Counter bodyReadTimeouts;
+    private final ChannelHandler bytesHandler = new BytesHandler();
+
+    private ChannelHandlerContext ctx;
+    private Phase phase = Phase.IDLE;
+    // The response was written while the request body was still arriving
+    private boolean responded;
+    private boolean awaitingBody;
+    private long awaitingSinceNanos;
+    private ScheduledFuture<?> timeout;
+
+    public SlowClientHandler(long headerTimeoutNanos, long bodyReadTimeoutNanos,
+                             Counter headerTimeouts, Counter bodyReadTimeouts) {
+        this.headerTimeoutNanos = headerTimeoutNanos;
+        this.bodyReadTimeoutNanos = bodyReadTimeoutNanos;
+        this.headerTimeouts = headerTimeouts;
+        this.bodyReadTimeouts = bodyReadTimeouts;
+    }
+
+    public ChannelHandler bytesHandler() {
+        return bytesHandler;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        cancelTimeout();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        cancelTimeout();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            cancelTimeout();
+            phase = Phase.BODY;
+            responded = false;
+            awaitingBody = false;
+            timeout = ctx.executor().schedule(this::checkBodyRead, bodyReadTimeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        if (msg instanceof LastHttpContent && phase == Phase.BODY) {
+            cancelTimeout();
+            phase = responded ? Phase.IDLE : Phase.RESPONSE;
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    // Reached by every read the server asks for, whether by auto-read or on demand from the request body's subscriber
+    @Override
+    public void read(ChannelHandlerContext ctx) throws Exception {
+        if (phase == Phase.BODY && !awaitingBody) {
+            awaitingBody = true;
+            awaitingSinceNanos = System.nanoTime();
+        }
+        super.read(ctx);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        boolean upgrade = msg instanceof HttpResponse response
+                && response.status().code() == HttpResponseStatus.SWITCHING_PROTOCOLS.code();
+        if (msg instanceof LastHttpContent) {
+            if (phase == Phase.RESPONSE) {
+                phase = Phase.IDLE;
+            } else if (phase == Phase.BODY) {
+                responded = true;
+            }
+        }
+        super.write(ctx, msg, promise);
+        if (upgrade) {
+            // Upgraded connections, such as WebSockets, no longer carry HTTP requests
+            ctx.pipeline().remove(bytesHandler);
+            ctx.pipeline().remove(this);
+        }
+    }
+
+    private void onBytes() {
+        if (phase == Phase.IDLE) {
+            phase = Phase.HEAD;
+            timeout = ctx.executor().schedule(this::headTimedOut, headerTimeoutNanos, TimeUnit.NANOSECONDS);
+        } else if (phase == Phase.BODY) {
+            awaitingBody = false;
+        }
+    }
+
+    private void headTimedOut() {
+        if (phase != Phase.HEAD) {
+            return;
+        }
+        headerTimeouts.increment();
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.REQUEST_TIMEOUT,
+                Unpooled.EMPTY_BUFFER);
+        response.headers()
+                .set(HttpHeaderNames.CONTENT_LENGTH, 0)
+                .set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    // Rescheduled for the remainder rather than on every read, which would cost a timer per chunk
+    private void checkBodyRead() {
+        if (phase != Phase.BODY) {
+            return;
+        }
+        long waited = awaitingBody ? System.nanoTime() - awaitingSinceNanos : 0;
+        if (waited >= bodyReadTimeoutNanos) {
+            bodyReadTimeouts.increment();
+            ctx.close();
+            return;
+        }
+        timeout = ctx.executor().schedule(this::checkBodyRead, bodyReadTimeoutNanos - waited, TimeUnit.NANOSECONDS);
+    }
+
+    private void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+    }
+
+    private final class BytesHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            onBytes();
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    /**
+     * Closes the connection when a response write has not completed within the timeout, which means the client
+     * stopped reading and the response is piling up in the server's buffers.
+     */
+    public static final class WriteTimeout extends WriteTimeoutHandler {
+
+        private final Counter timeouts;
+
+        public WriteTimeout(long timeoutNanos, Counter timeouts) {
+            super(timeoutNanos, TimeUnit.NANOSECONDS);
+            this.timeouts = timeouts;
+        }
+
+        @Override
+        protected void writeTimedOut(ChannelHandlerContext ctx) {
+            timeouts.increment();
+            ctx.close();
+        }
+    }
+}
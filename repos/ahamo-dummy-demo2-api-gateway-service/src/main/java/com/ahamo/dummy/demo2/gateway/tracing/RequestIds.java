@@ -0,0 +1,49 @@
+package com.ahamo.dummy.demo2.gateway.tracing;
+
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Request IDs in the ULID layout: 48 bits of epoch milliseconds then 80 random bits, as 26 Crockford base32
+ * characters that sort by creation time. The random bits come from ThreadLocalRandom rather than SecureRandom,
+ * which serializes callers; the IDs correlate logs and are not secrets.
+ */
+public final class RequestIds {
+
+    public static final String HEADER = "X-Request-ID";
+    public static final String ATTRIBUTE = RequestIds.class.getName() + ".requestId";
+
+    // Longer incoming IDs are replaced rather than logged and forwarded
+    static final int MAX_LENGTH = 128;
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private RequestIds() {
+    }
+
+    public static String next() {
+        return next(System.currentTimeMillis(), ThreadLocalRandom.current());
+    }
+
+    static String next(long epochMillis, ThreadLocalRandom random) {
+        char[] id = new char[26];
+        encode(id, 0, 10, epochMillis);
+        encode(id, 10, 8, random.nextLong());
+        encode(id, 18, 8, random.nextLong());
+        return new String(id);
+    }
+
+    // The exchange's ID, also when the request was rejected before the gateway added the header
+    public static String get(ServerWebExchange exchange) {
+        String requestId = exchange.getAttribute(ATTRIBUTE);
+        return requestId != null ? requestId : exchange.getRequest().getHeaders().getFirst(HEADER);
+    }
+
+    private static void encode(char[] id, int offset, int length, long bits) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            id[i] = CROCKFORD[(int) (bits & 31)];
+            bits >>>= 5;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.ahamo.dummy.demo2.gateway.tracing;
+
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A W3C trace context. IDs are kept as longs so a request that is not sampled never formats them; only the
+ * forwarded {@code traceparent} header is built per request.
+ */
+public record TraceContext(long traceIdHigh, long traceIdLow, long spanId, long parentSpanId, boolean sampled) {
+
+    public static final String TRACEPARENT = "traceparent";
+    public static final String ATTRIBUTE = TraceContext.class.getName();
+
+    private static final int VERSION_00_LENGTH = 55;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public static TraceContext get(ServerWebExchange exchange) {
+        return exchange.getAttribute(ATTRIBUTE);
+    }
+
+    static TraceContext root(boolean sampled) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new TraceContext(random.nextLong(), nonZero(random), nonZero(random), 0, sampled);
+    }
+
+    // A span of this trace whose parent is this context's span
+    TraceContext child(boolean sampled) {
+        return new TraceContext(traceIdHigh, traceIdLow, nonZero(ThreadLocalRandom.current()), spanId, sampled);
+    }
+
+    // Null when the header is absent or malformed, in which case the request starts a new trace
+    static TraceContext parse(String traceparent) {
+        if (traceparent == null || traceparent.length() < VERSION_00_LENGTH
+                || traceparent.charAt(2) != '-' || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return null;
+        }
+        long version = parseHex(traceparent, 0, 2);
+        if (version < 0 || version == 0xff || (version == 0 && traceparent.length() != VERSION_00_LENGTH)
+                || (traceparent.length() > VERSION_00_LENGTH && traceparent.charAt(VERSION_00_LENGTH) != '-')) {
+            return null;
+        }
+        long high = parseHex(traceparent, 3, 19);
+        long low = parseHex(traceparent, 19, 35);
+        long parent = parseHex(traceparent, 36, 52);
+        long flags = parseHex(traceparent, 53, 55);
+        if (!valid(traceparent, 3, 52) || flags < 0 || (high == 0 && low == 0) || parent == 0) {
+            return null;
+        }
+        return new TraceContext(high, low, parent, 0, (flags & 1) != 0);
+    }
+
+    public String traceparent() {
+        char[] header = new char[VERSION_00_LENGTH];
+        header[0] = '0';
+        header[1] = '0';
+        header[2] = '-';
+        writeHex(header, 3, traceIdHigh);
+        writeHex(header, 19, traceIdLow);
+        header[35] = '-';
+        writeHex(header, 36, spanId);
+        header[52] = '-';
+        header[53] = '0';
+        header[54] = sampled ? '1' : '0';
+        return new String(header);
+    }
+
+    public String traceId() {
+        char[] id = new char[32];
+        writeHex(id, 0, traceIdHigh);
+        writeHex(id, 16, traceIdLow);
+        return new String(id);
+    }
+
+    public static String spanId(long spanId) {
+        char[] id = new char[16];
+        writeHex(id, 0, spanId);
+        return new String(id);
+    }
+
+    private static long nonZero(ThreadLocalRandom random) {
+        long value;
+        do {
+            value = random.nextLong();
+        } while (value == 0);
+        return value;
+    }
+
+    private static void writeHex(char[] target, int offset, long value) {
+        for (int i = offset + 15; i >= offset; i--) {
+            target[i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    // Lowercase hex only, as the spec requires; -1 for anything else
+    private static long parseHex(String value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            int digit = c >= '0' && c <= '9' ? c - '0' : c >= 'a' && c <= 'f' ? c - 'a' + 10 : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    // parseHex cannot signal an error for a full 64-bit field, so the ID characters are checked separately
+    private static boolean valid(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f') && i != 35) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
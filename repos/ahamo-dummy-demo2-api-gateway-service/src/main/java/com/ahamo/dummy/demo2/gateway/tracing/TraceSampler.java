@@ -0,0 +1,73 @@
+package com.ahamo.dummy.demo2.gateway.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Head-based sampling decided once at the edge. A new trace is sampled with a fixed probability and a caller's
+ * decision is honoured, but either way at most {@code maxPerSecond} traces are sampled, so tracing cost stays
+ * flat at peak traffic. The budget is a GCRA bucket holding one second of burst.
+ */
+final class TraceSampler {
+
+    private final double sampleRate;
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    private final Counter sampled;
+    private final Counter notSampled;
+    private final Counter overBudget;
+
+    TraceSampler(double sampleRate, int maxPerSecond, MeterRegistry meterRegistry) {
+        this.sampleRate = sampleRate;
+        this.emissionIntervalNanos = maxPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxPerSecond : Long.MAX_VALUE;
+        this.burstToleranceNanos = TimeUnit.SECONDS.toNanos(1);
+        this.theoreticalArrivalNanos = new AtomicLong(System.nanoTime());
+        this.sampled = decision(meterRegistry, "sampled");
+        this.notSampled = decision(meterRegistry, "not_sampled");
+        this.overBudget = decision(meterRegistry, "over_budget");
+    }
+
+    boolean sample(TraceContext parent) {
+        boolean wanted = parent != null
+                ? parent.sampled()
+                : sampleRate > 0 && (sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+        if (!wanted) {
+            notSampled.increment();
+            return false;
+        }
+        if (!tryAcquire(System.nanoTime())) {
+            overBudget.increment();
+            return false;
+        }
+        sampled.increment();
+        return true;
+    }
+
+    private boolean tryAcquire(long nowNanos) {
+        if (emissionIntervalNanos == Long.MAX_VALUE) {
+            return false;
+        }
+        while (true) {
+            long tat = theoreticalArrivalNanos.get();
+            long newTat = Math.max(tat, nowNanos) + emissionIntervalNanos;
+            if (newTat - nowNanos > burstToleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, newTat)) {
+                return true;
+            }
+        }
+    }
+
+    private static Counter decision(MeterRegistry meterRegistry, String decision) {
+        return Counter.builder("gateway.tracing.decisions")
+                .tag("decision", decision)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ahamo.dummy.demo2.gateway.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Gives every request an {@code X-Request-ID} and a {@code traceparent} before security and routing run, so
+ * both reach every upstream and every log line, and returns the request ID on the response. The gateway's span
+ * becomes the parent of the upstream request; its timing is written with the access log when sampled.
+ */
+@Component
+public class TracingWebFilter implements WebFilter, Ordered {
+
+    private final TraceSampler sampler;
+
+    public TracingWebFilter(@Value("${gateway.tracing.sample-rate:0.01}") double sampleRate,
+                            @Value("${gateway.tracing.max-sampled-per-second:100}") int maxSampledPerSecond,
+                            MeterRegistry meterRegistry) {
+        this.sampler = new TraceSampler(sampleRate, maxSampledPerSecond, meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        String requestId = headers.getFirst(RequestIds.HEADER);
+        if (requestId == null || requestId.isEmpty() || requestId.length() > RequestIds.MAX_LENGTH) {
+            requestId = RequestIds.next();
+        }
+        TraceContext parent = TraceContext.parse(headers.getFirst(TraceContext.TRACEPARENT));
+        boolean sampled = sampler.sample(parent);
+        TraceContext span = parent != null ? parent.child(sampled) : TraceContext.root(sampled);
+
+        // Attributes are shared with the mutated exchange, so error handlers outside the filter chain see them too
+        exchange.getAttributes().put(RequestIds.ATTRIBUTE, requestId);
+        exchange.getAttributes().put(TraceContext.ATTRIBUTE, span);
+        String id = requestId;
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            response.getHeaders().set(RequestIds.HEADER, id);
+            return Mono.empty();
+        });
+
+        return chain.filter(exchange.mutate()
+                .request(request -> request.headers(forwarded -> {
+                    forwarded.set(RequestIds.HEADER, id);
+                    forwarded.set(TraceContext.TRACEPARENT, span.traceparent());
+                }))
+                .build());
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
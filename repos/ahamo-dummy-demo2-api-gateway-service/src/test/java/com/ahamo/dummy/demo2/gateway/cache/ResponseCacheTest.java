@@ -0,0 +1,43 @@
+package com.ahamo.dummy.demo2.gateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+    @Test
+    void shouldKeepStoredBytesWithinBudget() {
+        ResponseCache cache = new ResponseCache(DataSize.ofKilobytes(64), DataSize.ofKilobytes(4), new SimpleMeterRegistry());
+
+        for (int i = 0; i < 200; i++) {
+            cache.put("/api/v1/smartphones/" + i, response(1024));
+        }
+
+        assertThat(cache.bytes()).isLessThanOrEqualTo(cache.maxBytes());
+        assertThat(cache.size()).isLessThan(200);
+        assertThat(cache.put("/api/v1/smartphones/large", response(8 * 1024))).isFalse();
+    }
+
+    @Test
+    void shouldInvalidateByPathPrefix() {
+        ResponseCache cache = new ResponseCache(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), new SimpleMeterRegistry());
+        cache.put("/api/v1/smartphones/1", response(16));
+        cache.put("/api/v1/smartphones/2?color=black", response(16));
+        cache.put("/api/v1/plans/basic", response(16));
+
+        assertThat(cache.invalidatePrefix("/api/v1/smartphones")).isEqualTo(2);
+        assertThat(cache.get("/api/v1/plans/basic")).isNotNull();
+        assertThat(cache.bytes()).isEqualTo(16);
+    }
+
+    private static CachedResponse response(int size) {
+        return CachedResponse.of(200, new HttpHeaders(), new HttpHeaders(), new byte[size], size,
+                TimeUnit.SECONDS.toNanos(60), 0);
+    }
+}
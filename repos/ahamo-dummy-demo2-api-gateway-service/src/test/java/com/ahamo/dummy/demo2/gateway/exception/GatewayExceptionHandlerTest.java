@@ -0,0 +1,61 @@
+package com.ahamo.dummy.demo2.gateway.exception;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GatewayExceptionHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final GatewayExceptionHandler handler = new GatewayExceptionHandler(new ErrorResponseWriter(), 10);
+
+    @Test
+    void shouldRenderErrorBodyWithRequestFields() throws Exception {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header("X-Request-ID", "req-\"42\""));
+
+        StepVerifier.create(handler.handle(exchange, NotFoundException.create(true, "no instance"))).verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(exchange.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        JsonNode body = objectMapper.readTree(exchange.getResponse().getBodyAsString().block());
+        assertThat(body.get("status").asInt()).isEqualTo(404);
+        assertThat(body.get("error").asText()).isEqualTo("Not Found");
+        assertThat(body.get("message").asText()).isEqualTo("Service not found");
+        assertThat(body.get("path").asText()).isEqualTo("/api/v1/smartphones/1");
+        assertThat(body.get("requestId").asText()).isEqualTo("req-\"42\"");
+        assertThat(body.hasNonNull("timestamp")).isTrue();
+    }
+
+    @Test
+    void shouldEscapeDynamicReasonsAndOmitMissingRequestId() throws Exception {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/orders/ü"));
+
+        StepVerifier.create(handler.handle(exchange,
+                new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "upstream \"orders\"\ntimed out"))).verifyComplete();
+
+        JsonNode body = objectMapper.readTree(exchange.getResponse().getBodyAsString().block());
+        assertThat(body.get("status").asInt()).isEqualTo(504);
+        assertThat(body.get("message").asText()).isEqualTo("upstream \"orders\"\ntimed out");
+        assertThat(body.get("path").asText()).isEqualTo(exchange.getRequest().getURI().getRawPath());
+        assertThat(body.has("requestId")).isFalse();
+    }
+
+    @Test
+    void shouldPreEncodeStaticBodies() throws Exception {
+        byte[] body = ErrorResponseWriter.staticBody(HttpStatus.UNAUTHORIZED, "Invalid JWT token");
+
+        assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo("{\"error\":\"Invalid JWT token\",\"status\":401}");
+    }
+}
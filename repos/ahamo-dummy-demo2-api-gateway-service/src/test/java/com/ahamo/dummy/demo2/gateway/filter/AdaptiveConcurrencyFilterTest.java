@@ -0,0 +1,76 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.exception.ErrorResponseWriter;
+import com.ahamo.dummy.demo2.gateway.ratelimit.AdaptiveConcurrencyLimiter;
+import com.ahamo.dummy.demo2.gateway.ratelimit.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class AdaptiveConcurrencyFilterTest {
+
+    private final ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+    private final AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(properties, new SimpleMeterRegistry());
+    private final AdaptiveConcurrencyFilter filter =
+            new AdaptiveConcurrencyFilter(limiter, new ErrorResponseWriter(), properties);
+
+    @Test
+    void shouldReleasePermitOnceResponseStartsRatherThanWhenBodyIsWritten() {
+        MockServerWebExchange exchange = routedExchange("product-service");
+        Sinks.Many<DataBuffer> body = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.create(filter.filter(exchange, e -> {
+                    e.getResponse().setStatusCode(HttpStatus.OK);
+                    return e.getResponse().writeWith(body.asFlux());
+                }))
+                .then(() -> {
+                    assertThat(limiter.forRoute("product-service").inFlight()).isEqualTo(1);
+                    body.tryEmitNext(buffer("first chunk"));
+                })
+                .then(() -> assertThat(limiter.forRoute("product-service").inFlight()).isZero())
+                .then(() -> body.tryEmitComplete())
+                .verifyComplete();
+
+        assertThat(limiter.forRoute("product-service").inFlight()).isZero();
+    }
+
+    @Test
+    void shouldReleasePermitWhenNoResponseIsWritten() {
+        MockServerWebExchange exchange = routedExchange("product-service");
+
+        StepVerifier.create(filter.filter(exchange, e -> Mono.error(new IllegalStateException("upstream down"))))
+                .verifyError(IllegalStateException.class);
+
+        assertThat(limiter.forRoute("product-service").inFlight()).isZero();
+    }
+
+    private static MockServerWebExchange routedExchange(String routeId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones"));
+        Route route = Route.async()
+                .id(routeId)
+                .uri(URI.create("http://localhost:8080"))
+                .predicate(e -> true)
+                .build();
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+
+    private static DataBuffer buffer(String content) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,22 +1,34 @@
 package com.ahamo.dummy.demo2.gateway.filter;
 
+import com.ahamo.dummy.demo2.gateway.security.HmacSigningKeyProvider;
+import com.ahamo.dummy.demo2.gateway.security.JwtTokenVerifier;
+import com.ahamo.dummy.demo2.gateway.security.TokenRevocationList;
+import com.ahamo.dummy.demo2.gateway.security.VerifiedTokenCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
-import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,12 +49,23 @@ class AuthenticationFilterTest {
     @Mock
     private HttpHeaders headers;
 
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    private static final String JWT_SECRET = "dGVzdFNlY3JldEtleUZvckpXVFRva2VuVGVzdGluZ1B1cnBvc2VzMTIzNDU2Nzg5MA==";
+
     private AuthenticationFilter authenticationFilter;
 
+    private VerifiedTokenCache tokenCache;
+
     @BeforeEach
     void setUp() {
-        authenticationFilter = new AuthenticationFilter();
-        ReflectionTestUtils.setField(authenticationFilter, "jwtSecret", "dGVzdFNlY3JldEtleUZvckpXVFRva2VuVGVzdGluZ1B1cnBvc2VzMTIzNDU2Nzg5MA==");
+        tokenCache = new VerifiedTokenCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        TokenRevocationList revocationList = new TokenRevocationList(redisTemplate, true, "revoked-tokens",
+                "token-revocations", 1000, 0.001, Duration.ofMinutes(5), Duration.ofSeconds(2), new SimpleMeterRegistry());
+        JwtTokenVerifier tokenVerifier = new JwtTokenVerifier(List.of(new HmacSigningKeyProvider(JWT_SECRET)), tokenCache,
+                revocationList);
+        authenticationFilter = new AuthenticationFilter(tokenVerifier, 10);
     }
 
     @Test
@@ -126,4 +149,44 @@ class AuthenticationFilterTest {
         verify(response).setStatusCode(HttpStatus.UNAUTHORIZED);
         verify(chain, never()).filter(exchange);
     }
+
+    @Test
+    void shouldAcceptValidTokenAndCacheVerification() {
+        String token = Jwts.builder()
+                .subject("user-1")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(JWT_SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        when(exchange.getRequest()).thenReturn(request);
+        when(request.getURI()).thenReturn(URI.create("/api/v1/users"));
+        when(request.getHeaders()).thenReturn(headers);
+        when(headers.getFirst(HttpHeaders.AUTHORIZATION)).thenReturn("Bearer " + token);
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(authenticationFilter.apply(new AuthenticationFilter.Config())
+                            .filter(exchange, chain))
+                    .verifyComplete();
+        }
+
+        verify(chain, times(2)).filter(exchange);
+        assertThat(tokenCache.size()).isEqualTo(1);
+        assertThat(tokenCache.get(tokenCache.digest(token)).getSubject()).isEqualTo("user-1");
+    }
+
+    @Test
+    void shouldReuseClaimsVerifiedEarlierInTheExchange() {
+        when(exchange.getRequest()).thenReturn(request);
+        when(request.getURI()).thenReturn(URI.create("/api/v1/orders"));
+        when(exchange.getAttribute(JwtTokenVerifier.VERIFIED_CLAIMS_ATTR))
+                .thenReturn(Jwts.claims().subject("user-1").build());
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        StepVerifier.create(authenticationFilter.apply(new AuthenticationFilter.Config())
+                        .filter(exchange, chain))
+                .verifyComplete();
+
+        verify(request, never()).getHeaders();
+        assertThat(tokenCache.size()).isZero();
+    }
 }
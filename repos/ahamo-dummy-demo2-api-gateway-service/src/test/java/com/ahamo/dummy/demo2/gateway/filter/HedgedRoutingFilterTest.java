@@ -0,0 +1,148 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.metrics.RouteMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+class HedgedRoutingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HedgingFilter hedgingFilter = new HedgingFilter(new RouteMetrics(meterRegistry), meterRegistry);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final Sinks.Empty<Void> hedgeFailed = Sinks.empty();
+
+    private DisposableServer upstream;
+    private HedgedRoutingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        upstream = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> {
+                    upstreamCalls.incrementAndGet();
+                    if (request.uri().startsWith("/failing")) {
+                        return response.status(HttpStatus.SERVICE_UNAVAILABLE.value()).send()
+                                .then(Mono.fromRunnable(hedgeFailed::tryEmitEmpty));
+                    }
+                    return response.header("Content-Type", "application/json").sendString(Mono.just("{\"source\":\"hedge\"}"));
+                })
+                .bindNow();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        filter = new HedgedRoutingFilter(HttpClient.create(),
+                beanFactory.getBeanProvider(ResolvableType.forClassWithGenerics(List.class, HttpHeadersFilter.class)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        upstream.disposeNow();
+    }
+
+    @Test
+    void shouldServeHedgeWhenPrimaryIsSlow() {
+        MockServerWebExchange exchange = hedgedExchange(hedging(new HedgingFilter.Config()));
+
+        StepVerifier.create(filter.filter(exchange, ex -> Mono.never())).verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("{\"source\":\"hedge\"}");
+        assertThat(exchange.<Boolean>getAttribute(HedgedRoutingFilter.HEDGE_WON_ATTRIBUTE)).isTrue();
+        assertThat(meterRegistry.get("gateway.hedging.requests").tag("outcome", "hedge_won").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldWaitForSlowPrimaryWhenHedgeFails() {
+        MockServerWebExchange exchange = hedgedExchange(hedging(new HedgingFilter.Config()), "/failing");
+        // Answers only after the upstream has already failed the hedge
+        GatewayFilterChain slowPrimary = ex -> hedgeFailed.asMono()
+                .then(Mono.delay(Duration.ofMillis(100)))
+                .then(Mono.fromRunnable(() -> ex.getResponse().setStatusCode(HttpStatus.OK)));
+
+        StepVerifier.create(filter.filter(exchange, slowPrimary)).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.<Boolean>getAttribute(HedgedRoutingFilter.HEDGE_WON_ATTRIBUTE)).isNull();
+        assertThat(meterRegistry.get("gateway.hedging.requests").tag("outcome", "hedge_won").counter().count())
+                .isZero();
+    }
+
+    @Test
+    void shouldReportPrimaryErrorWhenBothAttemptsFail() {
+        MockServerWebExchange exchange = hedgedExchange(hedging(new HedgingFilter.Config()), "/failing");
+
+        StepVerifier.create(filter.filter(exchange, ex -> Mono.error(new ConnectException("Connection refused"))))
+                .verifyError(ConnectException.class);
+    }
+
+    @Test
+    void shouldNotHedgeWhenPrimaryAnswersBeforeDelay() {
+        MockServerWebExchange exchange = hedgedExchange(hedging(new HedgingFilter.Config()));
+        GatewayFilterChain primary = ex -> {
+            ex.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        };
+
+        StepVerifier.create(filter.filter(exchange, primary)).verifyComplete();
+        StepVerifier.create(Mono.delay(Duration.ofMillis(100))).expectNextCount(1).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(0);
+        assertThat(meterRegistry.find("gateway.hedging.requests").tag("outcome", "hedged").counter().count()).isZero();
+    }
+
+    @Test
+    void shouldRetryFailedPrimaryOnlyWhileBudgetLasts() {
+        GatewayFilter hedging = hedging(new HedgingFilter.Config().setBudgetRatio(0).setBudgetMaxTokens(1));
+        GatewayFilterChain failing = ex -> Mono.error(new ConnectException("Connection refused"));
+
+        MockServerWebExchange retried = hedgedExchange(hedging);
+        StepVerifier.create(filter.filter(retried, failing)).verifyComplete();
+        assertThat(retried.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        MockServerWebExchange exhausted = hedgedExchange(hedging);
+        StepVerifier.create(filter.filter(exhausted, failing)).verifyError(ConnectException.class);
+        assertThat(meterRegistry.get("gateway.hedging.requests").tag("outcome", "budget_exhausted").counter().count())
+                .isEqualTo(1);
+    }
+
+    private GatewayFilter hedging(HedgingFilter.Config config) {
+        return hedgingFilter.apply(config.setPercentile(0).setDelay(Duration.ofMillis(20)));
+    }
+
+    private MockServerWebExchange hedgedExchange(GatewayFilter hedging) {
+        return hedgedExchange(hedging, "/api/v1/smartphones/1");
+    }
+
+    private MockServerWebExchange hedgedExchange(GatewayFilter hedging, String upstreamPath) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR,
+                URI.create("http://localhost:" + upstream.port() + upstreamPath));
+        hedging.filter(exchange, ex -> Mono.empty()).block();
+        return exchange;
+    }
+}
@@ -0,0 +1,86 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.identity.IdentityHeaders;
+import com.ahamo.dummy.demo2.gateway.identity.IdentityVerifier;
+import com.ahamo.dummy.demo2.gateway.identity.VerifiedIdentity;
+import com.ahamo.dummy.demo2.gateway.security.JwtTokenVerifier;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdentityPropagationFilterTest {
+
+    private static final String SECRET = "dGVzdElkZW50aXR5U2VjcmV0Rm9yRG93bnN0cmVhbVNlcnZpY2VzMTIzNDU2Nzg=";
+
+    private final IdentityPropagationFilter factory = new IdentityPropagationFilter(SECRET);
+    private final IdentityVerifier verifier = new IdentityVerifier(SECRET);
+
+    @Test
+    void shouldReplaceSpoofedIdentityWithSignedHeadersFromVerifiedClaims() {
+        MockServerWebExchange exchange = spoofedExchange();
+        exchange.getAttributes().put(JwtTokenVerifier.VERIFIED_CLAIMS_ATTR, Jwts.claims()
+                .subject("user-1")
+                .add("roles", List.of("USER"))
+                .expiration(new Date(System.currentTimeMillis() + 300_000))
+                .build());
+
+        HttpHeaders forwarded = forward(factory.apply(new IdentityPropagationFilter.Config()), exchange);
+
+        assertThat(forwarded.containsKey(HttpHeaders.AUTHORIZATION)).isFalse();
+        assertThat(forwarded.getFirst(IdentityHeaders.SUBJECT)).isEqualTo("user-1");
+        assertThat(forwarded.getFirst(IdentityHeaders.ROLES)).isEqualTo("USER");
+        Optional<VerifiedIdentity> identity = verifier.verify(forwarded::getFirst);
+        assertThat(identity).isPresent();
+        assertThat(identity.get().roles()).containsExactly("USER");
+    }
+
+    @Test
+    void shouldKeepAuthorizationWhenRouteAsksForIt() {
+        MockServerWebExchange exchange = spoofedExchange();
+        exchange.getAttributes().put(JwtTokenVerifier.VERIFIED_CLAIMS_ATTR, Jwts.claims().subject("user-1").build());
+
+        HttpHeaders forwarded = forward(factory.apply(new IdentityPropagationFilter.Config()
+                .setStripAuthorization(false)), exchange);
+
+        assertThat(forwarded.getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer token");
+        assertThat(verifier.verify(forwarded::getFirst)).isPresent();
+    }
+
+    @Test
+    void shouldStripSpoofedIdentityWithoutVerifiedClaims() {
+        HttpHeaders forwarded = forward(factory.apply(new IdentityPropagationFilter.Config()), spoofedExchange());
+
+        IdentityHeaders.ALL.forEach(name -> assertThat(forwarded.containsKey(name)).isFalse());
+        assertThat(forwarded.getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer token");
+    }
+
+    private static MockServerWebExchange spoofedExchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/orders")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer token")
+                .header(IdentityHeaders.SUBJECT, "admin")
+                .header(IdentityHeaders.ROLES, "ADMIN")
+                .header(IdentityHeaders.EXPIRES, "9999999999")
+                .header(IdentityHeaders.SIGNATURE, "forged"));
+    }
+
+    private static HttpHeaders forward(GatewayFilter filter, MockServerWebExchange exchange) {
+        AtomicReference<HttpHeaders> forwarded = new AtomicReference<>();
+        StepVerifier.create(filter.filter(exchange, e -> {
+            forwarded.set(e.getRequest().getHeaders());
+            return Mono.empty();
+        })).verifyComplete();
+        return forwarded.get();
+    }
+}
@@ -1,5 +1,7 @@
 package com.ahamo.dummy.demo2.gateway.filter;
 
+import com.ahamo.dummy.demo2.gateway.logging.AccessLogPipeline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,7 +19,9 @@ import reactor.test.StepVerifier;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.time.Duration;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,9 +44,12 @@ class LoggingFilterTest {
 
     private LoggingFilter loggingFilter;
 
+    private AccessLogPipeline accessLog;
+
     @BeforeEach
     void setUp() {
-        loggingFilter = new LoggingFilter();
+        accessLog = new AccessLogPipeline(16, 16, 1.0, Duration.ofMillis(10), new SimpleMeterRegistry());
+        loggingFilter = new LoggingFilter(accessLog);
         
         when(exchange.getRequest()).thenReturn(request);
         when(exchange.getResponse()).thenReturn(response);
@@ -65,6 +72,7 @@ class LoggingFilterTest {
                 .verifyComplete();
         
         verify(chain).filter(exchange);
+        assertThat(accessLog.backlog()).isEqualTo(1);
     }
 
     @Test
@@ -84,4 +92,19 @@ class LoggingFilterTest {
         
         verify(chain).filter(exchange);
     }
+
+    @Test
+    void shouldRecordAccessLogWhenUpstreamFails() {
+        when(request.getMethod()).thenReturn(HttpMethod.GET);
+        when(request.getURI()).thenReturn(URI.create("/api/v1/orders"));
+        when(request.getRemoteAddress()).thenReturn(new InetSocketAddress("127.0.0.1", 8080));
+        when(headers.getFirst("X-Request-ID")).thenReturn("failed-request-id");
+        when(response.getStatusCode()).thenReturn(HttpStatus.BAD_GATEWAY);
+        when(chain.filter(exchange)).thenReturn(Mono.error(new IllegalStateException("upstream down")));
+
+        StepVerifier.create(loggingFilter.apply(new LoggingFilter.Config()).filter(exchange, chain))
+                .verifyError(IllegalStateException.class);
+
+        assertThat(accessLog.backlog()).isEqualTo(1);
+    }
 }
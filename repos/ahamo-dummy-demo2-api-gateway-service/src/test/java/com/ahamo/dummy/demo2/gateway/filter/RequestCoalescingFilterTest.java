@@ -0,0 +1,211 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescingFilterTest {
+
+    private static final String BODY = "{\"id\":1,\"name\":\"iPhone\"}";
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescingFilter factory;
+    private AtomicInteger upstreamCalls;
+    private Sinks.Empty<Void> upstreamReleased;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        factory = new RequestCoalescingFilter(meterRegistry);
+        upstreamCalls = new AtomicInteger();
+        upstreamReleased = Sinks.empty();
+    }
+
+    @Test
+    void shouldShareOneUpstreamCallBetweenConcurrentIdenticalRequests() {
+        GatewayFilter filter = factory.apply(new RequestCoalescingFilter.Config().setEnabled(true));
+        MockServerWebExchange leader = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        MockServerWebExchange follower = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+
+        Mono<Void> leaderResult = filter.filter(leader, slowUpstream()).cache();
+        leaderResult.subscribe();
+        Mono<Void> followerResult = filter.filter(follower, slowUpstream());
+
+        upstreamReleased.tryEmitEmpty();
+        StepVerifier.create(followerResult).verifyComplete();
+        StepVerifier.create(leaderResult).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(follower.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(follower.getResponse().getHeaders().getETag()).isEqualTo("\"v7\"");
+        StepVerifier.create(follower.getResponse().getBodyAsString()).expectNext(BODY).verifyComplete();
+        assertThat(meterRegistry.get("gateway.coalescing.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    void shouldKeepFollowersOwnHeadersWhenReplaying() {
+        GatewayFilter filter = factory.apply(new RequestCoalescingFilter.Config().setEnabled(true));
+        MockServerWebExchange leader = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        leader.getResponse().getHeaders().setAccessControlAllowOrigin("https://a.example");
+        leader.getResponse().getHeaders().set("X-Request-Id", "leader");
+        MockServerWebExchange follower = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        follower.getResponse().getHeaders().setAccessControlAllowOrigin("https://b.example");
+
+        Mono<Void> leaderResult = filter.filter(leader, slowUpstream()).cache();
+        leaderResult.subscribe();
+        Mono<Void> followerResult = filter.filter(follower, slowUpstream());
+        upstreamReleased.tryEmitEmpty();
+        StepVerifier.create(followerResult).verifyComplete();
+
+        HttpHeaders headers = follower.getResponse().getHeaders();
+        assertThat(headers.getAccessControlAllowOrigin()).isEqualTo("https://b.example");
+        assertThat(headers.containsKey("X-Request-Id")).isFalse();
+        assertThat(headers.getETag()).isEqualTo("\"v7\"");
+    }
+
+    @Test
+    void shouldNotReplayHeadersRouteFiltersAddedForTheLeader() {
+        GatewayFilter filter = factory.apply(new RequestCoalescingFilter.Config().setEnabled(true));
+        MockServerWebExchange leader = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        MockServerWebExchange follower = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        // As the rate limiter and resilience filters do, after coalescing has already seen the leader
+        GatewayFilterChain rateLimitedUpstream = exchange -> {
+            exchange.getResponse().getHeaders().set("X-RateLimit-Remaining", "59");
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+            return slowUpstream().filter(exchange);
+        };
+
+        Mono<Void> leaderResult = filter.filter(leader, rateLimitedUpstream).cache();
+        leaderResult.subscribe();
+        Mono<Void> followerResult = filter.filter(follower, rateLimitedUpstream);
+        upstreamReleased.tryEmitEmpty();
+        StepVerifier.create(followerResult).verifyComplete();
+
+        HttpHeaders headers = follower.getResponse().getHeaders();
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(headers.containsKey("X-RateLimit-Remaining")).isFalse();
+        assertThat(headers.containsKey(HttpHeaders.RETRY_AFTER)).isFalse();
+        assertThat(headers.getETag()).isEqualTo("\"v7\"");
+    }
+
+    @Test
+    void shouldNotCoalesceRequestsThatDifferInVaryHeaders() {
+        GatewayFilter filter = factory.apply(new RequestCoalescingFilter.Config().setEnabled(true));
+        MockServerWebExchange japanese = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "ja"));
+        MockServerWebExchange english = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.ACCEPT_LANGUAGE, "en"));
+
+        Mono<Void> first = filter.filter(japanese, slowUpstream()).cache();
+        first.subscribe();
+        Mono<Void> second = filter.filter(english, slowUpstream()).cache();
+        second.subscribe();
+        upstreamReleased.tryEmitEmpty();
+
+        StepVerifier.create(first.then(second)).verifyComplete();
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void shouldNotShareUnmarkedResponsesAcrossCredentials() {
+        GatewayFilter filter = factory.apply(new RequestCoalescingFilter.Config().setEnabled(true));
+        MockServerWebExchange alice = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer alice"));
+        MockServerWebExchange bob = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer bob"));
+
+        Mono<Void> first = filter.filter(alice, slowUpstream()).cache();
+        first.subscribe();
+        Mono<Void> second = filter.filter(bob, slowUpstream()).cache();
+        second.subscribe();
+        upstreamReleased.tryEmitEmpty();
+
+        StepVerifier.create(first.then(second)).verifyComplete();
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void shouldShareAcrossCredentialsWhenUpstreamMarksResponsePublic() {
+        GatewayFilter filter = factory.apply(new RequestCoalescingFilter.Config().setEnabled(true));
+        MockServerWebExchange alice = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer alice"));
+        MockServerWebExchange bob = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer bob"));
+
+        Mono<Void> first = filter.filter(alice, slowUpstream(HttpStatus.OK, "public, max-age=60")).cache();
+        first.subscribe();
+        Mono<Void> second = filter.filter(bob, slowUpstream(HttpStatus.OK, "public, max-age=60"));
+        upstreamReleased.tryEmitEmpty();
+
+        StepVerifier.create(second).verifyComplete();
+        assertThat(upstreamCalls).hasValue(1);
+        StepVerifier.create(bob.getResponse().getBodyAsString()).expectNext(BODY).verifyComplete();
+    }
+
+    @Test
+    void shouldSendWaitersUpstreamWhenLeaderGetsServerError() {
+        GatewayFilter filter = factory.apply(new RequestCoalescingFilter.Config().setEnabled(true));
+        MockServerWebExchange leader = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        MockServerWebExchange follower = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+
+        Mono<Void> leaderResult = filter.filter(leader, slowUpstream(HttpStatus.SERVICE_UNAVAILABLE, null)).cache();
+        leaderResult.subscribe();
+        Mono<Void> followerResult = filter.filter(follower, slowUpstream());
+        upstreamReleased.tryEmitEmpty();
+
+        StepVerifier.create(followerResult).verifyComplete();
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(follower.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(meterRegistry.get("gateway.coalescing.requests").tag("role", "fallback").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldPassThroughWhenDisabled() {
+        GatewayFilter filter = factory.apply(new RequestCoalescingFilter.Config());
+        upstreamReleased.tryEmitEmpty();
+
+        StepVerifier.create(filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1")),
+                slowUpstream())).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    private GatewayFilterChain slowUpstream() {
+        return slowUpstream(HttpStatus.OK, null);
+    }
+
+    private GatewayFilterChain slowUpstream(HttpStatus status, String cacheControl) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            return upstreamReleased.asMono()
+                    .timeout(Duration.ofSeconds(5))
+                    .then(Mono.defer(() -> {
+                        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+                        exchange.getResponse().setStatusCode(status);
+                        exchange.getResponse().getHeaders().setETag("\"v7\"");
+                        if (cacheControl != null) {
+                            exchange.getResponse().getHeaders().setCacheControl(cacheControl);
+                        }
+                        exchange.getResponse().getHeaders().setContentLength(body.length);
+                        return exchange.getResponse().writeWith(Mono.just(DefaultDataBufferFactory.sharedInstance.wrap(body)));
+                    }));
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.cache.ResponseCache;
+import com.ahamo.dummy.demo2.gateway.exception.ErrorResponseWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestLimitsFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestLimitsFilter factory = new RequestLimitsFilter(new ErrorResponseWriter(), meterRegistry);
+    private final GatewayFilter filter = factory.apply(new RequestLimitsFilter.Config()
+            .setMaxBodySize(DataSize.ofBytes(10))
+            .setMaxHeaderSize(DataSize.ofBytes(100)));
+
+    @Test
+    void shouldRunAheadOfResponseCache() {
+        ResponseCache responseCache = new ResponseCache(DataSize.ofMegabytes(1), DataSize.ofKilobytes(16), meterRegistry);
+        GatewayFilter cacheFilter = new ResponseCacheFilter(responseCache).apply(new ResponseCacheFilter.Config());
+
+        // Cache hits never reach the filters behind the cache, so the limits have to come first to apply to them
+        assertThat(((Ordered) filter).getOrder()).isLessThan(((Ordered) cacheFilter).getOrder());
+    }
+
+    @Test
+    void shouldRejectDeclaredContentLengthOverLimitWithoutCallingUpstream() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/products")
+                .contentLength(11)
+                .body("01234567890"));
+
+        StepVerifier.create(filter.filter(exchange, e -> {
+            upstreamCalls.incrementAndGet();
+            return e.getResponse().setComplete();
+        })).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(0);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONNECTION)).isEqualTo("close");
+        assertThat(meterRegistry.get("gateway.requests.rejected").tag("reason", "body_too_large").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldStopStreamingChunkedBodyOnceItGoesOverLimit() {
+        AtomicLong forwarded = new AtomicLong();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/v1/products")
+                .header(HttpHeaders.TRANSFER_ENCODING, "chunked")
+                .body(Flux.just(buffer("012345"), buffer("678901"), buffer("234567"))));
+        GatewayFilterChain streamingUpstream = e -> e.getRequest().getBody()
+                .doOnNext(buffer -> {
+                    forwarded.addAndGet(buffer.readableByteCount());
+                    DataBufferUtils.release(buffer);
+                })
+                .then();
+
+        StepVerifier.create(filter.filter(exchange, streamingUpstream)).verifyComplete();
+
+        assertThat(forwarded).hasValue(6);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    void shouldRejectHeadersOverRouteLimit() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/products")
+                .header("X-Padding", "x".repeat(100)));
+
+        StepVerifier.create(filter.filter(exchange, e -> e.getResponse().setComplete())).verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE);
+    }
+
+    private static DataBuffer buffer(String content) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(content.getBytes());
+    }
+}
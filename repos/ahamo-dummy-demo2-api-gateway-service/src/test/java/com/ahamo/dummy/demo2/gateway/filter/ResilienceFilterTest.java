@@ -0,0 +1,100 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.exception.ErrorResponseWriter;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResilienceFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .failureRateThreshold(50)
+            .waitDurationInOpenState(Duration.ofSeconds(30))
+            .build());
+    private final BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+            .maxConcurrentCalls(1)
+            .maxWaitDuration(Duration.ZERO)
+            .build());
+    private final ResilienceFilter factory = new ResilienceFilter(circuitBreakers, bulkheads,
+            TimeLimiterRegistry.ofDefaults(), new ErrorResponseWriter(), meterRegistry);
+
+    @Test
+    void shouldOpenCircuitOnUpstreamErrorsAndServeFallback() {
+        GatewayFilter filter = factory.apply(new ResilienceFilter.Config().setName("product-service"));
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        GatewayFilterChain failingUpstream = exchange -> {
+            upstreamCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+            return Mono.empty();
+        };
+
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(filter.filter(exchange(), failingUpstream)).verifyComplete();
+        }
+        MockServerWebExchange rejected = exchange();
+        StepVerifier.create(filter.filter(rejected, failingUpstream)).verifyComplete();
+
+        assertThat(circuitBreakers.circuitBreaker("product-service").getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(upstreamCalls).hasValue(4);
+        assertThat(rejected.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+        assertThat(rejected.getResponse().getBodyAsString().block()).contains("\"status\":503");
+        assertThat(meterRegistry.get("gateway.resilience.rejections").tag("reason", "circuit_open").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectWhenBulkheadIsFull() {
+        GatewayFilter filter = factory.apply(new ResilienceFilter.Config().setName("product-service"));
+        Sinks.Empty<Void> upstream = Sinks.empty();
+        MockServerWebExchange first = exchange();
+        MockServerWebExchange second = exchange();
+
+        StepVerifier.create(filter.filter(first, exchange -> upstream.asMono()))
+                .then(() -> StepVerifier.create(filter.filter(second, exchange -> Mono.empty())).verifyComplete())
+                .then(upstream::tryEmitEmpty)
+                .verifyComplete();
+
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(bulkheads.bulkhead("product-service").getMetrics().getAvailableConcurrentCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAnswerWithGatewayTimeoutWhenUpstreamIsSlow() {
+        GatewayFilter filter = factory.apply(new ResilienceFilter.Config()
+                .setName("product-service")
+                .setTimeout(Duration.ofMillis(50)));
+        MockServerWebExchange exchange = exchange();
+
+        StepVerifier.create(filter.filter(exchange, ex -> Mono.never())).verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+        assertThat(circuitBreakers.circuitBreaker("product-service").getMetrics().getNumberOfFailedCalls()).isEqualTo(1);
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+    }
+}
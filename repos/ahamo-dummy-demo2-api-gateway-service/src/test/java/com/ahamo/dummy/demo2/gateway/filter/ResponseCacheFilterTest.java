@@ -0,0 +1,160 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.cache.ResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheFilterTest {
+
+    private static final String CATALOG = "{\"id\":1,\"name\":\"Galaxy\"}";
+
+    private SimpleMeterRegistry meterRegistry;
+    private ResponseCache responseCache;
+    private GatewayFilter filter;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        responseCache = new ResponseCache(DataSize.ofMegabytes(1), DataSize.ofKilobytes(16), meterRegistry);
+        filter = new ResponseCacheFilter(responseCache).apply(new ResponseCacheFilter.Config());
+        upstreamCalls = new AtomicInteger();
+    }
+
+    @Test
+    void shouldServeSecondRequestFromCache() {
+        MockServerWebExchange first = exchange(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        StepVerifier.create(filter.filter(first, upstream("public, max-age=60"))).verifyComplete();
+
+        MockServerWebExchange second = exchange(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        StepVerifier.create(filter.filter(second, upstream("public, max-age=60"))).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(first.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("MISS");
+        assertThat(second.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("HIT");
+        assertThat(second.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getResponse().getHeaders().getETag()).isEqualTo("\"v1\"");
+        StepVerifier.create(second.getResponse().getBodyAsString()).expectNext(CATALOG).verifyComplete();
+    }
+
+    @Test
+    void shouldAnswerMatchingIfNoneMatchWithNotModified() {
+        StepVerifier.create(filter.filter(exchange(MockServerHttpRequest.get("/api/v1/smartphones/1")),
+                upstream("max-age=60"))).verifyComplete();
+
+        MockServerWebExchange conditional = exchange(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"v1\""));
+        StepVerifier.create(filter.filter(conditional, upstream("max-age=60"))).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(conditional.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(conditional.getResponse().getHeaders().getContentLength()).isEqualTo(-1);
+    }
+
+    @Test
+    void shouldNotStorePrivateOrUncacheableResponses() {
+        StepVerifier.create(filter.filter(exchange(MockServerHttpRequest.get("/api/v1/smartphones/1")),
+                upstream("private, max-age=60"))).verifyComplete();
+        StepVerifier.create(filter.filter(exchange(MockServerHttpRequest.get("/api/v1/smartphones/2")),
+                upstream(null))).verifyComplete();
+
+        assertThat(responseCache.size()).isZero();
+    }
+
+    @Test
+    void shouldStoreResponsesToAuthorizedRequestsOnlyWhenMarkedShareable() {
+        StepVerifier.create(filter.filter(exchange(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer alice")), upstream("max-age=60"))).verifyComplete();
+        MockServerWebExchange otherUser = exchange(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer bob"));
+        StepVerifier.create(filter.filter(otherUser, upstream("max-age=60"))).verifyComplete();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(otherUser.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("MISS");
+        assertThat(responseCache.size()).isZero();
+
+        StepVerifier.create(filter.filter(exchange(MockServerHttpRequest.get("/api/v1/smartphones/2")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer alice")), upstream("public, max-age=60"))).verifyComplete();
+        assertThat(responseCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldInvalidateEntryOnSuccessfulWrite() {
+        StepVerifier.create(filter.filter(exchange(MockServerHttpRequest.get("/api/v1/smartphones/1")),
+                upstream("max-age=60"))).verifyComplete();
+        assertThat(responseCache.size()).isEqualTo(1);
+
+        StepVerifier.create(filter.filter(exchange(MockServerHttpRequest.put("/api/v1/smartphones/1")),
+                upstream(null))).verifyComplete();
+
+        assertThat(responseCache.size()).isZero();
+    }
+
+    @Test
+    void shouldRevalidateStaleEntryThroughTheRouteChain() {
+        StepVerifier.create(filter.filter(exchange(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer alice")),
+                upstream("public, max-age=0, stale-while-revalidate=60"))).verifyComplete();
+
+        AtomicReference<HttpHeaders> revalidationHeaders = new AtomicReference<>();
+        GatewayFilterChain notModified = exchange -> {
+            upstreamCalls.incrementAndGet();
+            revalidationHeaders.set(exchange.getRequest().getHeaders());
+            exchange.getResponse().setStatusCode(HttpStatus.NOT_MODIFIED);
+            exchange.getResponse().getHeaders().setCacheControl("public, max-age=60");
+            return exchange.getResponse().setComplete();
+        };
+        MockServerWebExchange stale = exchange(MockServerHttpRequest.get("/api/v1/smartphones/1")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer bob")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"v0\""));
+        StepVerifier.create(filter.filter(stale, notModified)).verifyComplete();
+
+        assertThat(stale.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("STALE");
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(revalidationHeaders.get().getIfNoneMatch()).containsExactly("\"v1\"");
+        assertThat(revalidationHeaders.get().getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer bob");
+        assertThat(meterRegistry.get("gateway.response.cache.revalidations").tag("result", "not_modified").counter()
+                .count()).isEqualTo(1);
+
+        MockServerWebExchange refreshed = exchange(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        StepVerifier.create(filter.filter(refreshed, notModified)).verifyComplete();
+        assertThat(refreshed.getResponse().getHeaders().getFirst(ResponseCacheFilter.CACHE_STATUS_HEADER)).isEqualTo("HIT");
+    }
+
+    private GatewayFilterChain upstream(String cacheControl) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            byte[] body = CATALOG.getBytes(StandardCharsets.UTF_8);
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setETag("\"v1\"");
+            response.getHeaders().setContentLength(body.length);
+            if (cacheControl != null) {
+                response.getHeaders().setCacheControl(cacheControl);
+            }
+            return response.writeWith(Mono.just(DefaultDataBufferFactory.sharedInstance.wrap(body)));
+        };
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+}
@@ -0,0 +1,89 @@
+package com.ahamo.dummy.demo2.gateway.filter;
+
+import com.ahamo.dummy.demo2.gateway.metrics.RouteMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+class RouteMetricsFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RouteMetricsFilter routeMetricsFilter;
+    private UpstreamTimingFilter upstreamTimingFilter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        routeMetricsFilter = new RouteMetricsFilter(new RouteMetrics(meterRegistry));
+        upstreamTimingFilter = new UpstreamTimingFilter();
+    }
+
+    @Test
+    void shouldRecordLatencyAndStatusClassPerRoute() {
+        MockServerWebExchange exchange = routedExchange("product-service");
+
+        Mono<Void> result = routeMetricsFilter.filter(exchange, e -> {
+            assertThat(meterRegistry.get("gateway.route.inflight").tag("route", "product-service").gauge().value())
+                    .isEqualTo(1.0);
+            return upstreamTimingFilter.filter(e, upstream -> {
+                upstream.getResponse().setStatusCode(HttpStatus.OK);
+                return Mono.empty();
+            });
+        });
+
+        StepVerifier.create(result).verifyComplete();
+
+        Timer total = meterRegistry.get("gateway.route.latency").tag("route", "product-service").timer();
+        Timer upstream = meterRegistry.get("gateway.route.upstream.latency").tag("route", "product-service").timer();
+        assertThat(total.count()).isEqualTo(1);
+        assertThat(upstream.count()).isEqualTo(1);
+        assertThat(upstream.totalTime(TimeUnit.NANOSECONDS)).isLessThanOrEqualTo(total.totalTime(TimeUnit.NANOSECONDS));
+        assertThat(meterRegistry.get("gateway.route.responses")
+                .tags("route", "product-service", "status", "2xx").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("gateway.route.inflight").tag("route", "product-service").gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void shouldSkipUpstreamTimerWhenRequestNeverLeavesGateway() {
+        MockServerWebExchange exchange = routedExchange("auth-service");
+
+        Mono<Void> result = routeMetricsFilter.filter(exchange, e -> {
+            e.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            return Mono.empty();
+        });
+
+        StepVerifier.create(result).verifyComplete();
+
+        assertThat(meterRegistry.get("gateway.route.latency").tag("route", "auth-service").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.route.upstream.latency").tag("route", "auth-service").timer().count())
+                .isZero();
+        assertThat(meterRegistry.get("gateway.route.responses")
+                .tags("route", "auth-service", "status", "4xx").counter().count()).isEqualTo(1.0);
+    }
+
+    private static MockServerWebExchange routedExchange(String routeId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/test"));
+        Route route = Route.async()
+                .id(routeId)
+                .uri(URI.create("http://localhost:8080"))
+                .predicate(e -> true)
+                .build();
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+}
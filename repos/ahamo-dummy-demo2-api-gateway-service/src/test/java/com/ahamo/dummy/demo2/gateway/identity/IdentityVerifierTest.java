@@ -0,0 +1,50 @@
+package com.ahamo.dummy.demo2.gateway.identity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdentityVerifierTest {
+
+    private static final String SECRET = "dGVzdElkZW50aXR5U2VjcmV0Rm9yRG93bnN0cmVhbVNlcnZpY2VzMTIzNDU2Nzg=";
+
+    private final IdentitySigner signer = new IdentitySigner(SECRET);
+    private final IdentityVerifier verifier = new IdentityVerifier(SECRET);
+
+    @Test
+    void shouldVerifySignedIdentity() {
+        long expiresAt = System.currentTimeMillis() / 1000 + 300;
+        String signature = signer.sign("user-1", "USER,ADMIN", expiresAt);
+
+        Optional<VerifiedIdentity> identity = verifier.verify("user-1", "USER,ADMIN", Long.toString(expiresAt), signature);
+
+        assertThat(identity).isPresent();
+        assertThat(identity.get().subject()).isEqualTo("user-1");
+        assertThat(identity.get().roles()).isEqualTo(List.of("USER", "ADMIN"));
+    }
+
+    @Test
+    void shouldRejectTamperedRoles() {
+        long expiresAt = System.currentTimeMillis() / 1000 + 300;
+        String signature = signer.sign("user-1", "USER", expiresAt);
+
+        assertThat(verifier.verify("user-1", "ADMIN", Long.toString(expiresAt), signature)).isEmpty();
+    }
+
+    @Test
+    void shouldRejectExpiredIdentity() {
+        long expiresAt = System.currentTimeMillis() / 1000 - 300;
+        String signature = signer.sign("user-1", "USER", expiresAt);
+
+        assertThat(verifier.verify("user-1", "USER", Long.toString(expiresAt), signature)).isEmpty();
+    }
+
+    @Test
+    void shouldRejectMissingOrMalformedHeaders() {
+        assertThat(verifier.verify(name -> null)).isEmpty();
+        assertThat(verifier.verify("user-1", "USER", "not-a-number", "sig")).isEmpty();
+    }
+}
@@ -0,0 +1,182 @@
+package com.ahamo.dummy.demo2.gateway.loadbalancer;
+
+import com.ahamo.dummy.demo2.gateway.filter.HedgedRoutingFilter;
+import com.ahamo.dummy.demo2.gateway.filter.UpstreamPoolFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+
+class UpstreamPoolsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DisposableServer healthy;
+    private DisposableServer recovering;
+    private UpstreamPools pools;
+    private UpstreamPool pool;
+
+    @BeforeEach
+    void setUp() {
+        healthy = stub();
+        recovering = stub();
+        UpstreamPoolProperties.Pool config = new UpstreamPoolProperties.Pool();
+        config.setInstances(List.of(uri(healthy), uri(recovering)));
+        config.setConsecutiveFailures(3);
+        config.setEjectionTime(Duration.ZERO);
+        pools = new UpstreamPools(new UpstreamPoolProperties(), httpClientFactory(), meterRegistry);
+        pool = pools.register("product-service", config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pools.stop();
+        healthy.disposeNow();
+        recovering.disposeNow();
+    }
+
+    @Test
+    void shouldPreferInstanceWithLowerPeakEwmaCost() {
+        UpstreamInstance fast = pool.instances().get(0);
+        UpstreamInstance slow = pool.instances().get(1);
+        long now = System.nanoTime();
+        fast.observe(TimeUnit.MILLISECONDS.toNanos(5), now);
+        slow.observe(TimeUnit.MILLISECONDS.toNanos(80), now);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(pool.choose()).isSameAs(fast);
+        }
+
+        // Queued work counts too: enough outstanding requests make the fast instance the costlier one
+        for (int i = 0; i < 20; i++) {
+            fast.start();
+        }
+        assertThat(pool.choose()).isSameAs(slow);
+    }
+
+    @Test
+    void shouldEjectFailingInstanceAndReadmitItAfterSuccessfulProbe() {
+        UpstreamInstance failing = pool.instances().get(1);
+        for (int i = 0; i < 3; i++) {
+            failing.complete(failing.start(), false);
+        }
+
+        assertThat(failing.isEjected()).isTrue();
+        for (int i = 0; i < 20; i++) {
+            assertThat(pool.choose()).isNotSameAs(failing);
+        }
+        assertThat(meterRegistry.get("gateway.upstream.ejections").counter().count()).isEqualTo(1);
+
+        StepVerifier.create(pools.probe(pool)).verifyComplete();
+
+        assertThat(failing.isEjected()).isFalse();
+    }
+
+    @Test
+    void shouldRouteThroughChosenInstanceAndRecordOutcome() {
+        UpstreamPoolFilter filter = new UpstreamPoolFilter(pools);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1?page=2"));
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("pool://product-service/api/v1/smartphones/1?page=2"));
+        AtomicReference<URI> routed = new AtomicReference<>();
+        GatewayFilterChain upstream = ex -> {
+            routed.set(ex.getAttribute(GATEWAY_REQUEST_URL_ATTR));
+            ex.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+            return Mono.empty();
+        };
+
+        StepVerifier.create(filter.filter(exchange, upstream)).verifyComplete();
+
+        UpstreamInstance chosen = exchange.getAttribute(UpstreamPoolFilter.INSTANCE_ATTRIBUTE);
+        assertThat(routed.get()).isEqualTo(URI.create(chosen.uri() + "/api/v1/smartphones/1?page=2"));
+        assertThat(chosen.inFlight()).isZero();
+        assertThat(chosen.recordOutcome(false)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotChargePrimaryInstanceWithWinningHedgesOutcome() {
+        UpstreamPoolFilter filter = new UpstreamPoolFilter(pools);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/smartphones/1"));
+        exchange.getAttributes().put(GATEWAY_REQUEST_URL_ATTR, URI.create("pool://product-service/api/v1/smartphones/1"));
+        GatewayFilterChain hedgeWins = ex -> {
+            ex.getAttributes().put(HedgedRoutingFilter.HEDGE_WON_ATTRIBUTE, Boolean.TRUE);
+            ex.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return Mono.empty();
+        };
+
+        StepVerifier.create(filter.filter(exchange, hedgeWins)).verifyComplete();
+
+        UpstreamInstance primary = exchange.getAttribute(UpstreamPoolFilter.INSTANCE_ATTRIBUTE);
+        assertThat(primary.inFlight()).isZero();
+        assertThat(primary.recordOutcome(false)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSpeakPriorKnowledgeH2cWhenPoolIsConfiguredForIt() {
+        // An h2c-only server closes HTTP/1.1 connections; HTTP/2 requests carry their stream id
+        DisposableServer h2c = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.H2C)
+                .handle((request, response) -> response.sendString(
+                        Mono.justOrEmpty(request.requestHeaders().get("x-http2-stream-id"))))
+                .bindNow();
+        try {
+            UpstreamPoolProperties.Pool config = new UpstreamPoolProperties.Pool();
+            config.setInstances(List.of(uri(h2c)));
+            config.getConnections().setProtocol(UpstreamPoolProperties.Protocol.H2C);
+            config.getConnections().setMaxConnections(1);
+            UpstreamPool multiplexed = pools.register("inventory-service", config);
+
+            StepVerifier.create(multiplexed.httpClient().get()
+                            .uri(multiplexed.instances().get(0).uri().resolve("/stock"))
+                            .responseContent()
+                            .aggregate()
+                            .asString())
+                    .expectNextCount(1)
+                    .verifyComplete();
+        } finally {
+            h2c.disposeNow();
+        }
+    }
+
+    private static UpstreamHttpClientFactory httpClientFactory() {
+        HttpClientProperties properties = new HttpClientProperties();
+        ServerProperties serverProperties = new ServerProperties();
+        return new UpstreamHttpClientFactory(properties, serverProperties,
+                new HttpClientSslConfigurer(properties.getSsl(), serverProperties),
+                new DefaultListableBeanFactory().getBeanProvider(HttpClientCustomizer.class));
+    }
+
+    private static DisposableServer stub() {
+        return HttpServer.create()
+                .port(0)
+                .handle((request, response) -> response.sendString(Mono.just("{\"status\":\"UP\"}")))
+                .bindNow();
+    }
+
+    private static URI uri(DisposableServer server) {
+        return URI.create("http://localhost:" + server.port());
+    }
+}
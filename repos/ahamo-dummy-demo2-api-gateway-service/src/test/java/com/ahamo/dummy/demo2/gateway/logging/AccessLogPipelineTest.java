@@ -0,0 +1,78 @@
+package com.ahamo.dummy.demo2.gateway.logging;
+
+import com.ahamo.dummy.demo2.gateway.tracing.TraceContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogPipelineTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AccessLogPipeline accessLog;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        accessLog = new AccessLogPipeline(16, 4, 1.0, Duration.ofMillis(10), meterRegistry);
+    }
+
+    @Test
+    void shouldDropRecordsWhenRingBufferIsFull() {
+        for (int i = 0; i < 20; i++) {
+            record(200);
+        }
+
+        assertThat(accessLog.backlog()).isEqualTo(16);
+        assertThat(meterRegistry.get("gateway.access.log.records").tag("outcome", "dropped").counter().count())
+                .isEqualTo(4);
+    }
+
+    @Test
+    void shouldDrainInBatchesAndReuseSlots() {
+        for (int i = 0; i < 16; i++) {
+            record(200);
+        }
+
+        assertThat(accessLog.drain(4)).isEqualTo(4);
+        assertThat(accessLog.backlog()).isEqualTo(12);
+
+        record(200);
+        assertThat(accessLog.backlog()).isEqualTo(13);
+        assertThat(accessLog.drain(100)).isEqualTo(13);
+        assertThat(accessLog.backlog()).isZero();
+    }
+
+    @Test
+    void shouldAlwaysKeepErrorsWhenSampling() {
+        accessLog = new AccessLogPipeline(16, 4, 0.0, Duration.ofMillis(10), meterRegistry);
+
+        record(200);
+        record(503);
+
+        assertThat(accessLog.backlog()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAlwaysKeepSampledTraces() {
+        accessLog = new AccessLogPipeline(16, 4, 0.0, Duration.ofMillis(10), meterRegistry);
+
+        accessLog.record(System.currentTimeMillis(), 1_000, HttpMethod.GET, URI.create("/api/v1/smartphones"),
+                null, "req-1", "product-service", 200, new TraceContext(1, 2, 3, 4, true), 500);
+        accessLog.record(System.currentTimeMillis(), 1_000, HttpMethod.GET, URI.create("/api/v1/smartphones"),
+                null, "req-2", "product-service", 200, new TraceContext(1, 2, 5, 4, false), 500);
+
+        assertThat(accessLog.backlog()).isEqualTo(1);
+    }
+
+    private void record(int status) {
+        accessLog.record(System.currentTimeMillis(), 1_000, HttpMethod.GET, URI.create("/api/v1/smartphones"),
+                null, null, "product-service", status, null, -1);
+    }
+}
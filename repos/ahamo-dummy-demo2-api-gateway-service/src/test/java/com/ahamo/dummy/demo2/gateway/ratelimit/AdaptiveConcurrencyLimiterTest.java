@@ -0,0 +1,95 @@
+package com.ahamo.dummy.demo2.gateway.ratelimit;
+
+import com.ahamo.dummy.demo2.gateway.ratelimit.ConcurrencyLimitProperties.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void shouldShedLowerPrioritiesBeforeCriticalTraffic() {
+        ConcurrencyLimitProperties properties = properties();
+        properties.setInitialLimit(10);
+        properties.setMinLimit(1);
+        properties.setShares(Map.of(Priority.CRITICAL, 1.0, Priority.SHEDDABLE, 0.5));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AdaptiveConcurrencyLimiter.RouteLimiter limiter = new AdaptiveConcurrencyLimiter(properties, meterRegistry)
+                .forRoute("protected-services");
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(Priority.SHEDDABLE)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(Priority.SHEDDABLE)).isFalse();
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(Priority.CRITICAL)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(Priority.CRITICAL)).isFalse();
+
+        limiter.release(-1);
+        assertThat(limiter.inFlight()).isEqualTo(9);
+        assertThat(limiter.tryAcquire(Priority.CRITICAL)).isTrue();
+        assertThat(meterRegistry.get("gateway.concurrency.requests")
+                .tags("priority", "sheddable", "result", "rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShareOneLimitBetweenGroupedRoutes() {
+        ConcurrencyLimitProperties properties = properties();
+        properties.setInitialLimit(4);
+        properties.setMinLimit(1);
+        properties.setShares(Map.of(Priority.CRITICAL, 1.0, Priority.SHEDDABLE, 0.5));
+        properties.setGroups(Map.of("storefront", List.of("product-service", "protected-services")));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties, new SimpleMeterRegistry());
+        AdaptiveConcurrencyLimiter.RouteLimiter catalog = limiter.forRoute("product-service");
+        AdaptiveConcurrencyLimiter.RouteLimiter orders = limiter.forRoute("protected-services");
+
+        assertThat(orders).isSameAs(catalog);
+        assertThat(orders.tryAcquire(Priority.CRITICAL)).isTrue();
+        assertThat(orders.tryAcquire(Priority.CRITICAL)).isTrue();
+        assertThat(catalog.tryAcquire(Priority.SHEDDABLE)).isFalse();
+        assertThat(orders.tryAcquire(Priority.CRITICAL)).isTrue();
+        assertThat(limiter.forRoute("auth-service")).isNotSameAs(catalog);
+    }
+
+    @Test
+    void shouldGrowWhileLatencyIsFlatAndShrinkWhenItRises() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(properties(), 0);
+        long now = 0;
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(10), limit.limit(), now += 1_000);
+        }
+        int grown = limit.limit();
+        assertThat(grown).isGreaterThan(100);
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(100), limit.limit(), now += 1_000);
+        }
+        assertThat(limit.limit()).isLessThan(grown / 2).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    void shouldHoldLimitWhenTrafficIsTooLowToJudge() {
+        GradientConcurrencyLimit limit = new GradientConcurrencyLimit(properties(), 0);
+
+        for (int i = 1; i <= 20; i++) {
+            limit.onSample(TimeUnit.MILLISECONDS.toNanos(500), 3, i * 1_000L);
+        }
+
+        assertThat(limit.limit()).isEqualTo(100);
+    }
+
+    private static ConcurrencyLimitProperties properties() {
+        ConcurrencyLimitProperties properties = new ConcurrencyLimitProperties();
+        properties.setSampleWindow(Duration.ZERO);
+        properties.setMinSamples(1);
+        return properties;
+    }
+}
@@ -0,0 +1,151 @@
+package com.ahamo.dummy.demo2.gateway.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.data.redis.core.ReactiveRedisCallback;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HybridRateLimiterTest {
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, String> valueOperations;
+
+    private HybridRateLimiterProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new HybridRateLimiterProperties();
+    }
+
+    @Test
+    void shouldAllowBurstThenDenyLocallyWithoutRedis() {
+        HybridRateLimiter limiter = limiter(new HybridRateLimiter.Config().setReplenishRate(1).setBurstCapacity(2));
+
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+        assertThat(isAllowed(limiter, "client-a")).isFalse();
+        assertThat(isAllowed(limiter, "client-b")).isTrue();
+
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void shouldApplyRemoteConsumptionReportedByRedis() {
+        HybridRateLimiter limiter = limiter(new HybridRateLimiter.Config().setReplenishRate(1).setBurstCapacity(5));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString(), eq(1L))).thenReturn(Mono.just(5L));
+        when(redisTemplate.expire(anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+        StepVerifier.create(limiter.synchronize()).verifyComplete();
+
+        assertThat(isAllowed(limiter, "client-a")).isFalse();
+    }
+
+    @Test
+    void shouldFailClosedWhenRedisIsUnreachable() {
+        properties.setFailureMode(HybridRateLimiterProperties.FailureMode.CLOSED);
+        HybridRateLimiter limiter = limiter(new HybridRateLimiter.Config().setReplenishRate(10).setBurstCapacity(10));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString(), anyLong())).thenReturn(Mono.error(new IllegalStateException("down")));
+
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+        StepVerifier.create(limiter.synchronize()).verifyComplete();
+
+        assertThat(limiter.isRedisAvailable()).isFalse();
+        assertThat(isAllowed(limiter, "client-a")).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStayClosedUntilRedisAnswersAgain() {
+        properties.setFailureMode(HybridRateLimiterProperties.FailureMode.CLOSED);
+        HybridRateLimiter limiter = limiter(new HybridRateLimiter.Config().setReplenishRate(10).setBurstCapacity(10));
+        when(redisTemplate.execute(any(ReactiveRedisCallback.class)))
+                .thenReturn(Flux.error(new IllegalStateException("down")))
+                .thenReturn(Flux.error(new IllegalStateException("down")))
+                .thenReturn(Flux.just("PONG"));
+
+        StepVerifier.create(limiter.synchronize()).verifyComplete();
+        assertThat(limiter.isRedisAvailable()).isFalse();
+
+        // Denied requests consume no tokens, so these syncs have nothing to send and ping Redis instead
+        assertThat(isAllowed(limiter, "client-a")).isFalse();
+        StepVerifier.create(limiter.synchronize()).verifyComplete();
+        assertThat(limiter.isRedisAvailable()).isFalse();
+        assertThat(isAllowed(limiter, "client-a")).isFalse();
+
+        StepVerifier.create(limiter.synchronize()).verifyComplete();
+        assertThat(limiter.isRedisAvailable()).isTrue();
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+    }
+
+    @Test
+    void shouldReportTokensFromFailedSyncOnNextSync() {
+        HybridRateLimiter limiter = limiter(new HybridRateLimiter.Config().setReplenishRate(10).setBurstCapacity(10));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString(), anyLong()))
+                .thenReturn(Mono.error(new IllegalStateException("down")))
+                .thenReturn(Mono.just(3L));
+        when(redisTemplate.expire(anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+        StepVerifier.create(limiter.synchronize()).verifyComplete();
+        assertThat(limiter.isRedisAvailable()).isFalse();
+
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+        StepVerifier.create(limiter.synchronize()).verifyComplete();
+
+        assertThat(limiter.isRedisAvailable()).isTrue();
+        verify(valueOperations).increment(anyString(), eq(2L));
+        verify(valueOperations).increment(anyString(), eq(3L));
+        // Redis holds only this instance's tokens, so none are charged to the bucket as remote consumption
+        for (int i = 0; i < 7; i++) {
+            assertThat(isAllowed(limiter, "client-a")).isTrue();
+        }
+    }
+
+    @Test
+    void shouldKeepServingLocallyWhenFailingOpen() {
+        HybridRateLimiter limiter = limiter(new HybridRateLimiter.Config().setReplenishRate(10).setBurstCapacity(10));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.increment(anyString(), anyLong())).thenReturn(Mono.error(new IllegalStateException("down")));
+
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+        StepVerifier.create(limiter.synchronize()).verifyComplete();
+
+        assertThat(limiter.isRedisAvailable()).isFalse();
+        assertThat(isAllowed(limiter, "client-a")).isTrue();
+    }
+
+    private HybridRateLimiter limiter(HybridRateLimiter.Config config) {
+        return new HybridRateLimiter(redisTemplate, null, properties, new SimpleMeterRegistry(), config);
+    }
+
+    private boolean isAllowed(HybridRateLimiter limiter, String id) {
+        RateLimiter.Response response = limiter.isAllowed("auth-service", id).block();
+        return response != null && response.isAllowed();
+    }
+}
@@ -0,0 +1,69 @@
+package com.ahamo.dummy.demo2.gateway.route;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteTableReloaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldLayerFileOverEnvironmentAndKeepTableWhenFileIsInvalid() throws IOException {
+        Path file = dir.resolve("routes.yml");
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("application", Map.of(
+                "gateway.route-table.routes.users.uri", "http://localhost:8082",
+                "gateway.route-table.routes.users.paths[0]", "/api/v1/users/**",
+                "gateway.route-table.routes.orders.uri", "http://localhost:8082",
+                "gateway.route-table.routes.orders.paths[0]", "/api/v1/orders/**")));
+        RouteTableProperties properties = new RouteTableProperties();
+        properties.setFile(file);
+        RouteTable table = new RouteTable(properties, RouteTableReloaderTest::route);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RouteTableReloader reloader = new RouteTableReloader(table, properties, environment, event -> {
+        }, meterRegistry);
+
+        Files.writeString(file, """
+                gateway:
+                  route-table:
+                    routes:
+                      users:
+                        uri: http://users:8080
+                      orders:
+                        enabled: false
+                """);
+        assertThat(reloader.reload()).containsEntry("outcome", "success").containsEntry("version", 2L);
+        assertThat(table.match("/api/v1/users/1").getUri()).isEqualTo(URI.create("http://users:8080"));
+        assertThat(table.match("/api/v1/orders/1")).isNull();
+
+        Files.writeString(file, """
+                gateway:
+                  route-table:
+                    routes:
+                      users:
+                        paths:
+                          - /api/v1/users/**/raw
+                """);
+        assertThat(reloader.reload()).containsEntry("outcome", "failure").containsEntry("version", 2L);
+        assertThat(table.match("/api/v1/users/1").getUri()).isEqualTo(URI.create("http://users:8080"));
+        assertThat(meterRegistry.get("gateway.routes.reload").tag("outcome", "failure").timer().count())
+                .isEqualTo(1);
+    }
+
+    private static Route route(String id, RouteTableProperties.RouteSpec spec) {
+        return Route.async().id(id).uri(spec.getUri()).predicate(exchange -> true).build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.ahamo.dummy.demo2.gateway.route;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.route.Route;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteTableTest {
+
+    @Test
+    void shouldMatchMostSpecificPathRegardlessOfDeclarationOrder() {
+        RouteTableProperties properties = new RouteTableProperties();
+        properties.getRoutes().put("fallback", spec("/api/v1/**"));
+        properties.getRoutes().put("user", spec("/api/v1/users/{id}"));
+        properties.getRoutes().put("me", spec("/api/v1/users/me", "/api/v1/profile"));
+
+        RouteTable table = new RouteTable(properties, RouteTableTest::route);
+
+        assertThat(table.match("/api/v1/users/me").getId()).isEqualTo("me");
+        assertThat(table.match("/api/v1/profile/").getId()).isEqualTo("me");
+        assertThat(table.match("/api/v1/users/42").getId()).isEqualTo("user");
+        assertThat(table.match("/api/v1/users/42/orders").getId()).isEqualTo("fallback");
+        assertThat(table.match("/api/v1").getId()).isEqualTo("fallback");
+        assertThat(table.match("/api/v2/users/me")).isNull();
+        assertThat(table.getRoutes().map(Route::getId).collectList().block()).containsExactly("fallback", "user", "me");
+    }
+
+    @Test
+    void shouldRejectRoutesClaimingTheSamePath() {
+        RouteTableProperties properties = new RouteTableProperties();
+        properties.getRoutes().put("users", spec("/api/v1/users/{id}"));
+        properties.getRoutes().put("legacy-users", spec("/api/v1/legacy", "/api/v1/users/*"));
+
+        assertThatThrownBy(() -> new RouteTable(properties, RouteTableTest::route))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("legacy-users")
+                .hasMessageContaining("users/*");
+    }
+
+    @Test
+    void shouldRejectPatternsTheTrieCannotIndex() {
+        RouteTableProperties properties = new RouteTableProperties();
+        properties.getRoutes().put("files", spec("/files/**/raw"));
+
+        assertThatThrownBy(() -> new RouteTable(properties, RouteTableTest::route))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("/files/**/raw");
+    }
+
+    @Test
+    void shouldSwapInReloadedTableAndKeepCurrentOneWhenReloadFails() {
+        RouteTableProperties initial = new RouteTableProperties();
+        initial.getRoutes().put("users", spec("/api/v1/users/**"));
+        List<RouteTableProperties> activated = new ArrayList<>();
+        RouteTable table = new RouteTable(initial, RouteTableTest::route, activated::add);
+        Route before = table.match("/api/v1/users/42");
+
+        RouteTableProperties next = new RouteTableProperties();
+        next.getRoutes().put("users", spec("/api/v1/users/**"));
+        next.getRoutes().put("orders", spec("/api/v1/orders/**"));
+        assertThat(table.reload(next)).isEqualTo(2);
+
+        assertThat(table.match("/api/v1/orders/1").getId()).isEqualTo("orders");
+        assertThat(table.match("/api/v1/users/42")).isNotSameAs(before);
+        assertThat(activated).containsExactly(initial, next);
+
+        RouteTableProperties broken = new RouteTableProperties();
+        broken.getRoutes().put("users", spec("/api/v1/users/{id}"));
+        broken.getRoutes().put("user", spec("/api/v1/users/*"));
+        assertThatThrownBy(() -> table.reload(broken)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(table.version()).isEqualTo(2);
+        assertThat(table.match("/api/v1/orders/1").getId()).isEqualTo("orders");
+        assertThat(activated).hasSize(2);
+    }
+
+    private static RouteTableProperties.RouteSpec spec(String... paths) {
+        RouteTableProperties.RouteSpec spec = new RouteTableProperties.RouteSpec();
+        spec.setUri(URI.create("http://localhost:8082"));
+        spec.setPaths(List.of(paths));
+        return spec;
+    }
+
+    private static Route route(String id, RouteTableProperties.RouteSpec spec) {
+        return Route.async().id(id).uri(spec.getUri()).predicate(exchange -> true).build();
+    }
+}
@@ -0,0 +1,96 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachedCorsWebFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachedCorsWebFilter filter;
+    private AtomicInteger chainCalls;
+
+    @BeforeEach
+    void setUp() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setAllowedOrigins(List.of("https://app.example.com"));
+        configuration.setAllowedMethods(List.of("GET", "POST"));
+        configuration.setAllowedHeaders(List.of("authorization", "content-type"));
+        configuration.setAllowCredentials(true);
+        configuration.setMaxAge(3600L);
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", configuration);
+
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new CachedCorsWebFilter(source, 100, meterRegistry);
+        chainCalls = new AtomicInteger();
+    }
+
+    @Test
+    void shouldAnswerRepeatedPreflightFromCachedDecision() {
+        for (int i = 0; i < 3; i++) {
+            MockServerWebExchange exchange = exchange(MockServerHttpRequest.options("http://gateway.local/api/v1/orders")
+                    .header(HttpHeaders.ORIGIN, "https://app.example.com")
+                    .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "POST")
+                    .header(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "authorization"));
+
+            HttpHeaders headers = exchange.getResponse().getHeaders();
+            assertThat(exchange.getResponse().getStatusCode()).isNotEqualTo(HttpStatus.FORBIDDEN);
+            assertThat(headers.getAccessControlAllowOrigin()).isEqualTo("https://app.example.com");
+            assertThat(headers.getAccessControlAllowMethods()).extracting(Object::toString).contains("POST");
+            assertThat(headers.getAccessControlAllowHeaders()).containsExactly("authorization");
+            assertThat(headers.getAccessControlAllowCredentials()).isTrue();
+            assertThat(headers.getAccessControlMaxAge()).isEqualTo(3600L);
+            assertThat(headers.getVary()).contains(HttpHeaders.ORIGIN);
+        }
+
+        assertThat(chainCalls).hasValue(0);
+        assertThat(meterRegistry.get("gateway.cors.decisions").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.cors.decisions").tag("result", "hit").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRejectDisallowedOriginEveryTimeWithoutReachingChain() {
+        for (int i = 0; i < 2; i++) {
+            MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("http://gateway.local/api/v1/orders")
+                    .header(HttpHeaders.ORIGIN, "https://evil.example.com"));
+
+            assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+            assertThat(exchange.getResponse().getHeaders().getAccessControlAllowOrigin()).isNull();
+        }
+        assertThat(chainCalls).hasValue(0);
+    }
+
+    @Test
+    void shouldPassActualAndNonCorsRequestsOn() {
+        MockServerWebExchange cors = exchange(MockServerHttpRequest.get("http://gateway.local/api/v1/orders")
+                .header(HttpHeaders.ORIGIN, "https://app.example.com"));
+        MockServerWebExchange plain = exchange(MockServerHttpRequest.get("http://gateway.local/api/v1/orders"));
+
+        assertThat(chainCalls).hasValue(2);
+        assertThat(cors.getResponse().getHeaders().getAccessControlAllowOrigin()).isEqualTo("https://app.example.com");
+        assertThat(plain.getResponse().getHeaders().getAccessControlAllowOrigin()).isNull();
+    }
+
+    private MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        StepVerifier.create(filter.filter(exchange, next -> {
+                    chainCalls.incrementAndGet();
+                    return next.getResponse().setComplete();
+                }))
+                .verifyComplete();
+        return exchange;
+    }
+}
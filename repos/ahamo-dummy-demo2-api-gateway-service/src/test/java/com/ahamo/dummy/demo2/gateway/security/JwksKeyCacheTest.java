@@ -0,0 +1,127 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import io.jsonwebtoken.JwsHeader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwksKeyCacheTest {
+
+    private static final Duration MIN_REFETCH_INTERVAL = Duration.ofMillis(100);
+
+    private static RSAKey first;
+    private static RSAKey second;
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    // The JWKS document the stub serves, or null to answer 500
+    private final AtomicReference<String> served = new AtomicReference<>();
+    private JwksKeyCache keyCache;
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        first = new RSAKeyGenerator(2048).keyID("key-1").generate();
+        second = new RSAKeyGenerator(2048).keyID("key-2").generate();
+    }
+
+    @BeforeEach
+    void setUp() {
+        WebClient.Builder stubJwks = WebClient.builder().exchangeFunction(request -> {
+            fetches.incrementAndGet();
+            String document = served.get();
+            return Mono.just(document != null
+                    ? ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(document)
+                            .build()
+                    : ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        });
+        keyCache = new JwksKeyCache(stubJwks, "http://auth.local/.well-known/jwks.json", Duration.ofHours(1),
+                MIN_REFETCH_INTERVAL, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void shouldSelectKeyByKid() throws Exception {
+        served.set(jwks(first, second));
+        keyCache.requestRefresh();
+
+        assertThat(keyCache.getKey("key-1")).isEqualTo(first.toRSAPublicKey());
+        assertThat(keyCache.getKey("key-2")).isEqualTo(second.toRSAPublicKey());
+        // Without a kid the key is only unambiguous when the set has exactly one
+        assertThat(keyCache.getKey(null)).isNull();
+    }
+
+    @Test
+    void shouldRefetchForUnknownKidAtMostOncePerInterval() throws Exception {
+        served.set(jwks(first));
+        keyCache.requestRefresh();
+        served.set(jwks(first, second));
+
+        assertThat(keyCache.getKey("key-2")).isNull();
+        assertThat(keyCache.getKey("key-2")).isNull();
+        assertThat(fetches).hasValue(1);
+
+        Thread.sleep(MIN_REFETCH_INTERVAL.toMillis() * 2);
+        keyCache.getKey("key-2");
+        assertThat(fetches).hasValue(2);
+        assertThat(keyCache.getKey("key-2")).isEqualTo(second.toRSAPublicKey());
+
+        keyCache.getKey("unknown");
+        keyCache.getKey("unknown");
+        assertThat(fetches).hasValue(2);
+    }
+
+    @Test
+    void shouldKeepPreviousKeysWhenRefreshFails() throws Exception {
+        served.set(jwks(first));
+        keyCache.requestRefresh();
+        served.set(null);
+
+        Thread.sleep(MIN_REFETCH_INTERVAL.toMillis() * 2);
+        assertThat(keyCache.getKey("key-2")).isNull();
+
+        assertThat(fetches).hasValue(2);
+        assertThat(keyCache.isLoaded()).isTrue();
+        assertThat(keyCache.getKey("key-1")).isEqualTo(first.toRSAPublicKey());
+    }
+
+    @Test
+    void shouldResolveAsymmetricAlgorithmsThroughTheCache() throws Exception {
+        served.set(jwks(first));
+        keyCache.requestRefresh();
+        JwksSigningKeyProvider provider = new JwksSigningKeyProvider(keyCache);
+
+        assertThat(provider.supports(header("RS256", "key-1"))).isTrue();
+        assertThat(provider.supports(header("ES256", "key-1"))).isTrue();
+        assertThat(provider.supports(header("HS256", null))).isFalse();
+        assertThat(provider.resolveKey(header("RS256", "key-1"))).isEqualTo(first.toRSAPublicKey());
+    }
+
+    private static String jwks(RSAKey... keys) {
+        return new JWKSet(List.of(keys)).toPublicJWKSet().toString();
+    }
+
+    private static JwsHeader header(String algorithm, String keyId) {
+        JwsHeader header = mock(JwsHeader.class);
+        when(header.getAlgorithm()).thenReturn(algorithm);
+        when(header.getKeyId()).thenReturn(keyId);
+        return header;
+    }
+}
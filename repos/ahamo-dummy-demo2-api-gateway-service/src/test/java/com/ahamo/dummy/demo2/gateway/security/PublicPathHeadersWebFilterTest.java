@@ -0,0 +1,55 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PublicPathHeadersWebFilterTest {
+
+    private final PublicPathHeadersWebFilter filter = new PublicPathHeadersWebFilter("/api/v1/auth/**");
+
+    @Test
+    void shouldWriteSecurityHeadersOnPublicPaths() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.post("https://gateway.local/api/v1/auth/login"));
+
+        StepVerifier.create(filter.filter(exchange, e -> e.getResponse().setComplete())).verifyComplete();
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertThat(headers.getCacheControl()).contains("no-store");
+        assertThat(headers.getFirst("X-Content-Type-Options")).isEqualTo("nosniff");
+        assertThat(headers.getFirst("X-Frame-Options")).isEqualTo("DENY");
+        assertThat(headers.getFirst("Referrer-Policy")).isEqualTo("no-referrer");
+        assertThat(headers.getFirst("Strict-Transport-Security")).startsWith("max-age=");
+    }
+
+    @Test
+    void shouldKeepCacheHeadersSetByUpstream() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("http://gateway.local/api/v1/auth/keys"));
+
+        StepVerifier.create(filter.filter(exchange, e -> {
+            e.getResponse().getHeaders().setCacheControl("public, max-age=300");
+            return e.getResponse().setComplete();
+        })).verifyComplete();
+
+        HttpHeaders headers = exchange.getResponse().getHeaders();
+        assertThat(headers.getCacheControl()).isEqualTo("public, max-age=300");
+        assertThat(headers.getFirst("X-Content-Type-Options")).isEqualTo("nosniff");
+        assertThat(headers.containsKey("Strict-Transport-Security")).isFalse();
+    }
+
+    @Test
+    void shouldLeaveOtherPathsToTheSecurityChain() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get("https://gateway.local/api/v1/orders"));
+
+        StepVerifier.create(filter.filter(exchange, e -> e.getResponse().setComplete())).verifyComplete();
+
+        assertThat(exchange.getResponse().getHeaders().containsKey("X-Content-Type-Options")).isFalse();
+    }
+}
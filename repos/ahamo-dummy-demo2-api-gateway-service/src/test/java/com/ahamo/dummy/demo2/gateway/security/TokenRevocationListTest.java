@@ -0,0 +1,148 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.ReactiveSubscription;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveZSetOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationListTest {
+
+    private static final String JWT_SECRET = "dGVzdFNlY3JldEtleUZvckpXVFRva2VuVGVzdGluZ1B1cnBvc2VzMTIzNDU2Nzg5MA==";
+
+    @Mock
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Mock
+    private ReactiveZSetOperations<String, String> zSetOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TokenRevocationList revocationList;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        revocationList = new TokenRevocationList(redisTemplate, true, "revoked-tokens", "token-revocations",
+                1000, 0.001, Duration.ofMinutes(5), Duration.ofSeconds(2), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        revocationList.stop();
+    }
+
+    @Test
+    void shouldLoadSnapshotThenApplyPublishedRevocations() {
+        Sinks.Many<ReactiveSubscription.Message<String, String>> messages = Sinks.many().replay().all();
+        when(redisTemplate.listenToChannelLater("token-revocations")).thenReturn(Mono.just(messages.asFlux()));
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.removeRangeByScore(eq("revoked-tokens"), any())).thenReturn(Mono.just(0L));
+        when(zSetOperations.rangeByScore(eq("revoked-tokens"), any())).thenReturn(Flux.just("jti-1", "jti-2"));
+
+        assertThat(revocationList.isLoaded()).isFalse();
+        revocationList.start();
+        await().atMost(Duration.ofSeconds(5)).until(() -> revocationList.size() == 2);
+        assertThat(revocationList.isLoaded()).isTrue();
+
+        assertThat(revocationList.isRevoked(claims("jti-1"))).isTrue();
+        assertThat(revocationList.isRevoked(claims("jti-3"))).isFalse();
+
+        messages.tryEmitNext(new ReactiveSubscription.ChannelMessage<>("token-revocations", "jti-3"));
+        await().atMost(Duration.ofSeconds(5)).until(() -> revocationList.size() == 3);
+
+        assertThat(revocationList.isRevoked(claims("jti-3"))).isTrue();
+        assertThat(revocationList.isRevoked(Jwts.claims().subject("user-1").build())).isFalse();
+        assertThat(revocationList.size()).isEqualTo(3);
+        assertThat(meterRegistry.get("gateway.auth.revocation.rebuild").tag("outcome", "success").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepRevocationsAddedWhileSnapshotWasLoading() {
+        Sinks.One<List<String>> snapshot = Sinks.one();
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.removeRangeByScore(eq("revoked-tokens"), any())).thenReturn(Mono.just(0L));
+        when(zSetOperations.rangeByScore(eq("revoked-tokens"), any()))
+                .thenReturn(snapshot.asMono().flatMapMany(Flux::fromIterable));
+        revocationList.add("stale");
+
+        StepVerifier.create(revocationList.rebuild())
+                .then(() -> {
+                    revocationList.add("jti-late");
+                    snapshot.tryEmitValue(List.of("jti-1"));
+                })
+                .verifyComplete();
+
+        assertThat(revocationList.isRevoked(claims("jti-1"))).isTrue();
+        assertThat(revocationList.isRevoked(claims("jti-late"))).isTrue();
+        assertThat(revocationList.isRevoked(claims("stale"))).isFalse();
+    }
+
+    @Test
+    void shouldRejectRevokedTokenEvenWhenItsVerificationIsCached() {
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(100, Duration.ofMinutes(5), meterRegistry);
+        JwtTokenVerifier verifier = new JwtTokenVerifier(List.of(new HmacSigningKeyProvider(JWT_SECRET)), tokenCache,
+                revocationList);
+        String token = Jwts.builder()
+                .id("jti-1")
+                .subject("user-1")
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(JWT_SECRET.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+
+        assertThat(verifier.verify(token).getSubject()).isEqualTo("user-1");
+        revocationList.add("jti-1");
+
+        assertThatThrownBy(() -> verifier.verify(token))
+                .isInstanceOf(RevokedTokenException.class)
+                .hasMessageContaining("jti-1");
+    }
+
+    @Test
+    void shouldStayNearConfiguredFalsePositiveRate() {
+        BloomFilter bloom = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloom.put("revoked-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(bloom.mightContain("revoked-" + (i % 10_000))).isTrue();
+            if (bloom.mightContain("active-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(bloom.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+    }
+
+    private static Claims claims(String tokenId) {
+        return Jwts.claims().id(tokenId).subject("user-1").build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.ahamo.dummy.demo2.gateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldNotCacheExpiredTokens() {
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(100, Duration.ofMinutes(5), meterRegistry);
+
+        tokenCache.put(tokenCache.digest("expired"), claims(System.currentTimeMillis() - 1_000));
+
+        assertThat(tokenCache.size()).isZero();
+    }
+
+    @Test
+    void shouldExpireEntriesAfterMaxTtlEvenWhenTokenLivesLonger() throws InterruptedException {
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(100, Duration.ofMillis(50), meterRegistry);
+        VerifiedTokenCache.TokenDigest digest = tokenCache.digest("long-lived");
+
+        tokenCache.put(digest, claims(System.currentTimeMillis() + 60_000));
+        assertThat(tokenCache.get(digest)).isNotNull();
+
+        Thread.sleep(100);
+        assertThat(tokenCache.get(digest)).isNull();
+        assertThat(tokenCache.size()).isZero();
+        assertThat(evictions("expired")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntryOfAFullSegmentOnly() {
+        // 16 segments of two entries each; the top four bits of the digest pick the segment
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(32, Duration.ofMinutes(5), meterRegistry);
+        VerifiedTokenCache.TokenDigest first = digest(0, 1);
+        VerifiedTokenCache.TokenDigest second = digest(0, 2);
+        VerifiedTokenCache.TokenDigest third = digest(0, 3);
+        VerifiedTokenCache.TokenDigest otherSegment = digest(1, 1);
+        Claims claims = claims(System.currentTimeMillis() + 60_000);
+
+        tokenCache.put(otherSegment, claims);
+        tokenCache.put(first, claims);
+        tokenCache.put(second, claims);
+        tokenCache.get(first);
+        tokenCache.put(third, claims);
+
+        assertThat(tokenCache.get(second)).isNull();
+        assertThat(tokenCache.get(first)).isNotNull();
+        assertThat(tokenCache.get(third)).isNotNull();
+        assertThat(tokenCache.get(otherSegment)).isNotNull();
+        assertThat(tokenCache.size()).isEqualTo(3);
+        assertThat(evictions("size")).isEqualTo(1);
+    }
+
+    private double evictions(String cause) {
+        return meterRegistry.get("gateway.auth.token.cache.evictions").tag("cause", cause).counter().count();
+    }
+
+    private static VerifiedTokenCache.TokenDigest digest(int segment, long low) {
+        return new VerifiedTokenCache.TokenDigest((long) segment << 60, 0, 0, low);
+    }
+
+    private static Claims claims(long expiresAtMillis) {
+        return Jwts.claims()
+                .subject("user-1")
+                .expiration(new Date(expiresAtMillis))
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.ahamo.dummy.demo2.gateway.server;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConnectionLimiter limiter;
+    private InetAddress client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new ConnectionLimiter(2, meterRegistry);
+        client = InetAddress.getByName("192.0.2.10");
+    }
+
+    @Test
+    void shouldCloseConnectionsOverTheCapOnAccept() throws Exception {
+        EmbeddedChannel first = connect(client);
+        EmbeddedChannel second = connect(client);
+        EmbeddedChannel third = connect(client);
+
+        assertThat(first.isOpen()).isTrue();
+        assertThat(second.isOpen()).isTrue();
+        assertThat(third.isOpen()).isFalse();
+        assertThat(limiter.openConnections(client)).isEqualTo(2);
+        assertThat(meterRegistry.get("gateway.server.connections.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReleaseSlotWhenConnectionCloses() throws Exception {
+        EmbeddedChannel first = connect(client);
+        connect(client);
+
+        first.close();
+        assertThat(limiter.openConnections(client)).isEqualTo(1);
+        assertThat(connect(client).isOpen()).isTrue();
+        assertThat(limiter.openConnections(client)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCountEachClientAddressSeparately() throws Exception {
+        InetAddress other = InetAddress.getByName("192.0.2.20");
+        connect(client);
+        connect(client);
+
+        assertThat(connect(other).isOpen()).isTrue();
+        assertThat(meterRegistry.get("gateway.server.connections.clients").gauge().value()).isEqualTo(2);
+
+        connect(client).close();
+        assertThat(limiter.openConnections(client)).isEqualTo(2);
+        assertThat(limiter.openConnections(other)).isEqualTo(1);
+    }
+
+    private EmbeddedChannel connect(InetAddress address) throws Exception {
+        InetSocketAddress remote = new InetSocketAddress(address, 40000);
+        // Registered by hand so the remote address is in place before the channel becomes active
+        EmbeddedChannel channel = new EmbeddedChannel(false, false) {
+            @Override
+            protected SocketAddress remoteAddress0() {
+                return remote;
+            }
+        };
+        channel.pipeline().addLast(limiter);
+        channel.register();
+        return channel;
+    }
+}
@@ -0,0 +1,131 @@
+package com.ahamo.dummy.demo2.gateway.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowClientHandlerTest {
+
+    private static final long TIMEOUT_MILLIS = 50;
+
+    private Counter headerTimeouts;
+    private Counter bodyReadTimeouts;
+    private Counter writeTimeouts;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        headerTimeouts = meterRegistry.counter("header");
+        bodyReadTimeouts = meterRegistry.counter("body");
+        writeTimeouts = meterRegistry.counter("write");
+    }
+
+    @Test
+    void shouldAnswer408AndCloseWhenHeadIsNotCompletedInTime() throws InterruptedException {
+        EmbeddedChannel channel = channel();
+
+        channel.writeInbound(bytes("GET /api/v1/smartphones HTTP/1.1\r\nHost: gateway\r\n"));
+        elapseTimeout(channel);
+
+        assertThat(headerTimeouts.count()).isEqualTo(1);
+        assertThat(outbound(channel)).startsWith("HTTP/1.1 408").contains("connection: close");
+        assertThat(channel.isOpen()).isFalse();
+    }
+
+    @Test
+    void shouldNotTimeOutOnceHeadIsComplete() throws InterruptedException {
+        EmbeddedChannel channel = channel();
+
+        channel.writeInbound(bytes("GET /api/v1/smartphones HTTP/1.1\r\nHost: gateway\r\n\r\n"));
+        elapseTimeout(channel);
+
+        assertThat(headerTimeouts.count()).isZero();
+        assertThat(bodyReadTimeouts.count()).isZero();
+        assertThat(channel.isOpen()).isTrue();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void shouldCloseWhenClientLeavesRequestedBodyWaiting() throws InterruptedException {
+        EmbeddedChannel channel = channel();
+
+        // With auto-read on, the server asks for more of the body right after each read
+        channel.writeInbound(bytes("POST /api/v1/orders HTTP/1.1\r\nHost: gateway\r\nContent-Length: 10\r\n\r\n01"));
+        elapseTimeout(channel);
+
+        assertThat(bodyReadTimeouts.count()).isEqualTo(1);
+        assertThat(channel.isOpen()).isFalse();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void shouldNotCountUpstreamBackpressureAgainstTheClient() throws InterruptedException {
+        EmbeddedChannel channel = channel();
+        channel.config().setAutoRead(false);
+
+        channel.writeInbound(bytes("POST /api/v1/orders HTTP/1.1\r\nHost: gateway\r\nContent-Length: 10\r\n\r\n01"));
+        elapseTimeout(channel);
+
+        assertThat(bodyReadTimeouts.count()).isZero();
+        assertThat(channel.isOpen()).isTrue();
+
+        // The upstream is ready for more, so from here the wait is the client's
+        channel.read();
+        elapseTimeout(channel);
+
+        assertThat(bodyReadTimeouts.count()).isEqualTo(1);
+        assertThat(channel.isOpen()).isFalse();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void shouldCloseWhenResponseWriteDoesNotComplete() throws InterruptedException {
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new SlowClientHandler.WriteTimeout(TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS), writeTimeouts));
+
+        // Never flushed, as when the client stops reading and the socket's buffer stays full
+        channel.write(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        elapseTimeout(channel);
+
+        assertThat(writeTimeouts.count()).isEqualTo(1);
+        assertThat(channel.isOpen()).isFalse();
+        channel.finishAndReleaseAll();
+    }
+
+    private EmbeddedChannel channel() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        SlowClientHandler handler = new SlowClientHandler(timeoutNanos, timeoutNanos, headerTimeouts, bodyReadTimeouts);
+        return new EmbeddedChannel(handler.bytesHandler(), new HttpServerCodec(), handler);
+    }
+
+    private static void elapseTimeout(EmbeddedChannel channel) throws InterruptedException {
+        Thread.sleep(TIMEOUT_MILLIS * 2);
+        channel.runPendingTasks();
+    }
+
+    private static ByteBuf bytes(String content) {
+        return Unpooled.copiedBuffer(content, StandardCharsets.US_ASCII);
+    }
+
+    private static String outbound(EmbeddedChannel channel) {
+        StringBuilder written = new StringBuilder();
+        for (ByteBuf buffer; (buffer = channel.readOutbound()) != null; ) {
+            written.append(buffer.toString(StandardCharsets.US_ASCII));
+            buffer.release();
+        }
+        return written.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.ahamo.dummy.demo2.gateway.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracingWebFilterTest {
+
+    private static final String PARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @Test
+    void shouldContinueIncomingTraceAndForwardRequestId() {
+        TracingWebFilter filter = new TracingWebFilter(0.0, 100, new SimpleMeterRegistry());
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/orders")
+                .header(RequestIds.HEADER, "req-42")
+                .header(TraceContext.TRACEPARENT, PARENT));
+        AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+        StepVerifier.create(filter.filter(exchange, next -> {
+                    forwarded.set(next);
+                    return next.getResponse().setComplete();
+                }))
+                .verifyComplete();
+
+        TraceContext span = TraceContext.get(exchange);
+        assertThat(span.traceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(span.parentSpanId()).isEqualTo(0x00f067aa0ba902b7L);
+        assertThat(span.sampled()).isTrue();
+        assertThat(forwarded.get().getRequest().getHeaders().getFirst(TraceContext.TRACEPARENT))
+                .isEqualTo(span.traceparent())
+                .startsWith("00-4bf92f3577b34da6a3ce929d0e0e4736-")
+                .endsWith("-01")
+                .doesNotContain("00f067aa0ba902b7");
+        assertThat(forwarded.get().getRequest().getHeaders().getFirst(RequestIds.HEADER)).isEqualTo("req-42");
+        assertThat(exchange.getResponse().getHeaders().getFirst(RequestIds.HEADER)).isEqualTo("req-42");
+    }
+
+    @Test
+    void shouldStartNewTraceAndCapSampledTracesAtBudget() {
+        TracingWebFilter filter = new TracingWebFilter(1.0, 2, new SimpleMeterRegistry());
+        int sampled = 0;
+        for (int i = 0; i < 10; i++) {
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/v1/orders")
+                    .header(TraceContext.TRACEPARENT, "00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+            filter.filter(exchange, next -> Mono.empty()).block();
+
+            assertThat(TraceContext.get(exchange).parentSpanId()).isZero();
+            assertThat(RequestIds.get(exchange)).hasSize(26);
+            sampled += TraceContext.get(exchange).sampled() ? 1 : 0;
+        }
+
+        assertThat(sampled).isBetween(2, 3);
+    }
+
+    @Test
+    void shouldGenerateTimeOrderedRequestIds() {
+        String earlier = RequestIds.next();
+        String later = RequestIds.next(System.currentTimeMillis() + 1, ThreadLocalRandom.current());
+
+        assertThat(earlier).matches("[0-9A-HJKMNP-TV-Z]{26}");
+        assertThat(later).isGreaterThan(earlier);
+    }
+}